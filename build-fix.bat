@@ -10,7 +10,7 @@ if not exist "build\classes" mkdir "build\classes"
 echo [INFO] Compiling Java files...
 
 REM Compile REAL classes only
-javac -d build\classes -sourcepath src\main\java ^
+javac -d build\classes -cp lib\bcprov-jdk18on-1.78.1.jar -sourcepath src\main\java ^
     src\main\java\com\ebrasha\droidguard\SimpleAbdalDroidGuard.java ^
     src\main\java\com\ebrasha\droidguard\core\RealAPKHardener.java ^
     src\main\java\com\ebrasha\droidguard\core\ManifestProcessor.java ^
@@ -40,6 +40,7 @@ echo [INFO] Creating manifest file...
 (
 echo Manifest-Version: 1.0
 echo Main-Class: com.ebrasha.droidguard.SimpleAbdalDroidGuard
+echo Class-Path: ../lib/bcprov-jdk18on-1.78.1.jar
 echo Created-By: Abdal DroidGuard
 echo Author: Ebrahim Shafiei ^(EbraSha^)
 echo Email: Prof.Shafiei@Gmail.com
@@ -0,0 +1,87 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ApkBenchmark.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:58:30
+ * Description  : JMH benchmarks for APK parsing and rebuilding
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * APKParser.parseAPK, APKBuilder.buildAPK and archive-native entry hashing over synthetic APKs
+ * The rebuild replaces classes.dex through the overlay, as after obfuscation,
+ * and copies every other entry from the source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApkBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int entryCount;
+
+    @Param({"16384"})
+    public int entrySize;
+
+    private Path workDir;
+    private Path apk;
+    private Path output;
+    private APKOverlay overlay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("abdal_bench_apk_");
+        apk = BenchmarkInputs.writeApk(workDir.resolve("input.apk"), entryCount, entrySize, 42);
+        overlay = new APKOverlay(apk.toFile(), workDir.resolve("overlay"));
+        overlay.writeEntry("classes.dex", BenchmarkInputs.dexLikeData(entrySize * 4, 7));
+        output = workDir.resolve("output.apk");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        overlay.close();
+        BenchmarkInputs.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public int parseAPK() {
+        APKParser parser = new APKParser();
+        if (!parser.parseAPK(apk.toFile())) {
+            throw new IllegalStateException("APK parsing failed");
+        }
+        return parser.getAllEntries().size();
+    }
+
+    @Benchmark
+    public long buildAPK() throws IOException {
+        if (!new APKBuilder().buildAPK(overlay, output)) {
+            throw new IllegalStateException("APK building failed");
+        }
+        return Files.size(output);
+    }
+
+    @Benchmark
+    public int hashArchive() throws IOException {
+        return new ParallelFileHasher(Runtime.getRuntime().availableProcessors()).hashArchive(apk).size();
+    }
+}
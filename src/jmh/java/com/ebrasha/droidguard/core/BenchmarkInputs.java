@@ -0,0 +1,204 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : BenchmarkInputs.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:52:16
+ * Description  : Synthetic APKs, JARs and DEX data for the JMH benchmarks
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates benchmark inputs of a given size from a fixed seed
+ * The same parameters always produce the same bytes, so results of different
+ * runs are comparable against a stored baseline.
+ */
+final class BenchmarkInputs {
+
+    // Identifiers that the DEX passes look for, mixed into the synthetic data
+    private static final String[] IDENTIFIERS = {
+        "onCreate", "onResume", "setContentView", "findViewById", "getSharedPreferences",
+        "Landroid/app/Activity;", "Ljava/lang/String;", "MainActivity", "startActivity", "init"
+    };
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * DEX-like data: random bytes with identifier strings every few hundred bytes
+     */
+    static byte[] dexLikeData(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        int position = 0;
+        while (true) {
+            position += 64 + random.nextInt(448);
+            byte[] identifier = IDENTIFIERS[random.nextInt(IDENTIFIERS.length)].getBytes(StandardCharsets.UTF_8);
+            if (position + identifier.length > size) {
+                break;
+            }
+            System.arraycopy(identifier, 0, data, position, identifier.length);
+        }
+        return data;
+    }
+
+    /**
+     * Write an APK with a manifest, a DEX, a native library and entryCount resources of entrySize bytes
+     * Half of the resources compress well, the other half are incompressible.
+     */
+    static Path writeApk(Path apk, int entryCount, int entrySize, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(apk))) {
+            writeDeflated(out, "AndroidManifest.xml", dexLikeData(2048, seed));
+            writeDeflated(out, "classes.dex", dexLikeData(entrySize * 4, seed + 1));
+            writeStored(out, "lib/arm64-v8a/libbench.so", dexLikeData(entrySize, seed + 2));
+            byte[] text = "<resource name=\"value\">benchmark</resource>\n".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < entryCount; i++) {
+                byte[] data = new byte[entrySize];
+                if (i % 2 == 0) {
+                    for (int j = 0; j < data.length; j++) {
+                        data[j] = text[j % text.length];
+                    }
+                } else {
+                    random.nextBytes(data);
+                }
+                writeDeflated(out, "res/raw/r" + i + ".bin", data);
+            }
+        }
+        return apk;
+    }
+
+    /**
+     * Write a JAR of classCount classes that extend, call and read fields of each other
+     */
+    static Path writeJar(Path jar, int classCount) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (byte[] data : generateClasses(classCount)) {
+                String name = new ClassReader(data).getClassName();
+                writeDeflated(out, name + ".class", data);
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Generate classCount classes in inheritance chains of eight, each with
+     * fields and a method that creates its neighbour and reads its field
+     */
+    static List<byte[]> generateClasses(int classCount) {
+        List<byte[]> classes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            String name = "bench/C" + i;
+            String superName = i > 0 && i % 8 != 0 ? "bench/C" + (i - 1) : "java/lang/Object";
+            String neighbour = "bench/C" + (i > 0 ? i - 1 : 0);
+            ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+            writer.visitField(Opcodes.ACC_PUBLIC, "value" + i, "I", null, null).visitEnd();
+            writer.visitField(Opcodes.ACC_PRIVATE, "label", "Ljava/lang/String;", null, null).visitEnd();
+
+            MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+            init.visitCode();
+            init.visitVarInsn(Opcodes.ALOAD, 0);
+            init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+            init.visitInsn(Opcodes.RETURN);
+            init.visitMaxs(0, 0);
+            init.visitEnd();
+
+            MethodVisitor compute = writer.visitMethod(Opcodes.ACC_PUBLIC, "compute" + i, "(I)I", null, null);
+            compute.visitCode();
+            compute.visitTypeInsn(Opcodes.NEW, neighbour);
+            compute.visitInsn(Opcodes.DUP);
+            compute.visitMethodInsn(Opcodes.INVOKESPECIAL, neighbour, "<init>", "()V", false);
+            compute.visitFieldInsn(Opcodes.GETFIELD, neighbour, "value" + (i > 0 ? i - 1 : 0), "I");
+            compute.visitVarInsn(Opcodes.ILOAD, 1);
+            compute.visitInsn(Opcodes.IADD);
+            compute.visitLdcInsn("C" + i);
+            compute.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+            compute.visitInsn(Opcodes.IADD);
+            compute.visitInsn(Opcodes.IRETURN);
+            compute.visitMaxs(0, 0);
+            compute.visitEnd();
+
+            writer.visitEnd();
+            classes.add(writer.toByteArray());
+        }
+        return classes;
+    }
+
+    /**
+     * Write a file of the given size with seeded random content
+     */
+    static Path writeRandomFile(Path file, int size, long seed) throws IOException {
+        byte[] buffer = new byte[65536];
+        Random random = new Random(seed);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, Math.min(buffer.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Delete a benchmark work directory
+     */
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void writeDeflated(ZipOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static void writeStored(ZipOutputStream out, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ClassObfuscationBenchmark.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:13:25
+ * Description  : JMH benchmarks for ASM class renaming over synthetic JARs
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObfuscationEngine.obfuscateClass per class, and the whole two-phase JAR
+ * pipeline (collect, build rename table, remap) on one and on all cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassObfuscationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int classCount;
+
+    private Path workDir;
+    private Path jar;
+    private List<byte[]> classes;
+    private RenameTable renameTable;
+    private ObfuscationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("abdal_bench_jar_");
+        jar = BenchmarkInputs.writeJar(workDir.resolve("input.jar"), classCount);
+        classes = BenchmarkInputs.generateClasses(classCount);
+        renameTable = new RenameTable(new NameGenerator(42)::next);
+        for (byte[] data : classes) {
+            renameTable.collect(new ClassReader(data));
+        }
+        renameTable.build();
+        engine = new ObfuscationEngine();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void obfuscateClass(Blackhole blackhole) {
+        for (byte[] data : classes) {
+            blackhole.consume(engine.obfuscateClass(new ClassReader(data), renameTable));
+        }
+    }
+
+    @Benchmark
+    public int obfuscateJarSingleThread() throws IOException {
+        return obfuscateJar(1);
+    }
+
+    @Benchmark
+    public int obfuscateJarAllCores() throws IOException {
+        return obfuscateJar(Runtime.getRuntime().availableProcessors());
+    }
+
+    private int obfuscateJar(int threads) throws IOException {
+        RenameTable table = new RenameTable(new NameGenerator(42)::next);
+        JarTransformPipeline.Stats stats = new JarTransformPipeline(threads).run(jar, workDir.resolve("output.jar"),
+            table::collect, table::build, reader -> engine.obfuscateClass(reader, table));
+        return stats.getClassCount();
+    }
+}
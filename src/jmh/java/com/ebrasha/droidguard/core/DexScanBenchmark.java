@@ -0,0 +1,68 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexScanBenchmark.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:04:11
+ * Description  : JMH benchmarks for the DEX string scanning pass
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RealObfuscationEngine string scanning over synthetic DEX data
+ * scan measures the multi-pattern scanner alone, rewrite runs the engine's
+ * method-name pass (scan plus copy-on-write patching) with all other passes off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DexScanBenchmark {
+
+    private static final MultiPatternScanner SCANNER = MultiPatternScanner.forStrings(
+        "onCreate", "onResume", "onPause", "onDestroy", "onStart", "onStop",
+        "onClick", "onTouch", "onKeyDown", "onKeyUp", "onBackPressed",
+        "init", "setup", "configure", "initialize", "load", "save");
+
+    @Param({"1048576", "16777216"})
+    public int dexSize;
+
+    private byte[] data;
+    private RealObfuscationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkInputs.dexLikeData(dexSize, 42);
+        engine = new RealObfuscationEngine();
+        for (String pass : engine.getPassManager().getPassNames()) {
+            engine.setPassEnabled(pass, pass.equals(RealObfuscationEngine.PASS_METHOD_NAMES));
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        return SCANNER.scan(data, 0, data.length).size();
+    }
+
+    @Benchmark
+    public int rewrite() {
+        DexBuffer dex = DexBuffer.wrap(data);
+        engine.performDEXObfuscation(dex);
+        return dex.size();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : FileHashBenchmark.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:08:47
+ * Description  : JMH benchmark for tamper detection file hashing
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RealTamperDetection.calculateFileHash over files of increasing size, and
+ * ParallelFileHasher.hashTree over a directory of 256 such files, per digest engine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileHashBenchmark {
+
+    @Param({"4096", "1048576", "67108864"})
+    public int fileSize;
+
+    @Param({"SHA-256", "BLAKE3", "XXH64"})
+    public String digest;
+
+    private Path workDir;
+    private Path file;
+    private Path tree;
+    private RealTamperDetection tamperDetection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("abdal_bench_hash_");
+        file = BenchmarkInputs.writeRandomFile(workDir.resolve("entry.bin"), fileSize, 42);
+        tamperDetection = new RealTamperDetection();
+        tamperDetection.setDigestEngine(DigestEngine.forName(digest));
+        tree = Files.createDirectories(workDir.resolve("tree"));
+        for (int i = 0; i < 256; i++) {
+            BenchmarkInputs.writeRandomFile(tree.resolve("entry" + i + ".bin"), Math.min(fileSize, 1048576), i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkInputs.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public String calculateFileHash() throws Exception {
+        return tamperDetection.calculateFileHash(file);
+    }
+
+    @Benchmark
+    public int hashTreeSingleThread() throws IOException {
+        return new ParallelFileHasher(1, digest).hashTree(tree).size();
+    }
+
+    @Benchmark
+    public int hashTreeAllCores() throws IOException {
+        return new ParallelFileHasher(Runtime.getRuntime().availableProcessors(), digest).hashTree(tree).size();
+    }
+}
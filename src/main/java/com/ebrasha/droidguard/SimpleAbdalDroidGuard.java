@@ -17,10 +17,13 @@
 
 package com.ebrasha.droidguard;
 
+import com.ebrasha.droidguard.core.BinaryHashDatabase;
+import com.ebrasha.droidguard.core.DigestEngine;
 import com.ebrasha.droidguard.core.RealObfuscationEngine;
 import com.ebrasha.droidguard.core.RealTamperDetection;
 import com.ebrasha.droidguard.core.RealRASProtection;
 import com.ebrasha.droidguard.core.RealAPKHardener;
+import com.ebrasha.droidguard.core.ReproducibleBuild;
 import com.ebrasha.droidguard.utils.SimpleLogger;
 
 import java.io.File;
@@ -41,6 +44,12 @@ public class SimpleAbdalDroidGuard {
     private boolean enableRASP = false;
     private boolean enableAll = false;
     private boolean verbose = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File cacheDir;
+    private boolean reproducible = false;
+    private long seed = 0;
+    private boolean verifyOnly = false;
+    private DigestEngine digestEngine = DigestEngine.SHA256;
     
     public static void main(String[] args) {
         // Display author information at startup
@@ -76,6 +85,17 @@ public class SimpleAbdalDroidGuard {
                 return 1;
             }
             
+            // Verify an already hardened APK instead of hardening it
+            if (verifyOnly) {
+                return verifyIntegrity() ? 0 : 1;
+            }
+            
+            // Fix clock and seeds before any protection component is created
+            if (reproducible) {
+                ReproducibleBuild.enable(seed);
+                logger.info("Reproducible build enabled (seed " + seed + ")");
+            }
+            
             // Set default output if not provided
             if (outputFile == null) {
                 String inputName = inputFile.getName();
@@ -110,6 +130,8 @@ public class SimpleAbdalDroidGuard {
             if (tamperDetect) {
                 logger.info("Initializing REAL tamper detection...");
                 tamperDetection = new RealTamperDetection();
+                tamperDetection.setThreads(threads);
+                tamperDetection.setDigestEngine(digestEngine);
             }
             
             if (rasp) {
@@ -167,6 +189,43 @@ public class SimpleAbdalDroidGuard {
                 enableAll = true;
             } else if (arg.equals("--verbose") || arg.equals("-v")) {
                 verbose = true;
+            } else if (arg.equals("--threads")) {
+                if (i + 1 < arguments.size()) {
+                    try {
+                        threads = Math.max(1, Integer.parseInt(arguments.get(i + 1)));
+                    } catch (NumberFormatException e) {
+                        logger.warn("Invalid thread count: " + arguments.get(i + 1));
+                    }
+                    i++; // Skip next argument
+                }
+            } else if (arg.equals("--reproducible")) {
+                reproducible = true;
+            } else if (arg.equals("--seed")) {
+                if (i + 1 < arguments.size()) {
+                    try {
+                        seed = Long.parseLong(arguments.get(i + 1));
+                        reproducible = true;
+                    } catch (NumberFormatException e) {
+                        logger.warn("Invalid seed: " + arguments.get(i + 1));
+                    }
+                    i++; // Skip next argument
+                }
+            } else if (arg.equals("--digest")) {
+                if (i + 1 < arguments.size()) {
+                    try {
+                        digestEngine = DigestEngine.forName(arguments.get(i + 1));
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Invalid digest: " + arguments.get(i + 1));
+                    }
+                    i++; // Skip next argument
+                }
+            } else if (arg.equals("--verify")) {
+                verifyOnly = true;
+            } else if (arg.equals("--cache-dir")) {
+                if (i + 1 < arguments.size()) {
+                    cacheDir = new File(arguments.get(i + 1));
+                    i++; // Skip next argument
+                }
             } else if (arg.equals("-o") || arg.equals("--output")) {
                 if (i + 1 < arguments.size()) {
                     outputFile = new File(arguments.get(i + 1));
@@ -195,6 +254,12 @@ public class SimpleAbdalDroidGuard {
         System.out.println("  --tamper-detect         Enable tamper detection");
         System.out.println("  --rasp                  Enable RASP protection");
         System.out.println("  --all                   Enable all protection features");
+        System.out.println("  --threads <n>           Worker threads for parallel stages (default: CPU count)");
+        System.out.println("  --cache-dir <dir>       Incremental mode: reuse hardened entries from previous builds");
+        System.out.println("  --reproducible          Byte-identical output: fixed epoch (SOURCE_DATE_EPOCH), seeded randomness");
+        System.out.println("  --seed <n>              Seed for reproducible builds, implies --reproducible (default: 0)");
+        System.out.println("  --digest <name>         Integrity digest: sha256 (default), blake3, xxh64 (fast, not tamper-proof)");
+        System.out.println("  --verify                Check a hardened APK against its embedded hash database");
         System.out.println("  --verbose, -v           Enable verbose logging");
         System.out.println("  --version               Show version information");
         System.out.println("  --help, -h              Show this help message");
@@ -203,6 +268,7 @@ public class SimpleAbdalDroidGuard {
         System.out.println("  java SimpleAbdalDroidGuard app.apk --all");
         System.out.println("  java SimpleAbdalDroidGuard app.jar --obfuscate --verbose");
         System.out.println("  java SimpleAbdalDroidGuard app.apk --rasp -o protected.apk");
+        System.out.println("  java SimpleAbdalDroidGuard app_hardened.apk --verify");
         System.out.println();
     }
     
@@ -252,6 +318,33 @@ public class SimpleAbdalDroidGuard {
         return true;
     }
     
+    /**
+     * Verify every entry of the input APK against its embedded binary hash database
+     */
+    private boolean verifyIntegrity() {
+        try {
+            logger.info("Verifying integrity of: " + inputFile.getAbsolutePath());
+            BinaryHashDatabase.Report report = BinaryHashDatabase.verifyArchive(inputFile.toPath(), threads);
+            for (String name : report.getModified()) {
+                logger.error("Modified: " + name);
+            }
+            for (String name : report.getUnlisted()) {
+                logger.debug("Not recorded: " + name);
+            }
+            logger.info("Verified " + report.getVerified() + " entries, " + report.getModified().size() + " modified, "
+                + report.getMissing() + " missing, " + report.getUnlisted().size() + " not recorded");
+            if (report.isIntact()) {
+                logger.info("Integrity verification passed");
+                return true;
+            }
+            logger.error("Integrity verification FAILED");
+            return false;
+        } catch (Exception e) {
+            logger.error("Integrity verification failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
     private boolean processApplication(RealObfuscationEngine obfuscationEngine, 
                                      RealTamperDetection tamperDetection, 
                                      RealRASProtection raspProtection) {
@@ -282,6 +375,10 @@ public class SimpleAbdalDroidGuard {
                                    RealRASProtection raspProtection) {
         try {
             RealAPKHardener apkHardener = new RealAPKHardener();
+            apkHardener.setThreads(threads);
+            if (cacheDir != null) {
+                apkHardener.setCacheDir(cacheDir.toPath());
+            }
             return apkHardener.hardenAPK(inputFile, outputFile, 
                                         obfuscationEngine, tamperDetection, raspProtection);
         } catch (Exception e) {
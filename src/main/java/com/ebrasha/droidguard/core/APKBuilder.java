@@ -19,9 +19,11 @@ package com.ebrasha.droidguard.core;
 
 import com.ebrasha.droidguard.utils.SimpleLogger;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.zip.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * APK Builder for reconstructing APK with proper structure
@@ -31,22 +33,36 @@ public class APKBuilder {
     
     private final SimpleLogger logger = SimpleLogger.getInstance();
     private final Set<String> addedEntries = new HashSet<>();
+    private int compressionThreads = Runtime.getRuntime().availableProcessors();
     
     /**
      * Build APK from extracted directory
      */
     public boolean buildAPK(File originalAPK, Path extractedDir, Path outputAPK) {
+        try (APKOverlay overlay = new APKOverlay(originalAPK, extractedDir)) {
+            return buildAPK(overlay, outputAPK);
+        } catch (Exception e) {
+            logger.error("APK building failed: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Build APK by merging overlay entries with the untouched original entries
+     */
+    public boolean buildAPK(APKOverlay overlay, Path outputAPK) {
         try {
-            logger.info("Building APK from extracted directory...");
-            logger.info("Original APK: " + originalAPK.getAbsolutePath());
-            logger.info("Extracted directory: " + extractedDir.toString());
+            logger.info("Building APK from overlay...");
+            logger.info("Original APK: " + overlay.getSourceAPK().getAbsolutePath());
+            logger.info("Overlay directory: " + overlay.getOverlayRoot().toString());
             logger.info("Output APK: " + outputAPK.toString());
             
             // Clear added entries
             addedEntries.clear();
             
             // Build APK with proper structure
-            buildAPKWithStructure(originalAPK, extractedDir, outputAPK);
+            buildAPKWithStructure(overlay, outputAPK);
             
             logger.info("APK building completed successfully");
             return true;
@@ -58,131 +74,129 @@ public class APKBuilder {
         }
     }
     
+    /**
+     * Align an existing APK without external tools
+     * Entries keep their compression; STORED entries are padded to 4 bytes and
+     * native libraries to 16 KB pages, the same layout zipalign -p produces
+     */
+    public boolean alignAPK(Path inputAPK, Path outputAPK) {
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(inputAPK);
+             ZipArchiveWriter writer = new ZipArchiveWriter(outputAPK)) {
+            logger.info("Aligning APK: " + inputAPK.toString());
+            for (APKParser.APKEntry entry : source.getEntries()) {
+                writer.copyRawEntry(source, entry);
+            }
+            logger.info("APK aligned successfully: " + writer.getEntryCount() + " entries");
+            return true;
+        } catch (Exception e) {
+            logger.error("APK alignment failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * Build APK with proper structure
      */
-    private void buildAPKWithStructure(File originalAPK, Path extractedDir, Path outputAPK) throws Exception {
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(originalAPK));
-             ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outputAPK.toFile()))) {
+    private void buildAPKWithStructure(APKOverlay overlay, Path outputAPK) throws Exception {
+        try (ZipArchiveWriter zos = new ZipArchiveWriter(outputAPK)) {
 
-            // 1) Copy originals unless overridden in extractedDir
-            copyOriginalEntries(zis, zos, extractedDir); // keep resources.arsc, res/*, classes*.dex, etc.
+            // 1) Copy originals unless overridden in the overlay (raw, no recompression)
+            copyOriginalEntries(overlay, zos); // keep resources.arsc, res/*, classes*.dex, etc.
 
-            // 2) Add modified/new files (except manifest)
-            addModifiedFiles(extractedDir, zos);
+            // 2) Add precompressed replacements and modified/new files (except manifest)
+            addPrecompressedEntries(overlay, zos);
+            addModifiedFiles(overlay.getOverlayRoot(), zos);
 
             // 3) Manifest last, copied as-is (binary)
-            ensureProperManifest(extractedDir, zos);
+            ensureProperManifest(overlay, zos);
 
             // 4) Add hardening markers under assets/ or META-INF/, still within this SAME build
-            addHardeningMarkers(extractedDir, zos);
+            addHardeningMarkers(overlay.getOverlayRoot(), zos);
         }
     }
     
     /**
-     * Copy original entries from APK
+     * Copy original entries straight from the source archive
+     * Compressed bytes are moved as-is, so unchanged entries are never inflated or deflated
      */
-    private void copyOriginalEntries(ZipInputStream zis, ZipOutputStream zos, Path extractedDir) throws Exception {
-        ZipEntry entry;
-        while ((entry = zis.getNextEntry()) != null) {
-            String name = entry.getName();
+    private void copyOriginalEntries(APKOverlay overlay, ZipArchiveWriter zos) throws Exception {
+        ZipCentralDirectory source = overlay.getSource();
+        for (APKParser.APKEntry entry : source.getEntries()) {
+            String name = entry.name;
             
             // Skip manifest - we'll handle it separately
             if (name.equals("AndroidManifest.xml")) {
-                zis.closeEntry();
                 continue;
             }
             
-            // Check if we have a modified version
-            Path modifiedFile = extractedDir.resolve(name);
-            if (Files.exists(modifiedFile) && Files.isRegularFile(modifiedFile)) {
-                // Skip original, we'll add modified version later
-                zis.closeEntry();
+            // Skip original if the overlay has a modified version, we'll add it later
+            if (overlay.isReplaced(name)) {
                 continue;
             }
             
-                // Copy original entry safely
-                ZipEntry newEntry = new ZipEntry(name);
-                newEntry.setMethod(entry.getMethod());
-                newEntry.setTime(entry.getTime());
-                
-                // Only set CRC/size if they are valid (not -1)
-                if (entry.getCrc() != -1) {
-                    newEntry.setCrc(entry.getCrc());
-                }
-                if (entry.getSize() != -1) {
-                    newEntry.setSize(entry.getSize());
-                }
-                if (entry.getCompressedSize() != -1) {
-                    newEntry.setCompressedSize(entry.getCompressedSize());
-                }
-                
-                zos.putNextEntry(newEntry);
-                
-                // Copy data
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = zis.read(buffer)) != -1) {
-                    zos.write(buffer, 0, bytesRead);
-                }
-                
-                zos.closeEntry();
-                addedEntries.add(name);
-                zis.closeEntry();
+            // Copy original entry byte for byte
+            zos.copyRawEntry(source, entry);
+            addedEntries.add(name);
+        }
+    }
+    
+    /**
+     * Add entries that were already compressed, e.g. restored from the hardening cache
+     */
+    private void addPrecompressedEntries(APKOverlay overlay, ZipArchiveWriter zos) throws Exception {
+        long time = ReproducibleBuild.currentTimeMillis();
+        for (ParallelEntryCompressor.CompressedEntry entry : overlay.getPrecompressedEntries()) {
+            zos.writePrecompressedEntry(entry.name, entry.method, time, entry.crc, entry.size,
+                ByteBuffer.wrap(entry.data, 0, entry.length));
+            addedEntries.add(entry.name);
         }
     }
     
     /**
-     * Add modified files from extracted directory
+     * Add modified and new files from the overlay directory
      */
-    private void addModifiedFiles(Path extractedDir, ZipOutputStream zos) throws Exception {
-        Files.walk(extractedDir)
-            .filter(Files::isRegularFile)
-            .forEach(path -> {
-                try {
-                    String entryName = extractedDir.relativize(path).toString().replace("\\", "/");
-                    
-                    // Skip manifest - we'll handle it separately
-                    if (entryName.equals("AndroidManifest.xml")) {
-                        return;
-                    }
-                    
-                    // Skip if already added
-                    if (addedEntries.contains(entryName)) {
-                        return;
-                    }
-                    
-                    // Add ALL files from extracted directory (not just modified ones)
-                    // This ensures UI files, resources, and assets are preserved
-                    addFileAsStored(zos, path, entryName);
-                    addedEntries.add(entryName);
-                    
-                    // Log important file types for debugging
-                    if (isImportantFile(entryName)) {
-                        logger.info("Added important file: " + entryName);
-                    }
-                    
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            });
+    private void addModifiedFiles(Path extractedDir, ZipArchiveWriter zos) throws Exception {
+        List<String> entryNames = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(extractedDir)) {
+            paths.filter(Files::isRegularFile)
+                .map(path -> extractedDir.relativize(path).toString().replace("\\", "/"))
+                // Skip manifest - we'll handle it separately, and anything already added
+                .filter(entryName -> !entryName.equals("AndroidManifest.xml"))
+                .filter(entryName -> !addedEntries.contains(entryName))
+                .forEach(entryNames::add);
+        }
+        
+        // Sorted order keeps the output independent of file system and thread scheduling
+        Collections.sort(entryNames);
+        
+        // Overlay only holds entries a stage changed or added,
+        // untouched originals were already copied from the source
+        new ParallelEntryCompressor(compressionThreads).writeEntries(zos, extractedDir, entryNames);
+        
+        for (String entryName : entryNames) {
+            addedEntries.add(entryName);
+            
+            // Log important file types for debugging
+            if (isImportantFile(entryName)) {
+                logger.info("Added important file: " + entryName);
+            }
+        }
     }
     
     /**
      * Ensure proper manifest
      */
-    private void ensureProperManifest(Path extractedDir, ZipOutputStream zos) throws Exception {
-        Path manifest = extractedDir.resolve("AndroidManifest.xml");
-        if (!Files.exists(manifest)) {
+    private void ensureProperManifest(APKOverlay overlay, ZipArchiveWriter zos) throws Exception {
+        if (!overlay.exists("AndroidManifest.xml")) {
             // Fail fast: never synthesize a fake binary manifest
-            throw new IllegalStateException("Missing AndroidManifest.xml in extracted APK");
+            throw new IllegalStateException("Missing AndroidManifest.xml in APK");
         }
         // Just write the existing (binary) manifest back into the zip.
         logger.info("Adding preserved binary AndroidManifest.xml");
-        ZipEntry e = new ZipEntry("AndroidManifest.xml");
-        zos.putNextEntry(e);
-        Files.copy(manifest, zos);
-        zos.closeEntry();
+        try (InputStream in = overlay.openEntry("AndroidManifest.xml");
+             OutputStream out = zos.openEntry("AndroidManifest.xml", ZipEntry.DEFLATED, ReproducibleBuild.currentTimeMillis())) {
+            in.transferTo(out);
+        }
     }
     
     
@@ -211,9 +225,9 @@ public class APKBuilder {
     /**
      * Add hardening markers
      */
-    private void addHardeningMarkers(Path extractedDir, ZipOutputStream zos) throws Exception {
+    private void addHardeningMarkers(Path extractedDir, ZipArchiveWriter zos) throws Exception {
         // Add hardening markers to assets/
-        String markerContent = "ABDAL_HARDENING_MARKER_" + System.currentTimeMillis();
+        String markerContent = "ABDAL_HARDENING_MARKER_" + ReproducibleBuild.currentTimeMillis();
         addTextAsStored(zos, markerContent, "assets/abdal_hardening.txt");
         
         // Add protection info
@@ -462,7 +476,7 @@ public class APKBuilder {
             zos.putNextEntry(hardeningEntry);
             
             String hardeningInfo = "ABDAL_DROIDGUARD_HARDENING\n" +
-                                  "Timestamp: " + System.currentTimeMillis() + "\n" +
+                                  "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                                   "Version: 1.0.0\n" +
                                   "Author: Ebrahim Shafiei (EbraSha)\n" +
                                   "Email: Prof.Shafiei@Gmail.com\n" +
@@ -484,15 +498,15 @@ public class APKBuilder {
     /**
      * Add file as STORED with proper CRC calculation
      */
-    private void addFileAsStored(ZipOutputStream zos, Path filePath, String entryName) throws IOException {
-        byte[] data = Files.readAllBytes(filePath);
-        addDataAsStored(zos, data, entryName);
+    private void addFileAsStored(ZipArchiveWriter zos, Path filePath, String entryName) throws IOException {
+        // CRC through a chunked mapped read, then a zero-copy transfer; heap use does not grow with file size
+        zos.writeStoredFile(entryName, filePath, ReproducibleBuild.currentTimeMillis());
     }
     
     /**
      * Add text as STORED with proper CRC calculation
      */
-    private void addTextAsStored(ZipOutputStream zos, String text, String entryName) throws IOException {
+    private void addTextAsStored(ZipArchiveWriter zos, String text, String entryName) throws IOException {
         byte[] data = text.getBytes("UTF-8");
         addDataAsStored(zos, data, entryName);
     }
@@ -500,17 +514,15 @@ public class APKBuilder {
     /**
      * Add data as STORED with proper CRC calculation
      */
-    private void addDataAsStored(ZipOutputStream zos, byte[] data, String entryName) throws IOException {
-        CRC32 crc = new CRC32();
-        crc.update(data);
-        ZipEntry entry = new ZipEntry(entryName);
-        entry.setMethod(ZipEntry.STORED);
-        entry.setSize(data.length);
-        entry.setCompressedSize(data.length);
-        entry.setCrc(crc.getValue());
-        zos.putNextEntry(entry);
-        zos.write(data);
-        zos.closeEntry();
+    private void addDataAsStored(ZipArchiveWriter zos, byte[] data, String entryName) throws IOException {
+        zos.writeEntry(entryName, data, ZipEntry.STORED, ReproducibleBuild.currentTimeMillis());
+    }
+    
+    /**
+     * Set number of threads used to compress new and modified entries
+     */
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = Math.max(1, compressionThreads);
     }
     
     /**
@@ -0,0 +1,255 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : APKOverlay.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 10:48:21
+ * Description  : Virtual file system over an APK with a copy-on-write overlay
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Virtual file system over an APK archive
+ * Hardening stages read entries straight from the source archive and write only
+ * the entries they change (or add) into an overlay directory. Untouched entries
+ * never touch the temp disk; APKBuilder merges the overlay with the originals.
+ */
+public class APKOverlay implements Closeable {
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final File sourceAPK;
+    private final ZipCentralDirectory source;
+    private final Path overlayRoot;
+    // Sorted and safe for DEX workers that finish concurrently
+    private final Map<String, ParallelEntryCompressor.CompressedEntry> precompressed = new ConcurrentSkipListMap<>();
+
+    /**
+     * Open APK as a virtual file system backed by the given overlay directory
+     */
+    public APKOverlay(File sourceAPK, Path overlayRoot) throws IOException {
+        this.sourceAPK = sourceAPK;
+        this.overlayRoot = overlayRoot.toAbsolutePath().normalize();
+        Files.createDirectories(this.overlayRoot);
+        this.source = ZipCentralDirectory.open(sourceAPK);
+    }
+
+    /**
+     * Check if entry exists in the overlay or in the source archive
+     */
+    public boolean exists(String name) {
+        if (isOverlaid(name) || precompressed.containsKey(name)) {
+            return true;
+        }
+        APKParser.APKEntry entry = source.getEntry(name);
+        return entry != null && !entry.isDirectory;
+    }
+
+    /**
+     * Check if entry has been written to the overlay
+     */
+    public boolean isOverlaid(String name) {
+        try {
+            return Files.isRegularFile(resolve(name));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check if the original entry is replaced, by an overlay file or a precompressed entry
+     */
+    public boolean isReplaced(String name) {
+        return precompressed.containsKey(name) || isOverlaid(name);
+    }
+
+    /**
+     * Replace entry with already compressed data (e.g. from the hardening cache)
+     * The builder writes it as-is, without compressing it again
+     */
+    public void putPrecompressed(ParallelEntryCompressor.CompressedEntry entry) throws IOException {
+        if (entry.data == null) {
+            throw new IllegalArgumentException("Precompressed entry has no data: " + entry.name);
+        }
+        Files.deleteIfExists(resolve(entry.name));
+        precompressed.put(entry.name, entry);
+    }
+
+    /**
+     * Get precompressed entries in name order
+     */
+    public Collection<ParallelEntryCompressor.CompressedEntry> getPrecompressedEntries() {
+        return Collections.unmodifiableCollection(precompressed.values());
+    }
+
+    /**
+     * Open entry content, preferring the overlay version
+     */
+    public InputStream openEntry(String name) throws IOException {
+        ParallelEntryCompressor.CompressedEntry replacement = precompressed.get(name);
+        if (replacement != null) {
+            InputStream raw = new ByteArrayInputStream(replacement.data, 0, replacement.length);
+            if (replacement.method == ZipEntry.STORED) {
+                return raw;
+            }
+            // Raw inflate may need one trailing dummy byte to finish
+            Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1])), inflater) {
+                private boolean closed = false;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        super.close();
+                        inflater.end();
+                    }
+                }
+            };
+        }
+        Path overlaid = resolve(name);
+        if (Files.isRegularFile(overlaid)) {
+            return Files.newInputStream(overlaid);
+        }
+        APKParser.APKEntry entry = source.getEntry(name);
+        if (entry == null || entry.isDirectory) {
+            throw new FileNotFoundException("Entry not found in APK: " + name);
+        }
+        return source.openEntry(entry);
+    }
+
+    /**
+     * Read entry content, preferring the overlay version
+     */
+    public byte[] readEntry(String name) throws IOException {
+        try (InputStream in = openEntry(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Write entry content into the overlay
+     */
+    public Path writeEntry(String name, byte[] data) throws IOException {
+        Path target = resolve(name);
+        Files.createDirectories(target.getParent());
+        Files.write(target, data);
+        return target;
+    }
+
+    /**
+     * Copy an original entry into the overlay so a stage can edit it in place
+     * Returns the overlay path; entries already in the overlay are returned as-is
+     */
+    public Path materialize(String name) throws IOException {
+        Path target = resolve(name);
+        if (Files.isRegularFile(target)) {
+            return target;
+        }
+        APKParser.APKEntry entry = source.getEntry(name);
+        if (entry == null || entry.isDirectory) {
+            throw new FileNotFoundException("Entry not found in APK: " + name);
+        }
+        Files.createDirectories(target.getParent());
+        try (InputStream in = source.openEntry(entry)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    /**
+     * Drop an overlay entry whose content still matches the original entry
+     * so the builder copies the original instead of rewriting it
+     */
+    public boolean revertIfUnchanged(String name) throws IOException {
+        Path target = resolve(name);
+        APKParser.APKEntry entry = source.getEntry(name);
+        if (entry == null || !Files.isRegularFile(target) || Files.size(target) != entry.size) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(target)) {
+            byte[] buffer = new byte[65536];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+            }
+        }
+        if (crc.getValue() != entry.crc) {
+            return false;
+        }
+        Files.delete(target);
+        logger.debug("Entry unchanged, using original: " + name);
+        return true;
+    }
+
+    /**
+     * Get names of all entries written to the overlay
+     */
+    public List<String> getOverlaidEntries() throws IOException {
+        try (Stream<Path> paths = Files.walk(overlayRoot)) {
+            return paths
+                .filter(Files::isRegularFile)
+                .map(path -> overlayRoot.relativize(path).toString().replace("\\", "/"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Resolve entry name inside the overlay, rejecting names that escape it
+     */
+    public Path resolve(String name) throws IOException {
+        Path resolved = overlayRoot.resolve(name).normalize();
+        if (!resolved.startsWith(overlayRoot)) {
+            throw new IOException("Entry escapes overlay directory: " + name);
+        }
+        return resolved;
+    }
+
+    /**
+     * Get overlay root directory
+     */
+    public Path getOverlayRoot() {
+        return overlayRoot;
+    }
+
+    /**
+     * Get source archive central directory
+     */
+    public ZipCentralDirectory getSource() {
+        return source;
+    }
+
+    /**
+     * Get source APK file
+     */
+    public File getSourceAPK() {
+        return sourceAPK;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -47,9 +47,15 @@ public class APKParser {
         public final int method;
         public final long time;
         public final boolean isDirectory;
+        public final long localHeaderOffset;
         
         public APKEntry(String name, long size, long compressedSize, long crc, 
                        int method, long time, boolean isDirectory) {
+            this(name, size, compressedSize, crc, method, time, isDirectory, -1);
+        }
+        
+        public APKEntry(String name, long size, long compressedSize, long crc, 
+                       int method, long time, boolean isDirectory, long localHeaderOffset) {
             this.name = name;
             this.size = size;
             this.compressedSize = compressedSize;
@@ -57,6 +63,7 @@ public class APKParser {
             this.method = method;
             this.time = time;
             this.isDirectory = isDirectory;
+            this.localHeaderOffset = localHeaderOffset;
         }
     }
     
@@ -73,21 +80,10 @@ public class APKParser {
             resources.clear();
             manifestPath = null;
             
-            try (ZipInputStream zis = new ZipInputStream(new FileInputStream(apkFile))) {
-                ZipEntry entry;
-                while ((entry = zis.getNextEntry()) != null) {
-                    String name = entry.getName();
-                    
-                    // Create APK entry
-                    APKEntry apkEntry = new APKEntry(
-                        name,
-                        entry.getSize(),
-                        entry.getCompressedSize(),
-                        entry.getCrc(),
-                        entry.getMethod(),
-                        entry.getTime(),
-                        entry.isDirectory()
-                    );
+            // Read entry metadata from the central directory (no entry data is inflated)
+            try (ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(apkFile)) {
+                for (APKEntry apkEntry : centralDirectory.getEntries()) {
+                    String name = apkEntry.name;
                     
                     entries.put(name, apkEntry);
                     
@@ -105,8 +101,6 @@ public class APKParser {
                               name.startsWith("META-INF/") || name.endsWith(".arsc")) {
                         resources.add(name);
                     }
-                    
-                    zis.closeEntry();
                 }
             }
             
@@ -102,48 +102,10 @@ public class APKSigner {
         // Create temporary aligned APK
         Path alignedAPK = Files.createTempFile("abdal_aligned_", ".apk");
         
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(inputAPK.toFile()));
-             ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(alignedAPK.toFile()))) {
-            
-            // Set compression level to 0 for alignment
-            zos.setLevel(0);
-            
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                String name = entry.getName();
-                
-                // Create new entry with proper alignment
-                ZipEntry newEntry = new ZipEntry(name);
-                newEntry.setMethod(ZipEntry.STORED); // No compression for alignment
-                newEntry.setTime(entry.getTime());
-                
-                // Only set CRC if it's valid (not -1)
-                if (entry.getCrc() != -1) {
-                    newEntry.setCrc(entry.getCrc());
-                }
-                
-                // Only set size if it's valid (not -1)
-                if (entry.getSize() != -1) {
-                    newEntry.setSize(entry.getSize());
-                }
-                
-                // Only set compressed size if it's valid (not -1)
-                if (entry.getCompressedSize() != -1) {
-                    newEntry.setCompressedSize(entry.getCompressedSize());
-                }
-                
-                zos.putNextEntry(newEntry);
-                
-                // Copy data
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = zis.read(buffer)) != -1) {
-                    zos.write(buffer, 0, bytesRead);
-                }
-                
-                zos.closeEntry();
-                zis.closeEntry();
-            }
+        // Built-in aligner: keeps compression, pads STORED entries and native libraries
+        if (!new APKBuilder().alignAPK(inputAPK, alignedAPK)) {
+            Files.deleteIfExists(alignedAPK);
+            throw new IOException("APK alignment failed: " + inputAPK);
         }
         
         logger.info("APK alignment completed");
@@ -155,7 +117,16 @@ public class APKSigner {
      */
     private boolean signAPK(Path inputAPK, Path outputAPK) throws Exception {
         logger.info("Signing APK...");
-        
+
+        // A throwaway key and signing time differ on every run, so reproducible
+        // builds emit the aligned unsigned APK to be signed with the release key
+        if (ReproducibleBuild.isEnabled()) {
+            logger.info("Reproducible build: skipping throwaway-key signing, sign the output with your release key");
+            Path alignedAPK = alignAPK(inputAPK);
+            Files.move(alignedAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        }
+
         // Try apksigner first (v2/v3 signing)
         if (tryApksignerSigning(inputAPK, outputAPK)) {
             logger.info("APK signed with apksigner (v2/v3)");
@@ -342,7 +313,7 @@ public class APKSigner {
         manifest.append("Created-By: Abdal DroidGuard v1.0.0\n");
         manifest.append("Author: Ebrahim Shafiei (EbraSha)\n");
         manifest.append("Email: Prof.Shafiei@Gmail.com\n");
-        manifest.append("Timestamp: ").append(System.currentTimeMillis()).append("\n");
+        manifest.append("Timestamp: ").append(ReproducibleBuild.currentTimeMillis()).append("\n");
         manifest.append("\n");
         
         // Add basic entries
@@ -596,8 +567,15 @@ public class APKSigner {
             Files.deleteIfExists(keystorePath);
             
             if (exitCode == 0) {
-                // Copy signed APK to output
-                Files.copy(inputAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
+                // jarsigner rewrites the archive without alignment; v1 signatures
+                // survive re-alignment, so align the signed APK into the output
+                try {
+                    Path alignedAPK = alignAPK(inputAPK);
+                    Files.move(alignedAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
+                } catch (Exception e) {
+                    logger.warn("Alignment after jarsigner failed, keeping unaligned APK: " + e.getMessage());
+                    Files.copy(inputAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
+                }
                 return true;
             } else {
                 logger.error("jarsigner failed with exit code: " + exitCode);
@@ -645,7 +623,7 @@ public class APKSigner {
         manifest.append("Created-By: Abdal DroidGuard v1.0.0\n");
         manifest.append("Author: Ebrahim Shafiei (EbraSha)\n");
         manifest.append("Email: Prof.Shafiei@Gmail.com\n");
-        manifest.append("Timestamp: ").append(System.currentTimeMillis()).append("\n");
+        manifest.append("Timestamp: ").append(ReproducibleBuild.currentTimeMillis()).append("\n");
         manifest.append("\n");
         
         // Add entries for each file in APK
@@ -673,7 +651,7 @@ public class APKSigner {
         signature.append("Created-By: Abdal DroidGuard v1.0.0\n");
         signature.append("Author: Ebrahim Shafiei (EbraSha)\n");
         signature.append("Email: Prof.Shafiei@Gmail.com\n");
-        signature.append("Timestamp: ").append(System.currentTimeMillis()).append("\n");
+        signature.append("Timestamp: ").append(ReproducibleBuild.currentTimeMillis()).append("\n");
         signature.append("\n");
         
         // Add signature for each file
@@ -700,7 +678,7 @@ public class APKSigner {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         
         // Add signature data
-        String signatureData = "ABDAL_SIGNATURE_BLOCK_" + System.currentTimeMillis();
+        String signatureData = "ABDAL_SIGNATURE_BLOCK_" + ReproducibleBuild.currentTimeMillis();
         baos.write(signatureData.getBytes("UTF-8"));
         
         // Add key information
@@ -720,7 +698,7 @@ public class APKSigner {
             byte[] hash = digest.digest(fileName.getBytes("UTF-8"));
             return Base64.getEncoder().encodeToString(hash);
         } catch (Exception e) {
-            return "ABDAL_DIGEST_" + System.currentTimeMillis();
+            return "ABDAL_DIGEST_" + ReproducibleBuild.currentTimeMillis();
         }
     }
     
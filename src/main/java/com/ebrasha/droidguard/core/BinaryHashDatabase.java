@@ -0,0 +1,312 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : BinaryHashDatabase.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 01:21:09
+ * Description  : Memory-mappable binary hash database with O(log n) path lookup
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.ZipEntry;
+
+/**
+ * Binary integrity hash database
+ * Layout (big-endian): a 16 byte header (magic "ADGH", u16 version, u8
+ * algorithm id, u8 digest length, i32 entry count, i32 reserved), a table of
+ * 64-bit FNV-1a hashes of the UTF-8 entry paths sorted as signed longs, then
+ * the raw digests in the same order. Lookups binary-search the path hash
+ * table directly in the (memory-mapped) buffer and compare the digest in
+ * place, so nothing is parsed or allocated per lookup.
+ */
+public class BinaryHashDatabase {
+
+    public static final int MAGIC = 0x41444748; // "ADGH"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final String DATABASE_ENTRY = "assets/hash_database.bin";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int digestLength;
+    private final String algorithm;
+
+    /**
+     * Result of verifying an archive against its embedded database
+     */
+    public static class Report {
+        private final List<String> modified = new ArrayList<>();
+        private final List<String> unlisted = new ArrayList<>();
+        private int verified;
+        private int missing;
+
+        /**
+         * Entries whose content no longer matches the recorded digest
+         */
+        public List<String> getModified() {
+            return modified;
+        }
+
+        /**
+         * Entries without a record, e.g. files added after hashing; JAR signature files are not checked
+         */
+        public List<String> getUnlisted() {
+            return unlisted;
+        }
+
+        public int getVerified() {
+            return verified;
+        }
+
+        /**
+         * Number of recorded entries that are no longer in the archive
+         */
+        public int getMissing() {
+            return missing;
+        }
+
+        public boolean isIntact() {
+            return modified.isEmpty() && missing == 0;
+        }
+    }
+
+    private BinaryHashDatabase(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary hash database");
+        }
+        int version = buffer.getShort(4) & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported hash database version: " + version);
+        }
+        this.algorithm = algorithmName(buffer.get(6) & 0xFF);
+        this.digestLength = buffer.get(7) & 0xFF;
+        this.count = buffer.getInt(8);
+        if (count < 0 || (long) HEADER_SIZE + (long) count * (8 + digestLength) > buffer.capacity()) {
+            throw new IOException("Corrupt hash database header");
+        }
+    }
+
+    /**
+     * Encode digests keyed by entry path
+     * @throws IllegalArgumentException on mixed digest lengths or a 64-bit path hash collision
+     */
+    public static byte[] encode(Map<String, byte[]> digests, String algorithm) {
+        int id = algorithmId(algorithm);
+        long[] hashes = new long[digests.size()];
+        Map<Long, byte[]> byHash = new HashMap<>();
+        int digestLength = -1;
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            if (digestLength >= 0 && entry.getValue().length != digestLength) {
+                throw new IllegalArgumentException("Mixed digest lengths in hash database");
+            }
+            digestLength = entry.getValue().length;
+            long hash = pathHash(entry.getKey());
+            if (byHash.put(hash, entry.getValue()) != null) {
+                throw new IllegalArgumentException("Path hash collision in hash database: " + entry.getKey());
+            }
+            hashes[i++] = hash;
+        }
+        if (digestLength < 0) {
+            digestLength = 0;
+        }
+        Arrays.sort(hashes);
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + hashes.length * (8 + digestLength));
+        out.putInt(MAGIC);
+        out.putShort((short) VERSION);
+        out.put((byte) id);
+        out.put((byte) digestLength);
+        out.putInt(hashes.length);
+        out.putInt(0);
+        for (long hash : hashes) {
+            out.putLong(hash);
+        }
+        for (long hash : hashes) {
+            out.put(byHash.get(hash));
+        }
+        return out.array();
+    }
+
+    /**
+     * Memory-map a database file
+     */
+    public static BinaryHashDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new BinaryHashDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Open the database embedded in an archive
+     * A stored entry is memory-mapped in place; a deflated one is inflated once into memory.
+     */
+    public static BinaryHashDatabase open(ZipCentralDirectory source) throws IOException {
+        APKParser.APKEntry entry = source.getEntry(DATABASE_ENTRY);
+        if (entry == null || entry.isDirectory) {
+            throw new FileNotFoundException("No hash database in archive: " + DATABASE_ENTRY);
+        }
+        if (entry.method == ZipEntry.STORED) {
+            return new BinaryHashDatabase(source.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                source.getDataOffset(entry), entry.size));
+        }
+        try (InputStream in = source.openEntry(entry)) {
+            return wrap(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Read database from memory
+     */
+    public static BinaryHashDatabase wrap(byte[] data) throws IOException {
+        return new BinaryHashDatabase(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Find record index of a path, or -1
+     */
+    public int indexOf(String path) {
+        long hash = pathHash(path);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = buffer.getLong(HEADER_SIZE + middle * 8);
+            if (value < hash) {
+                low = middle + 1;
+            } else if (value > hash) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check that a path is recorded with the given digest, comparing in place
+     */
+    public boolean matches(String path, byte[] digest) {
+        int index = indexOf(path);
+        if (index < 0 || digest.length != digestLength) {
+            return false;
+        }
+        int base = digestOffset(index);
+        int difference = 0;
+        for (int i = 0; i < digestLength; i++) {
+            difference |= buffer.get(base + i) ^ digest[i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Get recorded digest of a path, or null
+     */
+    public byte[] get(String path) {
+        int index = indexOf(path);
+        if (index < 0) {
+            return null;
+        }
+        byte[] digest = new byte[digestLength];
+        buffer.get(digestOffset(index), digest);
+        return digest;
+    }
+
+    /**
+     * Verify every entry of an archive against the database embedded in it
+     */
+    public static Report verifyArchive(Path archive, int threads) throws IOException {
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(archive)) {
+            BinaryHashDatabase database = open(source);
+            SortedMap<String, byte[]> actual = new ParallelFileHasher(threads, database.algorithm).hashArchive(source);
+            Report report = new Report();
+            for (Map.Entry<String, byte[]> entry : actual.entrySet()) {
+                if (database.indexOf(entry.getKey()) < 0) {
+                    report.unlisted.add(entry.getKey());
+                } else if (database.matches(entry.getKey(), entry.getValue())) {
+                    report.verified++;
+                } else {
+                    report.modified.add(entry.getKey());
+                }
+            }
+            report.missing = database.count - report.verified - report.modified.size();
+            return report;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes of a path, encoded on the fly without allocating
+     */
+    public static long pathHash(String path) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < path.length(); i++) {
+            int c = path.codePointAt(i);
+            if (Character.isSupplementaryCodePoint(c)) {
+                i++;
+            }
+            if (c < 0x80) {
+                hash = (hash ^ c) * FNV_PRIME;
+            } else if (c < 0x800) {
+                hash = (hash ^ (0xC0 | (c >> 6))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+            } else if (c < 0x10000) {
+                hash = (hash ^ (0xE0 | (c >> 12))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((c >> 6) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+            } else {
+                hash = (hash ^ (0xF0 | (c >> 18))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((c >> 12) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | ((c >> 6) & 0x3F))) * FNV_PRIME;
+                hash = (hash ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private int digestOffset(int index) {
+        return HEADER_SIZE + count * 8 + index * digestLength;
+    }
+
+    private static int algorithmId(String algorithm) {
+        return DigestEngine.forName(algorithm).getId();
+    }
+
+    private static String algorithmName(int id) throws IOException {
+        try {
+            return DigestEngine.forId(id).getName();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown hash database algorithm id: " + id, e);
+        }
+    }
+}
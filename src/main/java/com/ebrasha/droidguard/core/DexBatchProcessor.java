@@ -0,0 +1,192 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexBatchProcessor.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 17:12:40
+ * Description  : Concurrent processing of multi-dex files with merged stats
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a task for every DEX file of a multi-dex APK on a bounded thread pool
+ * A failure in one DEX file is logged and counted but does not stop the
+ * others. Per-file results are merged into one Stats object in the order the
+ * files were given, so the summary does not depend on thread scheduling.
+ */
+public class DexBatchProcessor {
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final int threads;
+
+    /**
+     * Result of processing a single DEX file
+     */
+    public enum Outcome {
+        MODIFIED, UNCHANGED, CACHED, FAILED
+    }
+
+    /**
+     * Work done for one DEX file
+     */
+    public interface DexTask {
+        Outcome process(String dexName) throws Exception;
+    }
+
+    /**
+     * Merged statistics of a batch
+     */
+    public static class Stats {
+        private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+        private final EnumMap<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+        private long totalMillis = 0;
+        private long wallMillis = 0;
+        private String slowestDex = null;
+        private long slowestMillis = 0;
+
+        void add(String dexName, Outcome outcome, long millis) {
+            outcomes.put(dexName, outcome);
+            counts.merge(outcome, 1, Integer::sum);
+            totalMillis += millis;
+            if (slowestDex == null || millis > slowestMillis) {
+                slowestDex = dexName;
+                slowestMillis = millis;
+            }
+        }
+
+        public int getCount(Outcome outcome) {
+            return counts.getOrDefault(outcome, 0);
+        }
+
+        public int getTotal() {
+            return outcomes.size();
+        }
+
+        public int getSucceeded() {
+            return getTotal() - getCount(Outcome.FAILED);
+        }
+
+        public Map<String, Outcome> getOutcomes() {
+            return Collections.unmodifiableMap(outcomes);
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public String getSlowestDex() {
+            return slowestDex;
+        }
+
+        public long getSlowestMillis() {
+            return slowestMillis;
+        }
+    }
+
+    /**
+     * Create processor using the given number of worker threads
+     */
+    public DexBatchProcessor(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Process all DEX files and wait for every one of them to finish
+     */
+    public Stats run(List<String> dexNames, DexTask task) {
+        Stats stats = new Stats();
+        if (dexNames.isEmpty()) {
+            return stats;
+        }
+        long start = System.nanoTime();
+        int workers = Math.min(threads, dexNames.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "abdal-dex");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<TaskResult>> results = new ArrayList<>();
+            for (String dexName : dexNames) {
+                results.add(executor.submit(() -> runIsolated(task, dexName)));
+            }
+            // Merge in input order once each task is done
+            for (int i = 0; i < dexNames.size(); i++) {
+                TaskResult result = await(results.get(i));
+                stats.add(dexNames.get(i), result.outcome, result.millis);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        stats.wallMillis = (System.nanoTime() - start) / 1000000L;
+
+        logger.info("DEX batch: " + stats.getSucceeded() + "/" + stats.getTotal() + " succeeded ("
+            + stats.getCount(Outcome.MODIFIED) + " modified, " + stats.getCount(Outcome.UNCHANGED) + " unchanged, "
+            + stats.getCount(Outcome.CACHED) + " cached, " + stats.getCount(Outcome.FAILED) + " failed) on "
+            + workers + " threads");
+        logger.info("DEX batch time: " + stats.getWallMillis() + " ms wall, " + stats.getTotalMillis()
+            + " ms total, slowest " + stats.getSlowestDex() + " (" + stats.getSlowestMillis() + " ms)");
+        return stats;
+    }
+
+    /**
+     * Wait for a task, a task that could not complete counts as failed
+     */
+    private TaskResult await(Future<TaskResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new TaskResult(Outcome.FAILED, 0);
+        } catch (ExecutionException e) {
+            // runIsolated catches task exceptions, only errors end up here
+            logger.error("DEX task failed: " + e.getCause());
+            return new TaskResult(Outcome.FAILED, 0);
+        }
+    }
+
+    /**
+     * Run task for one DEX file, turning any failure into a FAILED outcome
+     */
+    private TaskResult runIsolated(DexTask task, String dexName) {
+        long start = System.nanoTime();
+        Outcome outcome;
+        try {
+            outcome = task.process(dexName);
+            if (outcome == null) {
+                outcome = Outcome.FAILED;
+            }
+        } catch (Exception e) {
+            logger.error("Error processing " + dexName + ": " + e.getMessage());
+            outcome = Outcome.FAILED;
+        }
+        return new TaskResult(outcome, (System.nanoTime() - start) / 1000000L);
+    }
+
+    private static class TaskResult {
+        final Outcome outcome;
+        final long millis;
+
+        TaskResult(Outcome outcome, long millis) {
+            this.outcome = outcome;
+            this.millis = millis;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexBuffer.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 16:21:55
+ * Description  : Memory-mapped copy-on-write view of a DEX file
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Memory-mapped, copy-on-write view of a DEX file shared by all obfuscation passes
+ * The original file is mapped read-only. Writes copy only the touched 4 KB pages
+ * into a patch table, and data added past the end goes into a tail buffer, so
+ * peak heap use is the patched pages plus the tail instead of full DEX copies.
+ * A mapping is only released when it is garbage collected and a mapped file
+ * cannot be deleted on Windows, so files that are deleted after processing are
+ * read with load() instead.
+ */
+public class DexBuffer {
+
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * Receives consecutive regions of the patched DEX
+     */
+    public interface RegionConsumer {
+        void accept(ByteBuffer region) throws IOException;
+    }
+
+    private final Path source;
+    private final ByteBuffer original;
+    private final int originalSize;
+    // Patched copy of each page indexed by page number, null while the page is clean
+    private final byte[][] dirtyPages;
+    private int dirtyPageCount;
+    private final ByteArrayOutputStream tail = new ByteArrayOutputStream();
+    private byte[] tailSnapshot = new byte[0];
+
+    private DexBuffer(Path source, ByteBuffer original) {
+        this.source = source;
+        this.original = original;
+        this.originalSize = original.capacity();
+        this.dirtyPages = new byte[(originalSize + PAGE_MASK) >> PAGE_SHIFT][];
+    }
+
+    /**
+     * Map DEX file read-only
+     */
+    public static DexBuffer open(Path dexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(dexFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("DEX file too large: " + dexFile);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new DexBuffer(dexFile, mapped);
+        }
+    }
+
+    /**
+     * Read DEX file into the heap, writes back to it still patch it in place
+     * Use this for temporary files that are deleted afterwards.
+     */
+    public static DexBuffer load(Path dexFile) throws IOException {
+        if (Files.size(dexFile) > Integer.MAX_VALUE) {
+            throw new IOException("DEX file too large: " + dexFile);
+        }
+        return new DexBuffer(dexFile, ByteBuffer.wrap(Files.readAllBytes(dexFile)).asReadOnlyBuffer());
+    }
+
+    /**
+     * Wrap DEX data held in memory
+     */
+    public static DexBuffer wrap(byte[] data) {
+        return new DexBuffer(null, ByteBuffer.wrap(data).asReadOnlyBuffer());
+    }
+
+    /**
+     * Get current size including appended data
+     */
+    public int size() {
+        return originalSize + tail.size();
+    }
+
+    /**
+     * Get size of the original file
+     */
+    public int getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * Read byte at offset
+     */
+    public byte get(int offset) {
+        if (offset >= originalSize) {
+            return tailBytes()[offset - originalSize];
+        }
+        byte[] page = dirtyPages[offset >> PAGE_SHIFT];
+        return page != null ? page[offset & PAGE_MASK] : original.get(offset);
+    }
+
+    /**
+     * Read little-endian unsigned short at offset
+     */
+    public int getUnsignedShort(int offset) {
+        return (get(offset) & 0xFF) | ((get(offset + 1) & 0xFF) << 8);
+    }
+
+    /**
+     * Read little-endian int at offset
+     */
+    public int getInt(int offset) {
+        return (get(offset) & 0xFF)
+            | ((get(offset + 1) & 0xFF) << 8)
+            | ((get(offset + 2) & 0xFF) << 16)
+            | ((get(offset + 3) & 0xFF) << 24);
+    }
+
+    /**
+     * Copy bytes starting at offset into destination
+     */
+    public void get(int offset, byte[] destination, int destinationOffset, int length) {
+        checkRange(offset, length);
+        int end = offset + length;
+        int pos = offset;
+        while (pos < end && pos < originalSize) {
+            int pageIndex = pos >> PAGE_SHIFT;
+            int pageEnd = Math.min(Math.min((pageIndex + 1) << PAGE_SHIFT, originalSize), end);
+            int count = pageEnd - pos;
+            byte[] page = dirtyPages[pageIndex];
+            if (page != null) {
+                System.arraycopy(page, pos & PAGE_MASK, destination, destinationOffset + pos - offset, count);
+            } else {
+                original.get(pos, destination, destinationOffset + pos - offset, count);
+            }
+            pos = pageEnd;
+        }
+        if (pos < end) {
+            System.arraycopy(tailBytes(), pos - originalSize, destination, destinationOffset + pos - offset, end - pos);
+        }
+    }
+
+    /**
+     * Read a range of bytes
+     */
+    public byte[] getBytes(int offset, int length) {
+        byte[] result = new byte[length];
+        get(offset, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Write single byte at offset
+     */
+    public void put(int offset, byte value) {
+        put(offset, new byte[]{value}, 0, 1);
+    }
+
+    /**
+     * Write little-endian int at offset
+     */
+    public void putInt(int offset, int value) {
+        put(offset, new byte[]{(byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24)}, 0, 4);
+    }
+
+    /**
+     * Write bytes at offset, copying touched pages on first write
+     */
+    public void put(int offset, byte[] data) {
+        put(offset, data, 0, data.length);
+    }
+
+    /**
+     * Write bytes at offset, copying touched pages on first write
+     */
+    public void put(int offset, byte[] data, int dataOffset, int length) {
+        checkRange(offset, length);
+        int end = offset + length;
+        int pos = offset;
+        while (pos < end && pos < originalSize) {
+            int pageIndex = pos >> PAGE_SHIFT;
+            int pageEnd = Math.min(Math.min((pageIndex + 1) << PAGE_SHIFT, originalSize), end);
+            byte[] page = dirtyPage(pageIndex);
+            System.arraycopy(data, dataOffset + pos - offset, page, pos & PAGE_MASK, pageEnd - pos);
+            pos = pageEnd;
+        }
+        if (pos < end) {
+            // Rewrite inside the appended tail
+            byte[] tailData = tail.toByteArray();
+            System.arraycopy(data, dataOffset + pos - offset, tailData, pos - originalSize, end - pos);
+            tail.reset();
+            tail.write(tailData, 0, tailData.length);
+            tailSnapshot = null;
+        }
+    }
+
+    /**
+     * Append data after the current end
+     */
+    public void append(byte[] data) {
+        tail.write(data, 0, data.length);
+        tailSnapshot = null;
+    }
+
+    /**
+     * Find first occurrence of pattern at or after fromIndex, -1 if not found
+     */
+    public int indexOf(byte[] pattern, int fromIndex) {
+        int size = size();
+        if (pattern.length == 0) {
+            return Math.min(Math.max(fromIndex, 0), size);
+        }
+        byte first = pattern[0];
+        int last = size - pattern.length;
+        for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+            if (get(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && get(i + j) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if any byte was changed or appended
+     */
+    public boolean isModified() {
+        return dirtyPageCount > 0 || tail.size() > 0;
+    }
+
+    /**
+     * Get number of pages copied for patching
+     */
+    public int getDirtyPageCount() {
+        return dirtyPageCount;
+    }
+
+    /**
+     * Write the patched DEX
+     * When writing back to the mapped source, only dirty pages and the tail are
+     * written. Nothing is written when the data is unchanged.
+     */
+    public boolean writeTo(Path target) throws IOException {
+        if (source != null && Files.exists(target) && Files.isSameFile(source, target)) {
+            if (!isModified()) {
+                return false;
+            }
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                for (int pageIndex = nextDirtyPage(0); pageIndex >= 0; pageIndex = nextDirtyPage(pageIndex + 1)) {
+                    long position = (long) pageIndex << PAGE_SHIFT;
+                    int length = (int) Math.min(PAGE_SIZE, originalSize - position);
+                    writeFully(channel, ByteBuffer.wrap(dirtyPages[pageIndex], 0, length), position);
+                }
+                writeFully(channel, ByteBuffer.wrap(tailBytes()), originalSize);
+            }
+            return true;
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 65536)) {
+            writeTo(out);
+        }
+        return true;
+    }
+
+    /**
+     * Stream the patched DEX
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[PAGE_SIZE];
+        for (int pos = 0; pos < originalSize; pos += PAGE_SIZE) {
+            int length = Math.min(PAGE_SIZE, originalSize - pos);
+            byte[] page = dirtyPages[pos >> PAGE_SHIFT];
+            if (page != null) {
+                out.write(page, 0, length);
+            } else {
+                original.get(pos, buffer, 0, length);
+                out.write(buffer, 0, length);
+            }
+        }
+        tail.writeTo(out);
+    }
+
+    /**
+     * Pass the patched content from offset to the end as consecutive read-only
+     * regions without copying: unpatched runs are slices of the mapping,
+     * patched pages and the tail are wrapped as they are
+     */
+    public void forEachRegion(int offset, RegionConsumer consumer) throws IOException {
+        checkRange(offset, 0);
+        int pos = offset;
+        while (pos < originalSize) {
+            int pageIndex = pos >> PAGE_SHIFT;
+            byte[] page = dirtyPages[pageIndex];
+            if (page != null) {
+                int pageEnd = Math.min((pageIndex + 1) << PAGE_SHIFT, originalSize);
+                consumer.accept(ByteBuffer.wrap(page, pos & PAGE_MASK, pageEnd - pos).asReadOnlyBuffer());
+                pos = pageEnd;
+            } else {
+                // Extend the clean run up to the next patched page
+                int nextDirty = nextDirtyPage(pageIndex + 1);
+                int runEnd = nextDirty < 0 ? originalSize : Math.min(nextDirty << PAGE_SHIFT, originalSize);
+                consumer.accept(original.slice(pos, runEnd - pos));
+                pos = runEnd;
+            }
+        }
+        if (tail.size() > 0) {
+            byte[] tailData = tailBytes();
+            int start = Math.max(0, pos - originalSize);
+            consumer.accept(ByteBuffer.wrap(tailData, start, tailData.length - start).asReadOnlyBuffer());
+        }
+    }
+
+    /**
+     * Copy patched DEX into a new array
+     */
+    public byte[] toByteArray() {
+        return getBytes(0, size());
+    }
+
+    private byte[] dirtyPage(int pageIndex) {
+        byte[] page = dirtyPages[pageIndex];
+        if (page == null) {
+            page = new byte[PAGE_SIZE];
+            int start = pageIndex << PAGE_SHIFT;
+            original.get(start, page, 0, Math.min(PAGE_SIZE, originalSize - start));
+            dirtyPages[pageIndex] = page;
+            dirtyPageCount++;
+        }
+        return page;
+    }
+
+    private int nextDirtyPage(int fromIndex) {
+        if (dirtyPageCount > 0) {
+            for (int i = fromIndex; i < dirtyPages.length; i++) {
+                if (dirtyPages[i] != null) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private byte[] tailBytes() {
+        if (tailSnapshot == null) {
+            tailSnapshot = tail.toByteArray();
+        }
+        return tailSnapshot;
+    }
+
+    private void checkRange(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > size() - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") outside DEX of size " + size());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexChecksum.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 20:05:33
+ * Description  : Single-pass DEX signature and checksum finalizer
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+/**
+ * Recomputes the DEX header signature and checksum in one streaming pass
+ * The SHA-1 signature covers bytes 32..end and the Adler-32 checksum covers
+ * bytes 12..end, which includes the signature itself. Both digests are fed
+ * from the same read of 32..end; the checksum of the fresh 20 byte signature
+ * is then combined with the checksum of the rest (as zlib's adler32_combine
+ * does), so the file is read exactly once.
+ */
+public final class DexChecksum {
+
+    private static final int ADLER_BASE = 65521;
+
+    private DexChecksum() {
+    }
+
+    /**
+     * Computed header values
+     */
+    public static class Result {
+        public final byte[] signature;
+        public final int checksum;
+
+        Result(byte[] signature, int checksum) {
+            this.signature = signature;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Compute signature and checksum of the DEX as it is now
+     */
+    public static Result compute(DexBuffer dex) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 not available", e);
+        }
+        Adler32 bodyAdler = new Adler32();
+        dex.forEachRegion(DexFile.FILE_SIZE_OFFSET, region -> {
+            sha1.update(region.duplicate());
+            bodyAdler.update(region);
+        });
+        byte[] signature = sha1.digest();
+
+        Adler32 signatureAdler = new Adler32();
+        signatureAdler.update(signature);
+        long bodyLength = (long) dex.size() - DexFile.FILE_SIZE_OFFSET;
+        int checksum = (int) combineAdler32(signatureAdler.getValue(), bodyAdler.getValue(), bodyLength);
+        return new Result(signature, checksum);
+    }
+
+    /**
+     * Set file_size, signature and checksum in the header
+     * Meant to run once, after the last pass that changes the DEX.
+     */
+    public static void finalizeHeader(DexBuffer dex) throws IOException {
+        if (dex.getInt(DexFile.FILE_SIZE_OFFSET) != dex.size()) {
+            dex.putInt(DexFile.FILE_SIZE_OFFSET, dex.size());
+        }
+        Result result = compute(dex);
+        dex.put(DexFile.SIGNATURE_OFFSET, result.signature);
+        dex.putInt(DexFile.CHECKSUM_OFFSET, result.checksum);
+    }
+
+    /**
+     * Check stored signature and checksum against the content
+     */
+    public static boolean verify(DexBuffer dex) throws IOException {
+        Result result = compute(dex);
+        return dex.getInt(DexFile.CHECKSUM_OFFSET) == result.checksum
+            && Arrays.equals(dex.getBytes(DexFile.SIGNATURE_OFFSET, result.signature.length), result.signature);
+    }
+
+    /**
+     * Adler-32 of A followed by B, given the checksums of A and B and the length of B
+     */
+    static long combineAdler32(long adlerA, long adlerB, long lengthB) {
+        long remainder = lengthB % ADLER_BASE;
+        long sum1 = adlerA & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adlerB & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adlerA >>> 16) & 0xFFFF) + ((adlerB >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexFile.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 18:47:20
+ * Description  : Lazily decoded, index based model of DEX file sections
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Index based view of a DEX file on top of a DexBuffer
+ * Only the 0x70 byte header is parsed up front. The map_list is read on first
+ * use and string_ids, type_ids, method_ids, field_ids and class_defs entries
+ * are decoded one record at a time when they are accessed, so looking up a
+ * single identifier costs a few reads instead of a scan over the whole file.
+ */
+public class DexFile {
+
+    public static final int HEADER_SIZE = 0x70;
+    public static final int ENDIAN_CONSTANT = 0x12345678;
+
+    // Header offsets
+    static final int CHECKSUM_OFFSET = 8;
+    static final int SIGNATURE_OFFSET = 12;
+    static final int FILE_SIZE_OFFSET = 32;
+    private static final int HEADER_SIZE_OFFSET = 36;
+    private static final int ENDIAN_TAG_OFFSET = 40;
+    private static final int MAP_OFF_OFFSET = 52;
+    private static final int STRING_IDS_OFFSET = 56;
+    private static final int TYPE_IDS_OFFSET = 64;
+    private static final int PROTO_IDS_OFFSET = 72;
+    private static final int FIELD_IDS_OFFSET = 80;
+    private static final int METHOD_IDS_OFFSET = 88;
+    private static final int CLASS_DEFS_OFFSET = 96;
+    static final int DATA_OFFSET = 104;
+
+    private static final int CLASS_DEF_SIZE = 32;
+    public static final int NO_INDEX = -1;
+
+    private final DexBuffer buffer;
+    private final String version;
+    private final int stringIdsSize;
+    private final int stringIdsOff;
+    private final int typeIdsSize;
+    private final int typeIdsOff;
+    private final int protoIdsSize;
+    private final int fieldIdsSize;
+    private final int fieldIdsOff;
+    private final int methodIdsSize;
+    private final int methodIdsOff;
+    private final int classDefsSize;
+    private final int classDefsOff;
+    private final int mapOff;
+    private List<MapItem> mapItems;
+    private DexStringPool stringPool;
+
+    /**
+     * Entry of the map_list describing one section
+     */
+    public static class MapItem {
+        public final int type;
+        public final int size;
+        public final int offset;
+
+        MapItem(int type, int size, int offset) {
+            this.type = type;
+            this.size = size;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Parse header of the DEX held by the buffer
+     */
+    public DexFile(DexBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (!isDex(buffer)) {
+            throw new IOException("Not a DEX file");
+        }
+        version = new String(buffer.getBytes(4, 3), StandardCharsets.US_ASCII);
+        if (buffer.getInt(ENDIAN_TAG_OFFSET) != ENDIAN_CONSTANT) {
+            throw new IOException("Unsupported DEX endian tag: 0x" + Integer.toHexString(buffer.getInt(ENDIAN_TAG_OFFSET)));
+        }
+        if (buffer.getInt(HEADER_SIZE_OFFSET) < HEADER_SIZE) {
+            throw new IOException("Invalid DEX header size: " + buffer.getInt(HEADER_SIZE_OFFSET));
+        }
+        stringIdsSize = buffer.getInt(STRING_IDS_OFFSET);
+        stringIdsOff = buffer.getInt(STRING_IDS_OFFSET + 4);
+        typeIdsSize = buffer.getInt(TYPE_IDS_OFFSET);
+        typeIdsOff = buffer.getInt(TYPE_IDS_OFFSET + 4);
+        protoIdsSize = buffer.getInt(PROTO_IDS_OFFSET);
+        fieldIdsSize = buffer.getInt(FIELD_IDS_OFFSET);
+        fieldIdsOff = buffer.getInt(FIELD_IDS_OFFSET + 4);
+        methodIdsSize = buffer.getInt(METHOD_IDS_OFFSET);
+        methodIdsOff = buffer.getInt(METHOD_IDS_OFFSET + 4);
+        classDefsSize = buffer.getInt(CLASS_DEFS_OFFSET);
+        classDefsOff = buffer.getInt(CLASS_DEFS_OFFSET + 4);
+        mapOff = buffer.getInt(MAP_OFF_OFFSET);
+
+        checkSection("string_ids", stringIdsOff, stringIdsSize, 4);
+        checkSection("type_ids", typeIdsOff, typeIdsSize, 4);
+        checkSection("field_ids", fieldIdsOff, fieldIdsSize, 8);
+        checkSection("method_ids", methodIdsOff, methodIdsSize, 8);
+        checkSection("class_defs", classDefsOff, classDefsSize, CLASS_DEF_SIZE);
+        checkSection("map_list", mapOff, 1, 4);
+    }
+
+    /**
+     * Map DEX file and parse its header
+     */
+    public static DexFile open(Path dexFile) throws IOException {
+        return new DexFile(DexBuffer.open(dexFile));
+    }
+
+    /**
+     * Check for the "dex\n" magic followed by a three digit version and a NUL byte
+     */
+    public static boolean isDex(DexBuffer buffer) {
+        if (buffer.size() < HEADER_SIZE) {
+            return false;
+        }
+        byte[] magic = buffer.getBytes(0, 8);
+        return magic[0] == 'd' && magic[1] == 'e' && magic[2] == 'x' && magic[3] == '\n'
+            && Character.isDigit(magic[4]) && Character.isDigit(magic[5]) && Character.isDigit(magic[6])
+            && magic[7] == 0;
+    }
+
+    /**
+     * Get sections listed in the map_list, read on first call
+     */
+    public List<MapItem> getMapItems() {
+        if (mapItems == null) {
+            int count = buffer.getInt(mapOff);
+            List<MapItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int item = mapOff + 4 + i * 12;
+                items.add(new MapItem(buffer.getUnsignedShort(item), buffer.getInt(item + 4), buffer.getInt(item + 8)));
+            }
+            mapItems = Collections.unmodifiableList(items);
+        }
+        return mapItems;
+    }
+
+    /**
+     * Get offset of the string_data_item for a string index
+     */
+    public int getStringDataOffset(int stringIndex) {
+        checkIndex("string", stringIndex, stringIdsSize);
+        return buffer.getInt(stringIdsOff + stringIndex * 4);
+    }
+
+    /**
+     * Drop cached layout after string_data was moved by DexStringRewriter
+     */
+    void stringsRelocated(Collection<Integer> rewrittenStrings) {
+        mapItems = null;
+        if (stringPool != null) {
+            for (int stringIndex : rewrittenStrings) {
+                stringPool.invalidate(stringIndex);
+            }
+        }
+    }
+
+    /**
+     * Get string pool, strings are decoded on first access and cached
+     */
+    public DexStringPool getStrings() {
+        if (stringPool == null) {
+            stringPool = new DexStringPool(this);
+        }
+        return stringPool;
+    }
+
+    /**
+     * Get string by index
+     */
+    public String getString(int stringIndex) {
+        return getStrings().get(stringIndex);
+    }
+
+    /**
+     * Decode string by index, bypassing the pool
+     */
+    String decodeString(int stringIndex) {
+        int offset = getStringDataOffset(stringIndex);
+        int utf16Length = readUleb128(offset);
+        int start = offset + uleb128Size(offset);
+        // Each UTF-16 unit takes at most three bytes, fetch them in one read
+        int available = Math.min(utf16Length * 3, buffer.size() - start);
+        return Mutf8.decode(buffer.getBytes(start, available), utf16Length, start);
+    }
+
+    /**
+     * Get encoded MUTF-8 byte length of a string, without the terminating NUL
+     */
+    public int getStringByteLength(int stringIndex) {
+        int offset = getStringDataOffset(stringIndex);
+        int start = offset + uleb128Size(offset);
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        return end - start;
+    }
+
+    /**
+     * Rewrite a string in place, only possible when the UTF-16 length and
+     * the encoded byte length stay the same, so no offsets move
+     * Returns false when the new value does not fit.
+     */
+    public boolean replaceStringInPlace(int stringIndex, String value) {
+        int offset = getStringDataOffset(stringIndex);
+        int utf16Length = readUleb128(offset);
+        byte[] encoded = Mutf8.encode(value);
+        if (value.length() != utf16Length || encoded.length != getStringByteLength(stringIndex)) {
+            return false;
+        }
+        buffer.put(offset + uleb128Size(offset), encoded);
+        if (stringPool != null) {
+            stringPool.invalidate(stringIndex);
+        }
+        return true;
+    }
+
+    /**
+     * Get type descriptor string index for a type index
+     */
+    public int getTypeDescriptorIndex(int typeIndex) {
+        checkIndex("type", typeIndex, typeIdsSize);
+        return buffer.getInt(typeIdsOff + typeIndex * 4);
+    }
+
+    /**
+     * Get type descriptor, e.g. "Lcom/example/MainActivity;"
+     */
+    public String getTypeDescriptor(int typeIndex) {
+        return getString(getTypeDescriptorIndex(typeIndex));
+    }
+
+    /**
+     * Get type index of the class declaring a method
+     */
+    public int getMethodClassIndex(int methodIndex) {
+        checkIndex("method", methodIndex, methodIdsSize);
+        return buffer.getUnsignedShort(methodIdsOff + methodIndex * 8);
+    }
+
+    /**
+     * Get proto index of a method
+     */
+    public int getMethodProtoIndex(int methodIndex) {
+        checkIndex("method", methodIndex, methodIdsSize);
+        return buffer.getUnsignedShort(methodIdsOff + methodIndex * 8 + 2);
+    }
+
+    /**
+     * Get name string index of a method
+     */
+    public int getMethodNameIndex(int methodIndex) {
+        checkIndex("method", methodIndex, methodIdsSize);
+        return buffer.getInt(methodIdsOff + methodIndex * 8 + 4);
+    }
+
+    /**
+     * Get method name
+     */
+    public String getMethodName(int methodIndex) {
+        return getString(getMethodNameIndex(methodIndex));
+    }
+
+    /**
+     * Get type index of the class declaring a field
+     */
+    public int getFieldClassIndex(int fieldIndex) {
+        checkIndex("field", fieldIndex, fieldIdsSize);
+        return buffer.getUnsignedShort(fieldIdsOff + fieldIndex * 8);
+    }
+
+    /**
+     * Get name string index of a field
+     */
+    public int getFieldNameIndex(int fieldIndex) {
+        checkIndex("field", fieldIndex, fieldIdsSize);
+        return buffer.getInt(fieldIdsOff + fieldIndex * 8 + 4);
+    }
+
+    /**
+     * Get type index of the class defined by a class_def
+     */
+    public int getClassDefTypeIndex(int classDefIndex) {
+        checkIndex("class_def", classDefIndex, classDefsSize);
+        return buffer.getInt(classDefsOff + classDefIndex * CLASS_DEF_SIZE);
+    }
+
+    /**
+     * Get access flags of a class_def
+     */
+    public int getClassDefAccessFlags(int classDefIndex) {
+        checkIndex("class_def", classDefIndex, classDefsSize);
+        return buffer.getInt(classDefsOff + classDefIndex * CLASS_DEF_SIZE + 4);
+    }
+
+    /**
+     * Get superclass type index of a class_def, NO_INDEX for java.lang.Object
+     */
+    public int getClassDefSuperclassIndex(int classDefIndex) {
+        checkIndex("class_def", classDefIndex, classDefsSize);
+        return buffer.getInt(classDefsOff + classDefIndex * CLASS_DEF_SIZE + 8);
+    }
+
+    /**
+     * Get source file string index of a class_def, NO_INDEX if absent
+     */
+    public int getClassDefSourceFileIndex(int classDefIndex) {
+        checkIndex("class_def", classDefIndex, classDefsSize);
+        return buffer.getInt(classDefsOff + classDefIndex * CLASS_DEF_SIZE + 16);
+    }
+
+    /**
+     * Get descriptor of the class defined by a class_def
+     */
+    public String getClassDescriptor(int classDefIndex) {
+        return getTypeDescriptor(getClassDefTypeIndex(classDefIndex));
+    }
+
+    /**
+     * Read unsigned LEB128 value at offset
+     */
+    public int readUleb128(int offset) {
+        int result = 0;
+        for (int i = 0; i < 5; i++) {
+            int b = buffer.get(offset + i) & 0xFF;
+            result |= (b & 0x7F) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Invalid ULEB128 at offset " + offset);
+    }
+
+    /**
+     * Get encoded size of the unsigned LEB128 value at offset
+     */
+    public int uleb128Size(int offset) {
+        int size = 1;
+        while ((buffer.get(offset + size - 1) & 0x80) != 0) {
+            size++;
+            if (size > 5) {
+                throw new IllegalStateException("Invalid ULEB128 at offset " + offset);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Recompute file_size, SHA-1 signature and Adler-32 checksum in the header
+     */
+    public void updateChecksums() throws IOException {
+        DexChecksum.finalizeHeader(buffer);
+    }
+
+    /**
+     * Check whether the stored checksum and signature match the content
+     */
+    public boolean verifyChecksums() throws IOException {
+        return DexChecksum.verify(buffer);
+    }
+
+    /**
+     * Finalize header and write the DEX, nothing is written when it is unchanged
+     */
+    public boolean writeTo(Path target) throws IOException {
+        if (buffer.isModified()) {
+            updateChecksums();
+        }
+        return buffer.writeTo(target);
+    }
+
+    /**
+     * Write a patched buffer, fixing the header when it holds a well-formed DEX
+     * Buffers that do not parse as DEX are written as they are.
+     */
+    public static boolean writeTo(DexBuffer buffer, Path target) throws IOException {
+        if (buffer.isModified() && isDex(buffer)) {
+            try {
+                return new DexFile(buffer).writeTo(target);
+            } catch (IOException e) {
+                // Malformed header, leave it alone
+            }
+        }
+        return buffer.writeTo(target);
+    }
+
+    /**
+     * Get underlying buffer
+     */
+    public DexBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get DEX format version, e.g. "035"
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Get number of string_ids
+     */
+    public int getStringCount() {
+        return stringIdsSize;
+    }
+
+    /**
+     * Get number of type_ids
+     */
+    public int getTypeCount() {
+        return typeIdsSize;
+    }
+
+    /**
+     * Get number of proto_ids
+     */
+    public int getProtoCount() {
+        return protoIdsSize;
+    }
+
+    /**
+     * Get number of field_ids
+     */
+    public int getFieldCount() {
+        return fieldIdsSize;
+    }
+
+    /**
+     * Get number of method_ids
+     */
+    public int getMethodCount() {
+        return methodIdsSize;
+    }
+
+    /**
+     * Get number of class_defs
+     */
+    public int getClassDefCount() {
+        return classDefsSize;
+    }
+
+    /**
+     * Get offset of the string_ids section
+     */
+    public int getStringIdsOffset() {
+        return stringIdsOff;
+    }
+
+    /**
+     * Get offset of the map_list
+     */
+    public int getMapOffset() {
+        return mapOff;
+    }
+
+    /**
+     * Get size of the data section
+     */
+    public int getDataSize() {
+        return buffer.getInt(DATA_OFFSET);
+    }
+
+    /**
+     * Get offset of the data section
+     */
+    public int getDataOffset() {
+        return buffer.getInt(DATA_OFFSET + 4);
+    }
+
+    private void checkSection(String name, int offset, int count, int itemSize) throws IOException {
+        if (count < 0 || (count > 0 && (offset < 0 || (long) offset + (long) count * itemSize > buffer.size()))) {
+            throw new IOException("Invalid DEX " + name + " section: offset " + offset + ", size " + count);
+        }
+    }
+
+    private static void checkIndex(String kind, int index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(kind + " index " + index + " out of range [0, " + count + ")");
+        }
+    }
+
+    /**
+     * Modified UTF-8 as used by DEX string_data_item
+     */
+    static final class Mutf8 {
+
+        private Mutf8() {
+        }
+
+        static String decode(byte[] data, int utf16Length, int baseOffset) {
+            // Identifiers are nearly always ASCII, which maps 1:1 to a compact Latin-1 string
+            int ascii = 0;
+            while (ascii < utf16Length && ascii < data.length && data[ascii] > 0) {
+                ascii++;
+            }
+            if (ascii == utf16Length) {
+                return new String(data, 0, utf16Length, StandardCharsets.ISO_8859_1);
+            }
+            char[] chars = new char[utf16Length];
+            int position = 0;
+            try {
+                for (int i = 0; i < utf16Length; i++) {
+                    int a = data[position++] & 0xFF;
+                    if (a < 0x80) {
+                        chars[i] = (char) a;
+                    } else if ((a & 0xE0) == 0xC0) {
+                        int b = data[position++] & 0xFF;
+                        chars[i] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+                    } else if ((a & 0xF0) == 0xE0) {
+                        int b = data[position++] & 0xFF;
+                        int c = data[position++] & 0xFF;
+                        chars[i] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+                    } else {
+                        throw new IllegalStateException("Invalid MUTF-8 byte at offset " + (baseOffset + position - 1));
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IllegalStateException("Truncated MUTF-8 string at offset " + baseOffset);
+            }
+            return new String(chars);
+        }
+
+        static byte[] encode(String value) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != 0 && c < 0x80) {
+                    out.write(c);
+                } else if (c < 0x800) {
+                    // NUL is encoded as two bytes so string data never contains a zero byte
+                    out.write(0xC0 | (c >> 6));
+                    out.write(0x80 | (c & 0x3F));
+                } else {
+                    out.write(0xE0 | (c >> 12));
+                    out.write(0x80 | ((c >> 6) & 0x3F));
+                    out.write(0x80 | (c & 0x3F));
+                }
+            }
+            return out.toByteArray();
+        }
+    }
+}
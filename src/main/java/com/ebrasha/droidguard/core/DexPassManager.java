@@ -0,0 +1,264 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexPassManager.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:27:35
+ * Description  : Registry and scheduler for DEX transformation passes
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Runs registered DEX passes over one shared copy-on-write DexBuffer
+ * Passes run in registration order, except that a pass always runs after the
+ * passes it depends on. Dependencies only order passes: a disabled dependency
+ * is simply not run, and a failing pass is logged without stopping the rest.
+ * Every pass is measured for wall-clock time, bytes allocated by the running
+ * thread and the change in DEX size, so expensive passes can be found and
+ * switched off.
+ */
+public class DexPassManager {
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * One transformation, patching the shared DEX view in place
+     */
+    public interface DexPass {
+        void apply(DexBuffer dex) throws Exception;
+    }
+
+    /**
+     * What happened to a pass during a run
+     */
+    public enum Status {
+        RAN, FAILED, DISABLED
+    }
+
+    /**
+     * Metrics of one pass in one run
+     */
+    public static class PassMetrics {
+        private final String name;
+        private final Status status;
+        private final long nanos;
+        private final long allocatedBytes;
+        private final int sizeDelta;
+
+        PassMetrics(String name, Status status, long nanos, long allocatedBytes, int sizeDelta) {
+            this.name = name;
+            this.status = status;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.sizeDelta = sizeDelta;
+        }
+
+        /**
+         * Get pass name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get pass status
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Get wall-clock time of the pass in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Get bytes allocated while the pass ran, -1 if the JVM cannot tell
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Get change of DEX size in bytes
+         */
+        public int getSizeDelta() {
+            return sizeDelta;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %-8s %8.2f ms %10s %+8d bytes", name, status, nanos / 1e6,
+                allocatedBytes < 0 ? "n/a" : (allocatedBytes / 1024) + " KB", sizeDelta);
+        }
+    }
+
+    /**
+     * Registered pass with its dependencies
+     */
+    private static class Registration {
+        final String name;
+        final DexPass pass;
+        final List<String> dependsOn;
+        boolean enabled = true;
+
+        Registration(String name, DexPass pass, List<String> dependsOn) {
+            this.name = name;
+            this.pass = pass;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    private final Map<String, Registration> passes = new LinkedHashMap<>();
+
+    /**
+     * Register a pass that runs after the named passes
+     */
+    public DexPassManager register(String name, DexPass pass, String... dependsOn) {
+        if (passes.containsKey(name)) {
+            throw new IllegalArgumentException("Pass already registered: " + name);
+        }
+        passes.put(name, new Registration(name, pass, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    /**
+     * Switch a registered pass on or off
+     */
+    public void setEnabled(String name, boolean enabled) {
+        Registration registration = passes.get(name);
+        if (registration == null) {
+            throw new IllegalArgumentException("Unknown pass: " + name);
+        }
+        registration.enabled = enabled;
+    }
+
+    /**
+     * Check if a registered pass is enabled
+     */
+    public boolean isEnabled(String name) {
+        Registration registration = passes.get(name);
+        return registration != null && registration.enabled;
+    }
+
+    /**
+     * Get names of all registered passes in registration order
+     */
+    public List<String> getPassNames() {
+        return new ArrayList<>(passes.keySet());
+    }
+
+    /**
+     * Get passes in execution order
+     */
+    public List<String> getExecutionOrder() {
+        List<String> order = new ArrayList<>();
+        for (Registration registration : schedule()) {
+            order.add(registration.name);
+        }
+        return order;
+    }
+
+    /**
+     * Run all enabled passes over the DEX view and return their metrics in execution order
+     */
+    public List<PassMetrics> run(DexBuffer dex) {
+        List<PassMetrics> metrics = new ArrayList<>();
+        for (Registration registration : schedule()) {
+            if (!registration.enabled) {
+                metrics.add(new PassMetrics(registration.name, Status.DISABLED, 0, 0, 0));
+                continue;
+            }
+            int sizeBefore = dex.size();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Status status = Status.RAN;
+            try {
+                registration.pass.apply(dex);
+            } catch (Exception e) {
+                logger.error("Pass " + registration.name + " failed: " + e.getMessage());
+                status = Status.FAILED;
+            }
+            long nanos = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+            metrics.add(new PassMetrics(registration.name, status, nanos, allocated, dex.size() - sizeBefore));
+        }
+
+        for (PassMetrics pass : metrics) {
+            logger.info("DEX pass " + pass);
+        }
+        return metrics;
+    }
+
+    /**
+     * Order passes by dependencies, breaking ties by registration order
+     */
+    private List<Registration> schedule() {
+        Map<String, Integer> pendingDependencies = new HashMap<>();
+        Map<String, List<Registration>> dependents = new HashMap<>();
+        for (Registration registration : passes.values()) {
+            for (String dependency : registration.dependsOn) {
+                if (!passes.containsKey(dependency)) {
+                    throw new IllegalStateException("Pass " + registration.name + " depends on unknown pass " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(registration);
+            }
+            pendingDependencies.put(registration.name, registration.dependsOn.size());
+        }
+
+        List<String> names = new ArrayList<>(passes.keySet());
+        PriorityQueue<Registration> ready = new PriorityQueue<>(
+            Comparator.comparingInt(registration -> names.indexOf(registration.name)));
+        for (Registration registration : passes.values()) {
+            if (registration.dependsOn.isEmpty()) {
+                ready.add(registration);
+            }
+        }
+        List<Registration> order = new ArrayList<>(passes.size());
+        while (!ready.isEmpty()) {
+            Registration next = ready.poll();
+            order.add(next);
+            for (Registration dependent : dependents.getOrDefault(next.name, Collections.emptyList())) {
+                if (pendingDependencies.merge(dependent.name, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() != passes.size()) {
+            throw new IllegalStateException("Cyclic dependencies between DEX passes");
+        }
+        return order;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, -1 if not supported
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+            }
+        }
+        return -1;
+    }
+}
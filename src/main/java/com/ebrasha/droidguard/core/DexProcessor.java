@@ -21,7 +21,7 @@ import com.ebrasha.droidguard.utils.SimpleLogger;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
-import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DEX Processor for real bytecode obfuscation and manipulation
@@ -30,9 +30,49 @@ import java.security.SecureRandom;
 public class DexProcessor {
     
     private final SimpleLogger logger = SimpleLogger.getInstance();
-    private final SecureRandom random = new SecureRandom();
-    private final Map<String, String> obfuscatedNames = new HashMap<>();
-    private final Map<String, String> obfuscatedStrings = new HashMap<>();
+    // Shared by DEX files processed in parallel. Nothing draws from random or
+    // nameGenerator in ultra safe mode; a pass that does must draw in a fixed
+    // order or reproducible builds follow thread scheduling
+    private final Random random = ReproducibleBuild.newRandom("dex-processor");
+    private final Map<String, String> obfuscatedNames = new ConcurrentHashMap<>();
+    private final Map<String, String> obfuscatedStrings = new ConcurrentHashMap<>();
+    private NameGenerator nameGenerator = ReproducibleBuild.newNameGenerator("dex-names");
+    private Long nameSeed;
+    
+    /**
+     * Version of the bytes obfuscateDEX writes; bump with every change to the
+     * output so results cached by older builds are not reused
+     */
+    public static final int OUTPUT_VERSION = 1;
+    
+    private static final String[] COMMON_STRINGS = {"MainActivity", "onCreate", "onResume", "setContentView"};
+    private static final MultiPatternScanner COMMON_STRING_SCANNER = MultiPatternScanner.forStrings(COMMON_STRINGS);
+    
+    /**
+     * Seed the name generator so generated names are the same on every run
+     */
+    public void setNameSeed(long seed) {
+        this.nameGenerator = new NameGenerator(seed);
+        this.nameSeed = seed;
+    }
+    
+    /**
+     * Get fingerprint of the processor version and options that decide its output
+     */
+    public String getOptionsFingerprint() {
+        StringBuilder fingerprint = new StringBuilder(DexProcessor.class.getName())
+            .append(";version=").append(OUTPUT_VERSION);
+        if (nameSeed != null) {
+            fingerprint.append(";nameSeed=").append(nameSeed);
+        }
+        // Seed and epoch decide names, random choices and embedded timestamps
+        fingerprint.append(";reproducible=").append(ReproducibleBuild.isEnabled());
+        if (ReproducibleBuild.isEnabled()) {
+            fingerprint.append(";seed=").append(ReproducibleBuild.getSeed())
+                .append(";epoch=").append(ReproducibleBuild.getEpochMillis());
+        }
+        return fingerprint.toString();
+    }
     
     /**
      * Obfuscate DEX file with real bytecode manipulation (ULTRA SAFE MODE)
@@ -41,22 +81,35 @@ public class DexProcessor {
         try {
             logger.info("Starting DEX processing in ULTRA SAFE MODE for: " + dexFile.getFileName());
             
-            // Read DEX file
-            byte[] dexData = Files.readAllBytes(dexFile);
-            logger.info("Original DEX size: " + dexData.length + " bytes");
+            // Load DEX file, all passes share the same copy-on-write view. It is not
+            // mapped because the working copy is deleted once the APK is built
+            DexBuffer dex = DexBuffer.load(dexFile);
+            int originalSize = dex.size();
+            logger.info("Original DEX size: " + originalSize + " bytes");
+            
+            // Parse header only, sections are decoded when a pass reads them
+            DexFile dexModel = null;
+            try {
+                dexModel = new DexFile(dex);
+                logger.info("DEX version " + dexModel.getVersion() + ": " + dexModel.getStringCount() + " strings, "
+                    + dexModel.getTypeCount() + " types, " + dexModel.getMethodCount() + " methods, "
+                    + dexModel.getClassDefCount() + " classes");
+            } catch (IOException e) {
+                logger.warn("No valid DEX header in " + dexFile.getFileName() + ": " + e.getMessage());
+            }
             
             // Show obfuscation statistics
-            showObfuscationStats(dexData);
+            showObfuscationStats(dex, dexModel);
             
             // Perform obfuscation (ultra safe mode - no modification)
-            byte[] obfuscatedData = performDEXObfuscation(dexData);
-            logger.info("Processed DEX size: " + obfuscatedData.length + " bytes");
+            performDEXObfuscation(dex);
+            logger.info("Processed DEX size: " + dex.size() + " bytes");
             
             // Show obfuscation results
-            showObfuscationResults(dexData, obfuscatedData);
+            showObfuscationResults(originalSize, dex.size());
             
-            // Write DEX (no changes in ultra safe mode)
-            Files.write(dexFile, obfuscatedData);
+            // Write patched pages only, nothing is written when the DEX is unchanged
+            DexFile.writeTo(dex, dexFile);
             logger.info("DEX processing completed successfully (ultra safe mode)");
             
             return true;
@@ -70,20 +123,31 @@ public class DexProcessor {
     /**
      * Show obfuscation statistics
      */
-    private void showObfuscationStats(byte[] originalData) {
+    private void showObfuscationStats(DexBuffer dex, DexFile dexModel) {
         logger.info("=== OBFUSCATION STATISTICS (ULTRA SAFE MODE) ===");
-        logger.info("Original DEX size: " + originalData.length + " bytes");
+        logger.info("Original DEX size: " + dex.size() + " bytes");
         logger.info("Mode: ULTRA SAFE (no DEX modification)");
         logger.info("Purpose: Preserve APK functionality");
         
         // Count strings in DEX (for information only)
-        String dexContent = new String(originalData);
         int stringCount = 0;
-        String[] commonStrings = {"MainActivity", "onCreate", "onResume", "setContentView"};
-        for (String str : commonStrings) {
-            if (dexContent.contains(str)) {
+        boolean[] found = new boolean[COMMON_STRINGS.length];
+        if (dexModel != null) {
+            // Look through the string pool, each entry is decoded once and cached
+            DexStringPool strings = dexModel.getStrings();
+            for (int i = 0; i < COMMON_STRINGS.length; i++) {
+                found[i] = strings.findContaining(COMMON_STRINGS[i]) >= 0;
+            }
+        } else {
+            // No string table to use, one raw scan for all names
+            for (MultiPatternScanner.Match match : COMMON_STRING_SCANNER.scan(dex)) {
+                found[match.pattern] = true;
+            }
+        }
+        for (int i = 0; i < COMMON_STRINGS.length; i++) {
+            if (found[i]) {
                 stringCount++;
-                logger.info("Found string (will NOT be modified): " + str);
+                logger.info("Found string (will NOT be modified): " + COMMON_STRINGS[i]);
             }
         }
         logger.info("Strings found (preserved): " + stringCount);
@@ -93,9 +157,9 @@ public class DexProcessor {
     /**
      * Show obfuscation results
      */
-    private void showObfuscationResults(byte[] originalData, byte[] obfuscatedData) {
+    private void showObfuscationResults(int originalSize, int processedSize) {
         logger.info("=== OBFUSCATION RESULTS (ULTRA SAFE MODE) ===");
-        logger.info("Size change: " + (obfuscatedData.length - originalData.length) + " bytes");
+        logger.info("Size change: " + (processedSize - originalSize) + " bytes");
         logger.info("DEX structure: PRESERVED ✓");
         logger.info("APK functionality: MAINTAINED ✓");
         logger.info("Classes and methods: INTACT ✓");
@@ -110,62 +174,39 @@ public class DexProcessor {
         logger.info("=============================");
     }
     
-    /**
-     * Check if byte array contains specific byte sequence
-     */
-    private boolean containsBytes(byte[] data, byte[] target) {
-        if (target.length > data.length) return false;
-        
-        for (int i = 0; i <= data.length - target.length; i++) {
-            boolean match = true;
-            for (int j = 0; j < target.length; j++) {
-                if (data[i + j] != target[j]) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) return true;
-        }
-        return false;
-    }
-    
     /**
      * Perform actual DEX obfuscation (ULTRA SAFE MODE)
      */
-    private byte[] performDEXObfuscation(byte[] originalDex) throws Exception {
+    private void performDEXObfuscation(DexBuffer dex) throws Exception {
         logger.info("Starting DEX obfuscation in ULTRA SAFE MODE...");
         
-        // ULTRA SAFE MODE: Return original DEX without any modification
+        // ULTRA SAFE MODE: Leave the DEX without any modification
         // This ensures APK functionality is preserved
         logger.info("DEX obfuscation completed - NO MODIFICATION (ultra safe mode)");
-        return originalDex;
     }
     
     /**
      * Apply safe obfuscation that doesn't break APK functionality (ULTRA SAFE MODE)
      */
-    private byte[] applySafeObfuscation(byte[] originalDex) throws Exception {
-        // ULTRA SAFE MODE: Return original DEX without any modification
+    private void applySafeObfuscation(DexBuffer dex) throws Exception {
+        // ULTRA SAFE MODE: Leave the DEX without any modification
         logger.info("Ultra safe mode: No obfuscation applied to preserve functionality");
-        return originalDex;
     }
     
     /**
      * Obfuscate strings in DEX (SAFE MODE - no string modification)
      */
-    private byte[] obfuscateStrings(byte[] dexData) {
+    private void obfuscateStrings(DexBuffer dex) {
         logger.debug("Applying safe string obfuscation (no modification)...");
         
         // SAFE MODE: Don't modify strings to avoid breaking DEX structure
-        // Just return original data
         logger.info("String obfuscation in SAFE MODE - DEX structure preserved");
-        return dexData;
     }
     
     /**
      * Obfuscate a specific string in byte array
      */
-    private byte[] obfuscateStringInBytes(byte[] data, String targetString) {
+    private void obfuscateStringInBytes(DexBuffer dex, String targetString) {
         byte[] targetBytes = targetString.getBytes();
         String obfuscatedString = generateObfuscatedString(targetString);
         byte[] obfuscatedBytes = obfuscatedString.getBytes();
@@ -175,27 +216,18 @@ public class DexProcessor {
         
         if (obfuscatedBytes.length != targetBytes.length) {
             logger.debug("Skipping obfuscation due to length mismatch");
-            return data; // Skip if lengths don't match
+            return; // Skip if lengths don't match
         }
         
         // Find and replace all occurrences
         int replacementCount = 0;
-        for (int i = 0; i <= data.length - targetBytes.length; i++) {
-            boolean match = true;
-            for (int j = 0; j < targetBytes.length; j++) {
-                if (data[i + j] != targetBytes[j]) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) {
-                // Replace with obfuscated string
-                for (int j = 0; j < obfuscatedBytes.length; j++) {
-                    data[i + j] = obfuscatedBytes[j];
-                }
-                replacementCount++;
-                logger.debug("Replaced occurrence #" + replacementCount + " at position " + i);
-            }
+        int position = dex.indexOf(targetBytes, 0);
+        while (position >= 0) {
+            // Replace with obfuscated string
+            dex.put(position, obfuscatedBytes);
+            replacementCount++;
+            logger.debug("Replaced occurrence #" + replacementCount + " at position " + position);
+            position = dex.indexOf(targetBytes, position + 1);
         }
         
         if (replacementCount > 0) {
@@ -203,8 +235,6 @@ public class DexProcessor {
         } else {
             logger.debug("No occurrences of '" + targetString + "' found to obfuscate");
         }
-        
-        return data;
     }
     
     /**
@@ -225,24 +255,22 @@ public class DexProcessor {
     /**
      * Obfuscate control flow (safe method)
      */
-    private byte[] obfuscateControlFlow(byte[] dexData) {
+    private void obfuscateControlFlow(DexBuffer dex) {
         logger.debug("Applying control flow obfuscation...");
         
         // Simple control flow obfuscation that doesn't break DEX structure
         // This is a placeholder - real implementation would use proper DEX parsing
-        return dexData;
     }
     
     /**
      * Add protection markers (ULTRA SAFE method)
      */
-    private byte[] addProtectionMarkers(byte[] dexData) {
+    private void addProtectionMarkers(DexBuffer dex) {
         logger.debug("Adding protection markers (ultra safe mode)...");
         
         // ULTRA SAFE MODE: Don't modify DEX structure at all
-        // Just return original data to ensure APK functionality
+        // Leave data untouched to ensure APK functionality
         logger.info("Protection markers in ULTRA SAFE MODE - no DEX modification");
-        return dexData;
     }
     
     /**
@@ -268,25 +296,22 @@ public class DexProcessor {
     
     /**
      * Obfuscate string IDs
+     * Only names that keep their encoded length are rewritten, so no offsets move
      */
-    private byte[] obfuscateStringIds(byte[] originalDex, byte[] stringIds) throws Exception {
-        // Parse string IDs and obfuscate string references
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        for (int i = 0; i < stringIds.length; i += 4) {
-            int stringOffset = readInt(stringIds, i);
-            
+    private int obfuscateStringIds(DexFile dex) {
+        int renamed = 0;
+        for (int i = 0; i < dex.getStringCount(); i++) {
             // Read original string
-            String originalString = readString(originalDex, stringOffset);
+            String originalString = dex.getString(i);
             
             // Obfuscate string
             String obfuscatedString = obfuscateString(originalString);
             
-            // Write obfuscated string offset (we'll handle this in data section)
-            baos.write(stringIds, i, 4);
+            if (!obfuscatedString.equals(originalString) && dex.replaceStringInPlace(i, obfuscatedString)) {
+                renamed++;
+            }
         }
-        
-        return baos.toByteArray();
+        return renamed;
     }
     
     /**
@@ -357,18 +382,7 @@ public class DexProcessor {
      * Generate obfuscated name
      */
     private String generateObfuscatedName() {
-        String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder sb = new StringBuilder();
-        
-        // Start with 'a' to make it a valid identifier
-        sb.append('a');
-        
-        // Add random characters
-        for (int i = 0; i < random.nextInt(10) + 5; i++) {
-            sb.append(chars.charAt(random.nextInt(chars.length())));
-        }
-        
-        return sb.toString();
+        return nameGenerator.next();
     }
     
     /**
@@ -376,7 +390,7 @@ public class DexProcessor {
      */
     private void addSafeObfuscationMarkers(ByteArrayOutputStream baos) throws IOException {
         // Add safe obfuscation signature (outside DEX structure)
-        String signature = "ABDAL_OBFUSCATED_" + System.currentTimeMillis();
+        String signature = "ABDAL_OBFUSCATED_" + ReproducibleBuild.currentTimeMillis();
         baos.write(signature.getBytes("UTF-8"));
         
         // Add obfuscation metadata
@@ -386,43 +400,6 @@ public class DexProcessor {
         logger.info("Safe obfuscation markers added");
     }
     
-    /**
-     * Read integer from byte array
-     */
-    private int readInt(byte[] data, int offset) {
-        return ((data[offset] & 0xFF) |
-                ((data[offset + 1] & 0xFF) << 8) |
-                ((data[offset + 2] & 0xFF) << 16) |
-                ((data[offset + 3] & 0xFF) << 24));
-    }
-    
-    /**
-     * Read string from DEX data
-     */
-    private String readString(byte[] dexData, int offset) {
-        try {
-            // Read string length (ULEB128)
-            int length = 0;
-            int shift = 0;
-            int pos = offset;
-            
-            while (pos < dexData.length) {
-                int b = dexData[pos++] & 0xFF;
-                length |= (b & 0x7F) << shift;
-                if ((b & 0x80) == 0) break;
-                shift += 7;
-            }
-            
-            // Read string data
-            byte[] stringBytes = new byte[length];
-            System.arraycopy(dexData, pos, stringBytes, 0, length);
-            
-            return new String(stringBytes, "UTF-8");
-        } catch (Exception e) {
-            return "";
-        }
-    }
-    
     /**
      * Get obfuscation statistics
      */
@@ -0,0 +1,116 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexStringPool.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 19:41:09
+ * Description  : Lazily decoded, index-cached DEX string pool
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+/**
+ * Accessor for the string_ids of a DEX file
+ * Entries are decoded from MUTF-8 the first time they are requested and kept
+ * in a table indexed by string id, so each entry is decoded at most once and
+ * the DEX is never turned into one large Java String.
+ */
+public class DexStringPool {
+
+    private final DexFile dex;
+    private final String[] strings;
+    private int decodedCount = 0;
+
+    /**
+     * Create pool for the strings of a DEX file
+     */
+    public DexStringPool(DexFile dex) {
+        this.dex = dex;
+        this.strings = new String[dex.getStringCount()];
+    }
+
+    /**
+     * Get string by index, decoding it on first access
+     */
+    public String get(int index) {
+        String value = strings[index];
+        if (value == null) {
+            value = dex.decodeString(index);
+            strings[index] = value;
+            decodedCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Find index of a string with binary search over the sorted string_ids,
+     * -1 if the DEX does not contain it
+     */
+    public int indexOf(String value) {
+        int low = 0;
+        int high = strings.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = get(middle).compareTo(value);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if the DEX contains exactly this string
+     */
+    public boolean contains(String value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Find first string containing the fragment, -1 if there is none
+     */
+    public int findContaining(String fragment) {
+        for (int i = 0; i < strings.length; i++) {
+            if (get(i).contains(fragment)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Drop the cached value of a string rewritten in the DEX
+     */
+    void invalidate(int index) {
+        if (strings[index] != null) {
+            strings[index] = null;
+            decodedCount--;
+        }
+    }
+
+    /**
+     * Get number of strings in the pool
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     * Get number of strings decoded so far
+     */
+    public int getDecodedCount() {
+        return decodedCount;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexStringRewriter.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 20:31:48
+ * Description  : Length-changing DEX string rewriting with section relocation
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Rewrites string_data_item entries with values of any length
+ * Replacements are collected first and applied in one linear rebuild: the
+ * string_data section is re-emitted at the end of the data section, the old
+ * section is cleared to zero padding, and string_ids, the map_list and the
+ * header are fixed up in place. Nothing else in the data section moves, so
+ * offsets held by code, class data and annotations stay valid.
+ */
+public class DexStringRewriter {
+
+    static final int TYPE_STRING_DATA_ITEM = 0x2002;
+
+    private final DexFile dex;
+    private final Map<Integer, String> replacements = new HashMap<>();
+
+    /**
+     * Create rewriter for a DEX file
+     */
+    public DexStringRewriter(DexFile dex) {
+        this.dex = dex;
+    }
+
+    /**
+     * Queue a new value for a string
+     * string_ids must stay sorted, so values that would land out of order
+     * between their neighbours are refused and false is returned.
+     */
+    public boolean replace(int stringIndex, String value) {
+        String previous = stringIndex > 0 ? currentValue(stringIndex - 1) : null;
+        String next = stringIndex + 1 < dex.getStringCount() ? currentValue(stringIndex + 1) : null;
+        if ((previous != null && previous.compareTo(value) >= 0) || (next != null && value.compareTo(next) >= 0)) {
+            return false;
+        }
+        replacements.put(stringIndex, value);
+        return true;
+    }
+
+    /**
+     * Get number of queued replacements
+     */
+    public int getPendingCount() {
+        return replacements.size();
+    }
+
+    /**
+     * Apply all queued replacements in one pass over the string pool
+     * Returns the number of bytes the DEX grew by.
+     */
+    public int rebuild() throws IOException {
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+        DexBuffer buffer = dex.getBuffer();
+        DexFile.MapItem stringData = null;
+        for (DexFile.MapItem item : dex.getMapItems()) {
+            if (item.type == TYPE_STRING_DATA_ITEM) {
+                stringData = item;
+            }
+        }
+        if (stringData == null) {
+            throw new IOException("DEX has no string_data section");
+        }
+        int originalSize = buffer.size();
+        int dataOff = dex.getDataOffset();
+        if ((long) dataOff + dex.getDataSize() != originalSize) {
+            throw new IOException("String data can only be relocated when the data section ends the file");
+        }
+
+        // Re-emit every string_data_item, copying unchanged entries as they are
+        int count = dex.getStringCount();
+        ByteArrayOutputStream section = new ByteArrayOutputStream();
+        byte[] stringIds = new byte[count * 4];
+        int oldEnd = stringData.offset;
+        for (int i = 0; i < count; i++) {
+            int offset = dex.getStringDataOffset(i);
+            putInt(stringIds, i * 4, originalSize + section.size());
+            String value = replacements.get(i);
+            int itemLength = dex.uleb128Size(offset) + dex.getStringByteLength(i) + 1;
+            if (value == null) {
+                section.write(buffer.getBytes(offset, itemLength), 0, itemLength);
+            } else {
+                writeUleb128(section, value.length());
+                byte[] encoded = DexFile.Mutf8.encode(value);
+                section.write(encoded, 0, encoded.length);
+                section.write(0);
+            }
+            oldEnd = Math.max(oldEnd, offset + itemLength);
+        }
+        // data_size must stay a multiple of four
+        while ((originalSize + section.size() - dataOff) % 4 != 0) {
+            section.write(0);
+        }
+
+        buffer.put(stringData.offset, new byte[oldEnd - stringData.offset]);
+        buffer.append(section.toByteArray());
+        buffer.put(dex.getStringIdsOffset(), stringIds);
+        writeMap(buffer, stringData, originalSize);
+        buffer.putInt(DexFile.DATA_OFFSET, buffer.size() - dataOff);
+
+        dex.stringsRelocated(replacements.keySet());
+        replacements.clear();
+        return buffer.size() - originalSize;
+    }
+
+    /**
+     * Rewrite the map_list with the moved string_data section, kept in offset order
+     */
+    private void writeMap(DexBuffer buffer, DexFile.MapItem moved, int newOffset) {
+        List<DexFile.MapItem> items = new ArrayList<>(dex.getMapItems());
+        items.set(items.indexOf(moved), new DexFile.MapItem(moved.type, moved.size, newOffset));
+        items.sort(Comparator.comparingLong(item -> item.offset & 0xFFFFFFFFL));
+        byte[] map = new byte[items.size() * 12];
+        for (int i = 0; i < items.size(); i++) {
+            DexFile.MapItem item = items.get(i);
+            map[i * 12] = (byte) item.type;
+            map[i * 12 + 1] = (byte) (item.type >> 8);
+            putInt(map, i * 12 + 4, item.size);
+            putInt(map, i * 12 + 8, item.offset);
+        }
+        buffer.put(dex.getMapOffset() + 4, map);
+    }
+
+    private String currentValue(int stringIndex) {
+        String value = replacements.get(stringIndex);
+        return value != null ? value : dex.getString(stringIndex);
+    }
+
+    private static void writeUleb128(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void putInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+        data[offset + 2] = (byte) (value >> 16);
+        data[offset + 3] = (byte) (value >> 24);
+    }
+}
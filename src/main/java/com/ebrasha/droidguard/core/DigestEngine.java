@@ -0,0 +1,374 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DigestEngine.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 01:58:14
+ * Description  : Pluggable digest engines and allocation-free hex encoding
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.util.Locale;
+
+/**
+ * Digest engines for integrity hashing
+ * SHA-256 runs on the fastest installed provider (measured once, usually the
+ * JDK one with SHA CPU intrinsics), BLAKE3 is a faster cryptographic
+ * alternative provided by BouncyCastle, and XXH64 is a non-cryptographic
+ * checksum for plain change detection where speed matters more than
+ * resistance to forgery. All engines
+ * are exposed as MessageDigest, so existing hashing code works with any of
+ * them. The id is the algorithm byte stored in binary integrity formats.
+ */
+public enum DigestEngine {
+
+    SHA256("SHA-256", 1, 32, true),
+    BLAKE3("BLAKE3", 2, 32, true),
+    XXH64("XXH64", 3, 8, false);
+
+    // Override the measured SHA-256 provider choice, e.g. -Ddroidguard.sha256.provider=SUN
+    public static final String PROVIDER_PROPERTY = "droidguard.sha256.provider";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static volatile Provider sha256Provider;
+
+    private final String name;
+    private final int id;
+    private final int digestLength;
+    private final boolean cryptographic;
+
+    DigestEngine(String name, int id, int digestLength, boolean cryptographic) {
+        this.name = name;
+        this.id = id;
+        this.digestLength = digestLength;
+        this.cryptographic = cryptographic;
+    }
+
+    /**
+     * Create a new digest instance
+     */
+    public MessageDigest newDigest() {
+        switch (this) {
+            case BLAKE3:
+                try {
+                    return MessageDigest.getInstance("BLAKE3-256", BouncyCastle.PROVIDER);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("BLAKE3 is not available", e);
+                }
+            case XXH64:
+                return new Xxh64MessageDigest();
+            default:
+                try {
+                    return MessageDigest.getInstance(name, fastestSha256Provider());
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 is not available", e);
+                }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    public boolean isCryptographic() {
+        return cryptographic;
+    }
+
+    /**
+     * Resolve engine by name: sha256/SHA-256, blake3, xxh64/xxhash
+     */
+    public static DigestEngine forName(String name) {
+        String key = name.toLowerCase(Locale.ROOT).replace("-", "").replace("_", "");
+        switch (key) {
+            case "sha256":
+                return SHA256;
+            case "blake3":
+                return BLAKE3;
+            case "xxh64":
+            case "xxhash":
+            case "xxhash64":
+                return XXH64;
+            default:
+                throw new IllegalArgumentException("Unsupported digest algorithm: " + name);
+        }
+    }
+
+    /**
+     * Resolve engine by the id stored in binary formats
+     */
+    public static DigestEngine forId(int id) {
+        for (DigestEngine engine : values()) {
+            if (engine.id == id) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown digest algorithm id: " + id);
+    }
+
+    /**
+     * Write lowercase hex of data into out at offset, which needs 2 * data.length chars
+     */
+    public static void toHex(byte[] data, char[] out, int offset) {
+        for (int i = 0; i < data.length; i++) {
+            out[offset + i * 2] = HEX[(data[i] >> 4) & 0xF];
+            out[offset + i * 2 + 1] = HEX[data[i] & 0xF];
+        }
+    }
+
+    /**
+     * Append lowercase hex of data to a builder
+     */
+    public static StringBuilder appendHex(byte[] data, StringBuilder out) {
+        for (byte b : data) {
+            out.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return out;
+    }
+
+    /**
+     * Encode data as lowercase hex
+     */
+    public static String toHex(byte[] data) {
+        char[] hex = new char[data.length * 2];
+        toHex(data, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Pick the fastest provider of SHA-256, measured once on the first request
+     */
+    static Provider fastestSha256Provider() {
+        Provider provider = sha256Provider;
+        if (provider == null) {
+            synchronized (DigestEngine.class) {
+                provider = sha256Provider;
+                if (provider == null) {
+                    provider = selectSha256Provider();
+                    sha256Provider = provider;
+                }
+            }
+        }
+        return provider;
+    }
+
+    private static Provider selectSha256Provider() {
+        SimpleLogger logger = SimpleLogger.getInstance();
+        Provider[] providers = Security.getProviders("MessageDigest.SHA-256");
+        if (providers == null || providers.length == 0) {
+            throw new IllegalStateException("SHA-256 is not available");
+        }
+        String preferred = System.getProperty(PROVIDER_PROPERTY);
+        if (preferred != null) {
+            for (Provider provider : providers) {
+                if (provider.getName().equalsIgnoreCase(preferred)) {
+                    return provider;
+                }
+            }
+            logger.warn("SHA-256 provider " + preferred + " not installed, measuring available providers");
+        }
+        if (providers.length == 1) {
+            return providers[0];
+        }
+        byte[] sample = new byte[64 * 1024];
+        Provider best = providers[0];
+        long bestNanos = Long.MAX_VALUE;
+        for (Provider provider : providers) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256", provider);
+                long nanos = Long.MAX_VALUE;
+                // Best of several rounds, so the first (interpreted) runs do not decide
+                for (int round = 0; round < 8; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < 16; i++) {
+                        digest.update(sample);
+                    }
+                    digest.digest();
+                    nanos = Math.min(nanos, System.nanoTime() - start);
+                }
+                if (nanos < bestNanos) {
+                    bestNanos = nanos;
+                    best = provider;
+                }
+            } catch (NoSuchAlgorithmException e) {
+                // Provider advertises SHA-256 but cannot create it; skip
+            }
+        }
+        logger.debug("SHA-256 provider: " + best.getName());
+        return best;
+    }
+
+    /**
+     * BouncyCastle provider for BLAKE3, created on first use
+     */
+    private static final class BouncyCastle {
+        static final Provider PROVIDER = new BouncyCastleProvider();
+    }
+
+    /**
+     * XXH64 with seed 0, digest in canonical (big-endian) byte order
+     */
+    static class Xxh64MessageDigest extends MessageDigest {
+        private static final long PRIME1 = 0x9E3779B185EBCA87L;
+        private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long PRIME3 = 0x165667B19E3779F9L;
+        private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+        private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+        private final ByteBuffer stripe = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        private long v1;
+        private long v2;
+        private long v3;
+        private long v4;
+        private long total;
+
+        Xxh64MessageDigest() {
+            super("XXH64");
+            engineReset();
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            stripe.put(input);
+            total++;
+            if (!stripe.hasRemaining()) {
+                consumeStripe();
+            }
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            engineUpdate(ByteBuffer.wrap(input, offset, length));
+        }
+
+        @Override
+        protected void engineUpdate(ByteBuffer input) {
+            ByteOrder order = input.order();
+            input.order(ByteOrder.LITTLE_ENDIAN);
+            total += input.remaining();
+            // Top up a partially filled stripe first
+            if (stripe.position() > 0) {
+                while (stripe.hasRemaining() && input.hasRemaining()) {
+                    stripe.put(input.get());
+                }
+                if (stripe.hasRemaining()) {
+                    input.order(order);
+                    return;
+                }
+                consumeStripe();
+            }
+            // Full stripes straight from the input, without copying
+            while (input.remaining() >= 32) {
+                v1 = round(v1, input.getLong());
+                v2 = round(v2, input.getLong());
+                v3 = round(v3, input.getLong());
+                v4 = round(v4, input.getLong());
+            }
+            while (input.hasRemaining()) {
+                stripe.put(input.get());
+            }
+            input.order(order);
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 8;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long hash;
+            if (total >= 32) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = PRIME5;
+            }
+            hash += total;
+
+            int length = stripe.position();
+            int position = 0;
+            while (position + 8 <= length) {
+                hash ^= round(0, stripe.getLong(position));
+                hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+                position += 8;
+            }
+            if (position + 4 <= length) {
+                hash ^= (stripe.getInt(position) & 0xFFFFFFFFL) * PRIME1;
+                hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+                position += 4;
+            }
+            while (position < length) {
+                hash ^= (stripe.get(position) & 0xFF) * PRIME5;
+                hash = Long.rotateLeft(hash, 11) * PRIME1;
+                position++;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME2;
+            hash ^= hash >>> 29;
+            hash *= PRIME3;
+            hash ^= hash >>> 32;
+
+            engineReset();
+            return ByteBuffer.allocate(8).putLong(hash).array();
+        }
+
+        @Override
+        protected void engineReset() {
+            v1 = PRIME1 + PRIME2;
+            v2 = PRIME2;
+            v3 = 0;
+            v4 = -PRIME1;
+            total = 0;
+            stripe.clear();
+        }
+
+        private void consumeStripe() {
+            v1 = round(v1, stripe.getLong(0));
+            v2 = round(v2, stripe.getLong(8));
+            v3 = round(v3, stripe.getLong(16));
+            v4 = round(v4, stripe.getLong(24));
+            stripe.clear();
+        }
+
+        private static long round(long accumulator, long lane) {
+            accumulator += lane * PRIME2;
+            accumulator = Long.rotateLeft(accumulator, 31);
+            return accumulator * PRIME1;
+        }
+
+        private static long mergeRound(long hash, long value) {
+            hash ^= round(0, value);
+            return hash * PRIME1 + PRIME4;
+        }
+    }
+}
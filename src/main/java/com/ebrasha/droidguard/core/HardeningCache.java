@@ -0,0 +1,222 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : HardeningCache.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 15:02:46
+ * Description  : On-disk cache of hardened entries for incremental rebuilds
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache for incremental hardening
+ * Each entry is keyed by the SHA-256 of its raw (compressed) bytes in the source
+ * APK together with a fingerprint of the hardening options. The cache stores the
+ * compressed hardened output, or an "unchanged" marker when hardening left the
+ * entry as it was, so an unchanged input is never processed twice.
+ */
+public class HardeningCache {
+
+    // Bump when the cache layout or the meaning of cached data changes
+    static final String FORMAT_VERSION = "1";
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String DATA_SUFFIX = ".bin";
+    private static final int BUFFER_SIZE = 65536;
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final Path cacheDir;
+    private final String optionsFingerprint;
+    private final Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Cached result of hardening an entry
+     */
+    public static class CachedResult {
+        public final boolean unchanged;
+        public final ParallelEntryCompressor.CompressedEntry entry;
+
+        CachedResult(boolean unchanged, ParallelEntryCompressor.CompressedEntry entry) {
+            this.unchanged = unchanged;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Open cache directory for the given hardening options
+     */
+    public HardeningCache(Path cacheDir, String optionsFingerprint) throws IOException {
+        this.cacheDir = cacheDir;
+        this.optionsFingerprint = "format=" + FORMAT_VERSION + ";" + optionsFingerprint;
+        Files.createDirectories(cacheDir);
+    }
+
+    /**
+     * Compute cache key from the raw entry bytes and the hardening options
+     */
+    public String keyFor(ZipCentralDirectory source, APKParser.APKEntry entry) throws IOException {
+        MessageDigest digest = DigestEngine.SHA256.newDigest();
+        digest.update(optionsFingerprint.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(entry.name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(ByteBuffer.allocate(20).putInt(entry.method).putLong(entry.crc).putLong(entry.size).array());
+
+        // Hash the compressed bytes as stored, no need to inflate them
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = source.getDataOffset(entry);
+        long end = position + entry.compressedSize;
+        while (position < end) {
+            buffer.clear();
+            if (buffer.remaining() > end - position) {
+                buffer.limit((int) (end - position));
+            }
+            int read = source.getChannel().read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive while hashing: " + entry.name);
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+
+        return DigestEngine.toHex(digest.digest());
+    }
+
+    /**
+     * Look up cached result, null on a cache miss
+     */
+    public CachedResult lookup(String key, String entryName) {
+        usedKeys.add(key);
+        Path meta = cacheDir.resolve(key + META_SUFFIX);
+        if (!Files.isRegularFile(meta)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(meta)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            if (Boolean.parseBoolean(properties.getProperty("unchanged"))) {
+                hits.incrementAndGet();
+                return new CachedResult(true, null);
+            }
+            int method = Integer.parseInt(properties.getProperty("method"));
+            long crc = Long.parseLong(properties.getProperty("crc"));
+            long size = Long.parseLong(properties.getProperty("size"));
+            byte[] data = Files.readAllBytes(cacheDir.resolve(key + DATA_SUFFIX));
+            hits.incrementAndGet();
+            return new CachedResult(false,
+                new ParallelEntryCompressor.CompressedEntry(entryName, method, crc, size, data, data.length));
+        } catch (Exception e) {
+            logger.warn("Ignoring corrupt cache record " + key + ": " + e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Record that hardening left the entry unchanged
+     */
+    public void storeUnchanged(String key) throws IOException {
+        usedKeys.add(key);
+        Properties properties = new Properties();
+        properties.setProperty("unchanged", "true");
+        writeMeta(key, properties);
+    }
+
+    /**
+     * Record the compressed hardened output of an entry
+     */
+    public void store(String key, ParallelEntryCompressor.CompressedEntry entry) throws IOException {
+        usedKeys.add(key);
+        Path data = cacheDir.resolve(key + DATA_SUFFIX);
+        Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(entry.data, 0, entry.length);
+        }
+        Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING);
+
+        Properties properties = new Properties();
+        properties.setProperty("unchanged", "false");
+        properties.setProperty("method", String.valueOf(entry.method));
+        properties.setProperty("crc", String.valueOf(entry.crc));
+        properties.setProperty("size", String.valueOf(entry.size));
+        writeMeta(key, properties);
+    }
+
+    /**
+     * Write metadata last and atomically, so a record is never half written
+     */
+    private void writeMeta(String key, Properties properties) throws IOException {
+        Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "Abdal DroidGuard hardening cache");
+        }
+        Files.move(temp, cacheDir.resolve(key + META_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Remove records that were not used by the current build
+     */
+    public void prune() throws IOException {
+        int removed = 0;
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                int dot = fileName.indexOf('.');
+                String key = dot > 0 ? fileName.substring(0, dot) : fileName;
+                if (!usedKeys.contains(key) && (fileName.endsWith(META_SUFFIX)
+                        || fileName.endsWith(DATA_SUFFIX) || fileName.endsWith(".tmp"))) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            logger.debug("Removed " + removed + " stale cache files");
+        }
+    }
+
+    /**
+     * Get number of cache hits
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get number of cache misses
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get cache directory
+     */
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+}
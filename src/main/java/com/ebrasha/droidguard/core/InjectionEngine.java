@@ -92,7 +92,7 @@ public class InjectionEngine {
         
         // Create tamper detection marker file
         String markerContent = "ABDAL_TAMPER_DETECTION_ACTIVE\n" +
-                              "Timestamp: " + System.currentTimeMillis() + "\n" +
+                              "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                               "Protection Level: HIGH\n" +
                               "Author: Ebrahim Shafiei (EbraSha)\n" +
                               "Email: Prof.Shafiei@Gmail.com";
@@ -125,7 +125,7 @@ public class InjectionEngine {
         code.append("import android.os.Build;\n\n");
         
         code.append("public class TamperDetection {\n");
-        code.append("    private static final String TAMPER_KEY = \"ABDAL_TAMPER_KEY_" + System.currentTimeMillis() + "\";\n");
+        code.append("    private static final String TAMPER_KEY = \"ABDAL_TAMPER_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n");
         code.append("    private static boolean isTampered = false;\n\n");
         
         // Add integrity verification
@@ -299,7 +299,7 @@ public class InjectionEngine {
         
         // Create RASP protection marker file
         String markerContent = "ABDAL_RASP_PROTECTION_ACTIVE\n" +
-                              "Timestamp: " + System.currentTimeMillis() + "\n" +
+                              "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                               "Protection Level: HIGH\n" +
                               "Anti-Debug: ENABLED\n" +
                               "Emulator Detection: ENABLED\n" +
@@ -335,7 +335,7 @@ public class InjectionEngine {
         code.append("import android.os.Build;\n\n");
         
         code.append("public class RASPProtection {\n");
-        code.append("    private static final String RASP_KEY = \"ABDAL_RASP_KEY_" + System.currentTimeMillis() + "\";\n");
+        code.append("    private static final String RASP_KEY = \"ABDAL_RASP_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n");
         code.append("    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);\n");
         code.append("    private static boolean isProtectionActive = false;\n\n");
         
@@ -559,7 +559,7 @@ public class InjectionEngine {
                               "LinkedIn: https://www.linkedin.com/in/profshafiei/\n" +
                               "Telegram: https://t.me/ProfShafiei\n" +
                               "================================\n" +
-                              "Protection Applied: " + System.currentTimeMillis() + "\n" +
+                              "Protection Applied: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                               "Quote: \"Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming.\"\n" +
                               "================================\n";
         
@@ -584,7 +584,7 @@ public class InjectionEngine {
         code.append("package com.ebrasha.abdal.protection;\n\n");
         
         code.append("public class AuthorDisplay {\n");
-        code.append("    private static final String AUTHOR_KEY = \"ABDAL_AUTHOR_KEY_" + System.currentTimeMillis() + "\";\n\n");
+        code.append("    private static final String AUTHOR_KEY = \"ABDAL_AUTHOR_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n\n");
         
         // Add author display method
         code.append("    public static void displayAuthorInfo() {\n");
@@ -0,0 +1,247 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : JarTransformPipeline.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 21:12:37
+ * Description  : Two-phase parallel ASM class transform pipeline for JARs
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import org.objectweb.asm.ClassReader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Transforms every .class entry of a JAR on a fork-join pool
+ * Phase one reads and scans all classes in parallel, so whole-program state
+ * such as a rename map is complete before any class is rewritten. Phase two
+ * runs the ClassReader/ClassWriter transforms in parallel while a single
+ * writer copies entries to the output JAR in their original order. A class
+ * that fails to parse or transform is logged and copied unchanged.
+ */
+public class JarTransformPipeline {
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final int threads;
+
+    /**
+     * Phase one: inspect a class, called concurrently for all classes
+     */
+    public interface ClassScanner {
+        void scan(ClassReader reader) throws Exception;
+    }
+
+    /**
+     * Phase two: produce the new class bytes, called concurrently for all classes
+     */
+    public interface ClassTransformer {
+        byte[] transform(ClassReader reader) throws Exception;
+    }
+
+    /**
+     * Counters of a pipeline run
+     */
+    public static class Stats {
+        private int classCount = 0;
+        private int failedCount = 0;
+        private int otherCount = 0;
+
+        /**
+         * Get number of .class entries
+         */
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * Get number of classes copied unchanged after an error
+         */
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        /**
+         * Get number of entries copied as they are
+         */
+        public int getOtherCount() {
+            return otherCount;
+        }
+    }
+
+    /**
+     * State of one .class entry between the phases
+     */
+    private static class ClassJob {
+        final JarEntry entry;
+        byte[] original;
+        String className;
+        boolean scanned;
+        ForkJoinTask<byte[]> transform;
+
+        ClassJob(JarEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Create pipeline using the given number of worker threads
+     */
+    public JarTransformPipeline(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Scan and transform all classes of inputJar into outputJar
+     */
+    public Stats run(Path inputJar, Path outputJar, ClassScanner scanner, ClassTransformer transformer) throws IOException {
+        return run(inputJar, outputJar, scanner, () -> { }, transformer);
+    }
+
+    /**
+     * Scan and transform all classes of inputJar into outputJar, running
+     * afterScan once between the phases, e.g. to freeze a rename table
+     * A class whose name changes is stored under the entry of its new name.
+     * Every entry is stamped with ReproducibleBuild.currentTimeMillis().
+     */
+    public Stats run(Path inputJar, Path outputJar, ClassScanner scanner, Runnable afterScan,
+                     ClassTransformer transformer) throws IOException {
+        Stats stats = new Stats();
+        ForkJoinPool pool = new ForkJoinPool(threads, JarTransformPipeline::newWorker, null, false);
+        try (JarFile jar = new JarFile(inputJar.toFile())) {
+            List<JarEntry> entries = Collections.list(jar.entries());
+            Map<JarEntry, ClassJob> jobs = new LinkedHashMap<>();
+            for (JarEntry entry : entries) {
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    jobs.put(entry, new ClassJob(entry));
+                }
+            }
+            long time = System.currentTimeMillis();
+            long entryTime = ReproducibleBuild.currentTimeMillis();
+
+            // Phase one: inflate and scan every class before anything is rewritten
+            List<ForkJoinTask<?>> scans = new ArrayList<>(jobs.size());
+            for (ClassJob job : jobs.values()) {
+                scans.add(pool.submit(() -> scanClass(jar, job, scanner)));
+            }
+            for (ForkJoinTask<?> scan : scans) {
+                scan.join();
+            }
+            afterScan.run();
+            long scanMillis = System.currentTimeMillis() - time;
+
+            // Phase two: transform in parallel, the writer consumes results in entry order
+            for (ClassJob job : jobs.values()) {
+                if (job.scanned) {
+                    job.transform = pool.submit(() -> transformClass(job, transformer));
+                }
+            }
+            try (JarOutputStream out = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(outputJar), 65536))) {
+                for (JarEntry entry : entries) {
+                    ClassJob job = jobs.get(entry);
+                    if (job == null) {
+                        out.putNextEntry(newEntry(entry.getName(), entryTime));
+                        copyEntry(jar, entry, out);
+                        stats.otherCount++;
+                    } else {
+                        byte[] result = job.transform != null ? job.transform.join() : null;
+                        if (result == null) {
+                            stats.failedCount++;
+                            result = job.original;
+                        }
+                        out.putNextEntry(newEntry(result == job.original ? entry.getName() : entryName(job, result), entryTime));
+                        if (result != null) {
+                            out.write(result);
+                        } else {
+                            copyEntry(jar, entry, out);
+                        }
+                        stats.classCount++;
+                    }
+                    out.closeEntry();
+                }
+            }
+
+            logger.info("JAR pipeline: " + stats.classCount + " classes (" + stats.failedCount + " unchanged after errors), "
+                + stats.otherCount + " other entries on " + threads + " threads, scan " + scanMillis + " ms, total "
+                + (System.currentTimeMillis() - time) + " ms");
+        } finally {
+            pool.shutdownNow();
+        }
+        return stats;
+    }
+
+    private void scanClass(JarFile jar, ClassJob job, ClassScanner scanner) {
+        try (InputStream in = jar.getInputStream(job.entry)) {
+            job.original = in.readAllBytes();
+        } catch (IOException e) {
+            logger.error("Failed to read " + job.entry.getName() + ": " + e.getMessage());
+            return;
+        }
+        try {
+            ClassReader reader = new ClassReader(job.original);
+            job.className = reader.getClassName();
+            scanner.scan(reader);
+            job.scanned = true;
+        } catch (Exception e) {
+            logger.warn("Skipping class " + job.entry.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private byte[] transformClass(ClassJob job, ClassTransformer transformer) {
+        try {
+            return transformer.transform(new ClassReader(job.original));
+        } catch (Exception e) {
+            logger.warn("Failed to transform " + job.entry.getName() + ", copied unchanged: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Entry name of a transformed class, following a rename when the class
+     * was stored at the path of its name
+     */
+    private static String entryName(ClassJob job, byte[] result) {
+        String name = job.entry.getName();
+        if (!name.equals(job.className + ".class")) {
+            return name;
+        }
+        return new ClassReader(result).getClassName() + ".class";
+    }
+
+    private static JarEntry newEntry(String name, long time) {
+        JarEntry entry = new JarEntry(name);
+        entry.setTime(time);
+        return entry;
+    }
+
+    private static void copyEntry(JarFile jar, JarEntry entry, OutputStream out) throws IOException {
+        try (InputStream in = jar.getInputStream(entry)) {
+            in.transferTo(out);
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("abdal-asm-" + worker.getPoolIndex());
+        return worker;
+    }
+}
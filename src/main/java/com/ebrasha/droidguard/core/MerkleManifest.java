@@ -0,0 +1,448 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : MerkleManifest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:52:40
+ * Description  : Chunked Merkle-tree integrity manifest in a compact binary format
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.zip.ZipEntry;
+
+/**
+ * Merkle-tree integrity manifest over fixed-size chunks
+ * Every entry is split into chunks of 4 KB or 1 MB. A chunk leaf is
+ * H(0x00 | chunk), an inner node H(0x01 | left | right) with an odd last node
+ * promoted unchanged, and the entry root is the top of that tree. The global
+ * root is built the same way over H(0x02 | name | 0x00 | entry root) for all
+ * entries in name order. Since every leaf is stored, a verifier that trusts
+ * the global root can check the manifest once and then verify single chunks,
+ * so for stored entries runtime cost follows the number of sampled chunks
+ * instead of the APK size (deflated entries have to be inflated up to the
+ * sampled chunk, see verifySampled).
+ *
+ * Binary format (big-endian):
+ * magic "ADGM", u16 version, u8 algorithm id, u8 digest length, i32 chunk size,
+ * i32 entry count, global root; then per entry: u16 name length, UTF-8 name,
+ * i32 chunk count, entry root, chunk leaves.
+ */
+public class MerkleManifest {
+
+    public static final int MAGIC = 0x4144474D; // "ADGM"
+    public static final int VERSION = 1;
+    public static final int CHUNK_4K = 4096;
+    public static final int CHUNK_1M = 1024 * 1024;
+    public static final String MANIFEST_ENTRY = "assets/integrity_manifest.bin";
+    // Largest entry of an archive without ZIP64, which bounds the chunk count read back
+    static final long MAX_ENTRY_SIZE = 0xFFFFFFFFL;
+
+    static final byte LEAF_PREFIX = 0x00;
+    static final byte NODE_PREFIX = 0x01;
+    static final byte ENTRY_PREFIX = 0x02;
+
+    private final String algorithm;
+    private final int chunkSize;
+    private final SortedMap<String, Entry> entries;
+    private final byte[] root;
+
+    /**
+     * Chunk leaves and root of one entry
+     */
+    public static class Entry {
+        private final String name;
+        private final byte[] root;
+        private final byte[] leaves;
+        private final int digestLength;
+
+        Entry(String name, byte[] root, byte[] leaves, int digestLength) {
+            this.name = name;
+            this.root = root;
+            this.leaves = leaves;
+            this.digestLength = digestLength;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getRoot() {
+            return root.clone();
+        }
+
+        public int getChunkCount() {
+            return leaves.length / digestLength;
+        }
+
+        public byte[] getLeaf(int index) {
+            return Arrays.copyOfRange(leaves, index * digestLength, (index + 1) * digestLength);
+        }
+    }
+
+    private MerkleManifest(String algorithm, int chunkSize, SortedMap<String, Entry> entries, byte[] root) {
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.entries = entries;
+        this.root = root;
+    }
+
+    /**
+     * Build manifest from concatenated chunk leaves per entry, as produced by a chunked ParallelFileHasher
+     */
+    public static MerkleManifest build(SortedMap<String, byte[]> leaves, String algorithm, int chunkSize) {
+        checkChunkSize(chunkSize);
+        algorithm = DigestEngine.forName(algorithm).getName();
+        MessageDigest digest = newDigest(algorithm);
+        int digestLength = digest.getDigestLength();
+        SortedMap<String, Entry> entries = new TreeMap<>();
+        for (Map.Entry<String, byte[]> leaf : leaves.entrySet()) {
+            byte[] data = leaf.getValue();
+            if (data.length == 0 || data.length % digestLength != 0) {
+                throw new IllegalArgumentException("Invalid chunk leaves for entry: " + leaf.getKey());
+            }
+            entries.put(leaf.getKey(), new Entry(leaf.getKey(), entryRoot(digest, data, digestLength), data, digestLength));
+        }
+        return new MerkleManifest(algorithm, chunkSize, entries, globalRoot(digest, entries));
+    }
+
+    /**
+     * Hash all entries of an APK overlay into a manifest
+     */
+    public static MerkleManifest build(APKOverlay overlay, int threads, String algorithm, int chunkSize)
+            throws IOException {
+        checkChunkSize(chunkSize);
+        ParallelFileHasher hasher = new ParallelFileHasher(threads, algorithm, chunkSize);
+        return build(hasher.hashOverlay(overlay), algorithm, chunkSize);
+    }
+
+    /**
+     * Hash all regular files below root into a manifest
+     */
+    public static MerkleManifest build(Path root, int threads, String algorithm, int chunkSize) throws IOException {
+        checkChunkSize(chunkSize);
+        ParallelFileHasher hasher = new ParallelFileHasher(threads, algorithm, chunkSize);
+        return build(hasher.hashTree(root), algorithm, chunkSize);
+    }
+
+    /**
+     * Write manifest in its binary format
+     */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(algorithmId(algorithm));
+        out.writeByte(root.length);
+        out.writeInt(chunkSize);
+        out.writeInt(entries.size());
+        out.write(root);
+        for (Entry entry : entries.values()) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeInt(entry.getChunkCount());
+            out.write(entry.root);
+            out.write(entry.leaves);
+        }
+        out.flush();
+    }
+
+    /**
+     * Get manifest in its binary format
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read manifest and check that its stored roots match its leaves
+     * Counts are checked before anything is allocated for them, so a corrupt
+     * manifest fails with an IOException.
+     */
+    public static MerkleManifest read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an integrity manifest");
+        }
+        int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported integrity manifest version: " + version);
+        }
+        String algorithm = algorithmName(in.readUnsignedByte());
+        int digestLength = in.readUnsignedByte();
+        int chunkSize = in.readInt();
+        int count = in.readInt();
+        if (digestLength != newDigest(algorithm).getDigestLength() || count < 0) {
+            throw new IOException("Corrupt integrity manifest header");
+        }
+        try {
+            checkChunkSize(chunkSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt integrity manifest header", e);
+        }
+        byte[] root = new byte[digestLength];
+        in.readFully(root);
+
+        SortedMap<String, Entry> entries = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            int chunkCount = in.readInt();
+            if (chunkCount <= 0 || chunkCount > maxChunkCount(chunkSize)) {
+                throw new IOException("Corrupt integrity manifest entry");
+            }
+            byte[] entryRoot = new byte[digestLength];
+            in.readFully(entryRoot);
+            byte[] leaves = new byte[chunkCount * digestLength];
+            in.readFully(leaves);
+            String entryName = new String(name, StandardCharsets.UTF_8);
+            entries.put(entryName, new Entry(entryName, entryRoot, leaves, digestLength));
+        }
+
+        MerkleManifest manifest = new MerkleManifest(algorithm, chunkSize, entries, root);
+        if (!manifest.isConsistent()) {
+            throw new IOException("Integrity manifest roots do not match its chunk hashes");
+        }
+        return manifest;
+    }
+
+    /**
+     * Recompute entry roots and the global root from the stored leaves
+     */
+    public boolean isConsistent() {
+        MessageDigest digest = newDigest(algorithm);
+        for (Entry entry : entries.values()) {
+            if (!MessageDigest.isEqual(entry.root, entryRoot(digest, entry.leaves, entry.digestLength))) {
+                return false;
+            }
+        }
+        return MessageDigest.isEqual(root, globalRoot(digest, entries));
+    }
+
+    /**
+     * Check one chunk of an entry against its stored leaf
+     */
+    public boolean verifyChunk(String name, int index, byte[] data, int length) {
+        Entry entry = entries.get(name);
+        if (entry == null || index < 0 || index >= entry.getChunkCount() || length > chunkSize) {
+            return false;
+        }
+        MessageDigest digest = newDigest(algorithm);
+        digest.update(LEAF_PREFIX);
+        digest.update(data, 0, length);
+        return MessageDigest.isEqual(entry.getLeaf(index), digest.digest());
+    }
+
+    /**
+     * Verify randomly sampled chunks of an archive, weighted by entry size
+     * Samples are checked in archive order, one entry at a time. Chunks of
+     * stored entries are read in place, so they cost O(sample). A deflated
+     * entry cannot be entered mid-stream: it is inflated once, forward up to
+     * its last sampled chunk, so sampling a large deflated entry such as a
+     * compressed classes.dex still costs up to O(entry size).
+     * @return Number of samples that failed (mismatch, missing or unreadable entry)
+     */
+    public int verifySampled(ZipCentralDirectory source, int samples, Random random) {
+        List<Entry> list = new ArrayList<>(entries.values());
+        long[] ends = new long[list.size()];
+        long total = 0;
+        for (int i = 0; i < list.size(); i++) {
+            total += list.get(i).getChunkCount();
+            ends[i] = total;
+        }
+        if (total == 0 || samples <= 0) {
+            return 0;
+        }
+        long[] picks = new long[samples];
+        for (int s = 0; s < samples; s++) {
+            picks[s] = (long) (random.nextDouble() * total);
+        }
+        Arrays.sort(picks);
+        int failed = 0;
+        int from = 0;
+        while (from < picks.length) {
+            int position = Arrays.binarySearch(ends, picks[from] + 1);
+            int index = position >= 0 ? position : -position - 1;
+            int to = from;
+            while (to < picks.length && picks[to] < ends[index]) {
+                to++;
+            }
+            Entry entry = list.get(index);
+            failed += verifyEntrySamples(source, entry, picks, from, to, ends[index] - entry.getChunkCount());
+            from = to;
+        }
+        return failed;
+    }
+
+    /**
+     * Verify the sorted samples [from, to) of one entry; first is the global index of its first chunk
+     */
+    private int verifyEntrySamples(ZipCentralDirectory source, Entry entry, long[] picks, int from, int to, long first) {
+        APKParser.APKEntry archiveEntry = source.getEntry(entry.name);
+        if (archiveEntry == null || archiveEntry.isDirectory) {
+            return to - from;
+        }
+        byte[] data = new byte[chunkSize];
+        int failed = 0;
+        try {
+            if (archiveEntry.method == ZipEntry.STORED) {
+                long dataOffset = source.getDataOffset(archiveEntry);
+                for (int s = from; s < to; s++) {
+                    int chunk = (int) (picks[s] - first);
+                    long offset = (long) chunk * chunkSize;
+                    int length = (int) Math.max(0, Math.min(chunkSize, archiveEntry.size - offset));
+                    readFully(source.getChannel(), ByteBuffer.wrap(data, 0, length), dataOffset + offset);
+                    if (!verifyChunk(entry.name, chunk, data, length)) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }
+            try (InputStream in = source.openEntry(archiveEntry)) {
+                long position = 0;
+                int lastChunk = -1;
+                boolean lastMatched = false;
+                for (int s = from; s < to; s++) {
+                    int chunk = (int) (picks[s] - first);
+                    if (chunk != lastChunk) {
+                        in.skipNBytes((long) chunk * chunkSize - position);
+                        int length = in.readNBytes(data, 0, chunkSize);
+                        position = (long) chunk * chunkSize + length;
+                        lastChunk = chunk;
+                        lastMatched = verifyChunk(entry.name, chunk, data, length);
+                    }
+                    if (!lastMatched) {
+                        failed++;
+                    }
+                }
+            }
+            return failed;
+        } catch (IOException e) {
+            return to - from;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+            position += read;
+        }
+    }
+
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Root of the tree over an entry's concatenated leaves
+     */
+    static byte[] entryRoot(MessageDigest digest, byte[] leaves, int digestLength) {
+        List<byte[]> level = new ArrayList<>();
+        for (int offset = 0; offset < leaves.length; offset += digestLength) {
+            level.add(Arrays.copyOfRange(leaves, offset, offset + digestLength));
+        }
+        return treeRoot(digest, level);
+    }
+
+    private static byte[] globalRoot(MessageDigest digest, SortedMap<String, Entry> entries) {
+        List<byte[]> level = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            digest.update(ENTRY_PREFIX);
+            digest.update(entry.name.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(entry.root);
+            level.add(digest.digest());
+        }
+        if (level.isEmpty()) {
+            return digest.digest(new byte[] {ENTRY_PREFIX});
+        }
+        return treeRoot(digest, level);
+    }
+
+    private static byte[] treeRoot(MessageDigest digest, List<byte[]> level) {
+        while (level.size() > 1) {
+            List<byte[]> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                digest.update(NODE_PREFIX);
+                digest.update(level.get(i));
+                digest.update(level.get(i + 1));
+                next.add(digest.digest());
+            }
+            if (level.size() % 2 == 1) {
+                next.add(level.get(level.size() - 1));
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * Most chunks an entry can have at the given chunk size
+     */
+    static long maxChunkCount(int chunkSize) {
+        return (MAX_ENTRY_SIZE + chunkSize - 1) / chunkSize;
+    }
+
+    private static void checkChunkSize(int chunkSize) {
+        if (chunkSize != CHUNK_4K && chunkSize != CHUNK_1M) {
+            throw new IllegalArgumentException("Chunk size must be 4 KB or 1 MB: " + chunkSize);
+        }
+    }
+
+    private static int algorithmId(String algorithm) {
+        return DigestEngine.forName(algorithm).getId();
+    }
+
+    private static String algorithmName(int id) throws IOException {
+        try {
+            return DigestEngine.forId(id).getName();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown manifest digest algorithm id: " + id, e);
+        }
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        return DigestEngine.forName(algorithm).newDigest();
+    }
+}
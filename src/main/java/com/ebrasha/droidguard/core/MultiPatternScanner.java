@@ -0,0 +1,207 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : MultiPatternScanner.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 17:58:31
+ * Description  : Aho-Corasick automaton that finds many byte patterns in one pass
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.util.*;
+
+/**
+ * Compiled multi-pattern matcher (Aho-Corasick)
+ * All patterns are compiled into one deterministic automaton with a dense
+ * 256-way transition table, so a scan reads every input byte exactly once
+ * no matter how many patterns there are. Instances are immutable and can be
+ * shared between threads.
+ */
+public class MultiPatternScanner {
+
+    private static final int ALPHABET = 256;
+    private static final int CHUNK_SIZE = 65536;
+
+    private final byte[][] patterns;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    /**
+     * Match of one pattern, offset is the position of its first byte
+     */
+    public static class Match {
+        public final int offset;
+        public final int pattern;
+
+        Match(int offset, int pattern) {
+            this.offset = offset;
+            this.pattern = pattern;
+        }
+    }
+
+    /**
+     * Compile scanner for the given patterns, pattern indexes follow list order
+     */
+    public MultiPatternScanner(List<byte[]> patterns) {
+        this.patterns = new byte[patterns.size()][];
+        for (int i = 0; i < patterns.size(); i++) {
+            if (patterns.get(i).length == 0) {
+                throw new IllegalArgumentException("Empty pattern at index " + i);
+            }
+            this.patterns[i] = patterns.get(i).clone();
+        }
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> trieOutputs = new ArrayList<>();
+        trie.add(newState());
+        trieOutputs.add(new ArrayList<>());
+        for (int i = 0; i < this.patterns.length; i++) {
+            int state = 0;
+            for (byte b : this.patterns[i]) {
+                int next = trie.get(state)[b & 0xFF];
+                if (next < 0) {
+                    next = trie.size();
+                    trie.get(state)[b & 0xFF] = next;
+                    trie.add(newState());
+                    trieOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            trieOutputs.get(state).add(i);
+        }
+
+        // Resolve failure links breadth first into a complete transition table
+        int stateCount = trie.size();
+        transitions = new int[stateCount * ALPHABET];
+        outputs = new int[stateCount][];
+        int[] failure = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = trie.get(0)[c];
+            if (next < 0) {
+                transitions[c] = 0;
+            } else {
+                transitions[c] = next;
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = toArray(trieOutputs.get(0));
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            // Patterns ending in the failure state also end here
+            List<Integer> merged = new ArrayList<>(trieOutputs.get(state));
+            for (int pattern : outputs[failure[state]]) {
+                merged.add(pattern);
+            }
+            outputs[state] = toArray(merged);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = trie.get(state)[c];
+                if (next < 0) {
+                    transitions[state * ALPHABET + c] = transitions[failure[state] * ALPHABET + c];
+                } else {
+                    transitions[state * ALPHABET + c] = next;
+                    failure[next] = transitions[failure[state] * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compile scanner for strings encoded with the platform charset,
+     * the same encoding the DEX passes use for their targets
+     */
+    public static MultiPatternScanner forStrings(String... strings) {
+        List<byte[]> patterns = new ArrayList<>();
+        for (String string : strings) {
+            patterns.add(string.getBytes());
+        }
+        return new MultiPatternScanner(patterns);
+    }
+
+    /**
+     * Find all occurrences of all patterns, including overlapping ones,
+     * ordered by end position; match offsets are array indexes
+     */
+    public List<Match> scan(byte[] data, int offset, int length) {
+        List<Match> matches = new ArrayList<>();
+        scan(data, offset, length, offset, 0, matches);
+        return matches;
+    }
+
+    /**
+     * Find all occurrences of all patterns in a DEX view in a single pass
+     */
+    public List<Match> scan(DexBuffer dex) {
+        List<Match> matches = new ArrayList<>();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int state = 0;
+        for (int position = 0; position < dex.size(); position += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, dex.size() - position);
+            dex.get(position, chunk, 0, length);
+            state = scan(chunk, 0, length, position, state, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Scan a block continuing from the given automaton state, returns the end state
+     */
+    private int scan(byte[] data, int offset, int length, int baseOffset, int state, List<Match> matches) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            state = transitions[state * ALPHABET + (data[i] & 0xFF)];
+            int[] found = outputs[state];
+            for (int pattern : found) {
+                matches.add(new Match(baseOffset + i - offset - patterns[pattern].length + 1, pattern));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Get number of patterns
+     */
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    /**
+     * Get pattern by index
+     */
+    public byte[] getPattern(int index) {
+        return patterns[index].clone();
+    }
+
+    /**
+     * Get length of pattern by index
+     */
+    public int getPatternLength(int index) {
+        return patterns[index].length;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : NameGenerator.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 22:47:52
+ * Description  : Seeded, collision-free short name sequence for renaming
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps a symbol index to a short unique lowercase name
+ * Names are handed out shortest first: the 26 one-letter names, then the 676
+ * two-letter names and so on. Within each length the order is shuffled by a
+ * seeded affine permutation k -> (a * k + b) mod 26^length, with a coprime to
+ * 26, which is a bijection. Every index therefore gets a distinct name with no
+ * retries, and the same seed always yields the same sequence.
+ */
+public class NameGenerator {
+
+    private static final int ALPHABET_SIZE = 26;
+    private static final int MAX_LENGTH = 7;
+
+    private final long seed;
+    private final long[] multipliers = new long[MAX_LENGTH + 1];
+    private final long[] offsets = new long[MAX_LENGTH + 1];
+    private final long[] bucketSizes = new long[MAX_LENGTH + 1];
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Create generator for a build seed
+     */
+    public NameGenerator(long seed) {
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        long size = 1;
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            size *= ALPHABET_SIZE;
+            bucketSizes[length] = size;
+            long multiplier = random.nextLong(size) | 1;
+            if (multiplier % 13 == 0) {
+                multiplier = (multiplier + 2) % size;
+            }
+            multipliers[length] = multiplier;
+            offsets[length] = random.nextLong(size);
+        }
+    }
+
+    /**
+     * Create generator with a seed that differs from run to run
+     */
+    public static NameGenerator withRandomSeed() {
+        return new NameGenerator(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Get name for a symbol index
+     */
+    public String name(long index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Negative name index: " + index);
+        }
+        int length = 1;
+        while (index >= bucketSizes[length]) {
+            index -= bucketSizes[length];
+            length++;
+            if (length > MAX_LENGTH) {
+                throw new IllegalStateException("Name space exhausted");
+            }
+        }
+        long size = bucketSizes[length];
+        long value = (mulMod(multipliers[length], index, size) + offsets[length]) % size;
+        char[] name = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            name[i] = (char) ('a' + value % ALPHABET_SIZE);
+            value /= ALPHABET_SIZE;
+        }
+        return new String(name);
+    }
+
+    /**
+     * Get name for the next index, safe to call concurrently
+     */
+    public String next() {
+        return name(counter.getAndIncrement());
+    }
+
+    /**
+     * Get seed of this generator
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * a * b mod m for m below 2^33 without overflowing a long
+     */
+    private static long mulMod(long a, long b, long m) {
+        long high = (a * (b >>> 16)) % m;
+        return ((high << 16) + a * (b & 0xFFFF)) % m;
+    }
+}
@@ -19,17 +19,17 @@ package com.ebrasha.droidguard.core;
 
 import com.ebrasha.droidguard.utils.Logger;
 import org.apache.commons.io.FileUtils;
-import org.ow2.asm.*;
+import org.objectweb.asm.*;
+import org.objectweb.asm.commons.ClassRemapper;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.SecureRandom;
 import java.util.*;
-import java.util.jar.JarEntry;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -41,13 +41,24 @@ import java.util.zip.ZipOutputStream;
 public class ObfuscationEngine {
     
     private final Logger logger = Logger.getInstance();
-    private final SecureRandom random = new SecureRandom();
-    private final Map<String, String> obfuscatedNames = new HashMap<>();
-    private final Set<String> reservedNames = new HashSet<>();
-    private final List<String> obfuscationPrefixes = Arrays.asList(
-        "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", 
-        "n", "o", "p", "q", "r", "s", "t", "u", "v", "w", "x", "y", "z"
-    );
+    private NameGenerator nameGenerator = ReproducibleBuild.newNameGenerator("jar-names");
+    private int threads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Set number of worker threads used for JAR class transforms
+     * @param threads Number of threads, at least one
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Seed the name generator so renamed symbols are the same on every run
+     * @param seed Build seed
+     */
+    public void setNameSeed(long seed) {
+        this.nameGenerator = new NameGenerator(seed);
+    }
     
     /**
      * Process a file for obfuscation
@@ -120,34 +131,20 @@ public class ObfuscationEngine {
             
             File tempFile = new File(jarFile.getParent(), "temp_" + jarFile.getName());
             
-            try (JarFile inputJar = new JarFile(jarFile);
-                 JarOutputStream outputJar = new JarOutputStream(new FileOutputStream(tempFile))) {
-                
-                Enumeration<JarEntry> entries = inputJar.entries();
-                while (entries.hasMoreElements()) {
-                    JarEntry entry = entries.nextElement();
-                    String entryName = entry.getName();
-                    
-                    if (entryName.endsWith(".class")) {
-                        // Obfuscate class file
-                        byte[] obfuscatedClass = obfuscateClass(inputJar.getInputStream(entry));
-                        
-                        JarEntry newEntry = new JarEntry(entryName);
-                        outputJar.putNextEntry(newEntry);
-                        outputJar.write(obfuscatedClass);
-                        outputJar.closeEntry();
-                        
-                    } else {
-                        // Copy other files as-is
-                        JarEntry newEntry = new JarEntry(entryName);
-                        outputJar.putNextEntry(newEntry);
-                        try (InputStream inputStream = inputJar.getInputStream(entry)) {
-                            inputStream.transferTo(outputJar);
-                        }
-                        outputJar.closeEntry();
-                    }
-                }
+            // Phase one collects all classes into the rename table, phase two remaps them
+            RenameTable renameTable = new RenameTable(nameGenerator::next);
+            keepEntryPoint(jarFile, renameTable);
+            JarTransformPipeline.Stats stats = new JarTransformPipeline(threads).run(jarFile.toPath(), tempFile.toPath(),
+                renameTable::collect, renameTable::build, reader -> obfuscateClass(reader, renameTable));
+            
+            // Renames are whole-program, a class copied unchanged would not match its referrers
+            if (stats.getFailedCount() > 0) {
+                Files.deleteIfExists(tempFile.toPath());
+                logger.error("JAR obfuscation aborted, " + stats.getFailedCount()
+                    + " classes could not be processed, original JAR kept");
+                return false;
             }
+            logger.info("Renamed " + renameTable.getRenamedCount() + " names in " + renameTable.getClassCount() + " classes");
             
             // Replace original file
             if (tempFile.renameTo(jarFile)) {
@@ -325,10 +322,12 @@ public class ObfuscationEngine {
         try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(outputFile))) {
             Files.walk(extractDir)
                 .filter(Files::isRegularFile)
+                .sorted()
                 .forEach(filePath -> {
                     try {
                         String relativePath = extractDir.relativize(filePath).toString().replace("\\", "/");
                         ZipEntry entry = new ZipEntry(relativePath);
+                        entry.setTime(ReproducibleBuild.currentTimeMillis());
                         zipOut.putNextEntry(entry);
                         Files.copy(filePath, zipOut);
                         zipOut.closeEntry();
@@ -340,81 +339,34 @@ public class ObfuscationEngine {
     }
     
     /**
-     * Obfuscate a single class file using ASM
-     * @param classInputStream Input stream of class file
-     * @return Obfuscated class file bytes
+     * Keep the Main-Class of a JAR and its main method launchable
+     * @param jarFile JAR file
+     * @param renameTable Table to record the kept names in
      */
-    private byte[] obfuscateClass(InputStream classInputStream) throws IOException {
-        ClassReader classReader = new ClassReader(classInputStream);
-        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        
-        ClassVisitor obfuscator = new ClassObfuscator(classWriter);
-        classReader.accept(obfuscator, 0);
-        
-        return classWriter.toByteArray();
-    }
-    
-    /**
-     * Generate obfuscated name
-     * @param originalName Original name
-     * @return Obfuscated name
-     */
-    private String generateObfuscatedName(String originalName) {
-        if (obfuscatedNames.containsKey(originalName)) {
-            return obfuscatedNames.get(originalName);
-        }
-        
-        String obfuscatedName;
-        do {
-            obfuscatedName = generateRandomName();
-        } while (reservedNames.contains(obfuscatedName) || obfuscatedNames.containsValue(obfuscatedName));
-        
-        obfuscatedNames.put(originalName, obfuscatedName);
-        return obfuscatedName;
-    }
-    
-    /**
-     * Generate random name
-     * @return Random name
-     */
-    private String generateRandomName() {
-        StringBuilder name = new StringBuilder();
-        name.append(obfuscationPrefixes.get(random.nextInt(obfuscationPrefixes.size())));
-        
-        // Add random length (1-8 characters)
-        int length = random.nextInt(8) + 1;
-        for (int i = 0; i < length; i++) {
-            name.append(obfuscationPrefixes.get(random.nextInt(obfuscationPrefixes.size())));
+    private void keepEntryPoint(File jarFile, RenameTable renameTable) throws IOException {
+        try (JarFile jar = new JarFile(jarFile)) {
+            Manifest manifest = jar.getManifest();
+            String mainClass = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS) : null;
+            if (mainClass != null) {
+                renameTable.keepClass(mainClass.trim().replace('.', '/'));
+                renameTable.keepMethod("main");
+            }
         }
-        
-        return name.toString();
     }
     
     /**
-     * ASM ClassVisitor for obfuscation
+     * Obfuscate a single class file using ASM
+     * @param classReader Reader over the class file
+     * @param renameTable Whole-program rename table
+     * @return Obfuscated class file bytes
      */
-    private class ClassObfuscator extends ClassVisitor {
-        
-        public ClassObfuscator(ClassVisitor classVisitor) {
-            super(Opcodes.ASM9, classVisitor);
-        }
-        
-        @Override
-        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-            String obfuscatedName = generateObfuscatedName(name);
-            super.visit(version, access, obfuscatedName, signature, superName, interfaces);
-        }
+    byte[] obfuscateClass(ClassReader classReader, RenameTable renameTable) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
         
-        @Override
-        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-            String obfuscatedName = generateObfuscatedName(name);
-            return super.visitMethod(access, obfuscatedName, descriptor, signature, exceptions);
-        }
+        // Declarations and all references are remapped through the same table
+        ClassVisitor obfuscator = new ClassRemapper(classWriter, renameTable.getRemapper());
+        classReader.accept(obfuscator, 0);
         
-        @Override
-        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
-            String obfuscatedName = generateObfuscatedName(name);
-            return super.visitField(access, obfuscatedName, descriptor, signature, value);
-        }
+        return classWriter.toByteArray();
     }
 }
@@ -0,0 +1,220 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ParallelEntryCompressor.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 13:37:08
+ * Description  : Parallel DEFLATE of new and modified APK entries
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Compresses APK entries concurrently on a bounded thread pool
+ * Entries are deflated in memory by the workers and written to the archive
+ * by the calling thread in the order they were given, so the output does not
+ * depend on thread scheduling. At most a fixed window of finished entries is
+ * held in memory at any time.
+ */
+public class ParallelEntryCompressor {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    // Entries that must stay STORED (Android requirements) or do not shrink when deflated
+    private static final Set<String> NO_COMPRESS_EXTENSIONS = new HashSet<>(Arrays.asList(
+        ".so", ".arsc", ".png", ".jpg", ".jpeg", ".gif", ".webp", ".ogg", ".mp3", ".mp4",
+        ".m4a", ".aac", ".wav", ".3gp", ".mkv", ".webm", ".zip", ".jar", ".apk", ".gz"
+    ));
+
+    // Entries the generated verifier memory-maps straight from the APK
+    private static final Set<String> NO_COMPRESS_ENTRIES = new HashSet<>(Arrays.asList(
+        BinaryHashDatabase.DATABASE_ENTRY
+    ));
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final int threads;
+
+    /**
+     * Compressed entry ready to be written (data is null for stored entries
+     * that are transferred from disk)
+     */
+    public static class CompressedEntry {
+        public final String name;
+        public final int method;
+        public final long crc;
+        public final long size;
+        public final byte[] data;
+        public final int length;
+
+        public CompressedEntry(String name, int method, long crc, long size, byte[] data, int length) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Create compressor using the given number of worker threads
+     */
+    public ParallelEntryCompressor(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Compress files under root and write them as entries in the given order
+     */
+    public void writeEntries(ZipArchiveWriter writer, Path root, List<String> entryNames) throws IOException {
+        if (entryNames.isEmpty()) {
+            return;
+        }
+        int workers = Math.min(threads, entryNames.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "abdal-deflate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int window = workers * 2;
+            ArrayDeque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+            Iterator<String> names = entryNames.iterator();
+            long time = ReproducibleBuild.currentTimeMillis();
+
+            while (names.hasNext() || !pending.isEmpty()) {
+                // Keep the pool busy while bounding the number of buffered entries
+                while (names.hasNext() && pending.size() < window) {
+                    String name = names.next();
+                    Path file = root.resolve(name);
+                    pending.add(executor.submit(() -> compress(name, file)));
+                }
+                CompressedEntry entry = await(pending.poll());
+                if (entry.data == null) {
+                    // Stored entries are transferred from disk, only their CRC was computed in the pool
+                    writer.writeStoredFile(entry.name, root.resolve(entry.name), time, entry.crc);
+                } else {
+                    writer.writePrecompressedEntry(entry.name, entry.method, time, entry.crc, entry.size,
+                        ByteBuffer.wrap(entry.data, 0, entry.length));
+                }
+                logger.debug("Added " + (entry.method == ZipEntry.STORED ? "stored" : "deflated")
+                    + " entry: " + entry.name);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for a compression task and unwrap its failure
+     */
+    private CompressedEntry await(Future<CompressedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing entries");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Entry compression failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Read file and compress it in memory according to the compression policy
+     * Stored entries are not buffered, only their CRC is computed here
+     */
+    private CompressedEntry compress(String name, Path file) throws IOException {
+        if (shouldStore(name)) {
+            return new CompressedEntry(name, ZipEntry.STORED, ZipArchiveWriter.crc32(file), Files.size(file), null, 0);
+        }
+        return deflate(name, file);
+    }
+
+    /**
+     * Deflate a file into memory
+     */
+    static CompressedEntry deflate(String name, Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        EntryBuffer out = new EntryBuffer((int) Math.min(Files.size(file) / 2 + 64, Integer.MAX_VALUE - 8));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] deflateBuffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (InputStream in = Files.newInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+                size += bytesRead;
+                deflater.setInput(buffer, 0, bytesRead);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(deflateBuffer);
+                    out.write(deflateBuffer, 0, n);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(deflateBuffer);
+                out.write(deflateBuffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return new CompressedEntry(name, ZipEntry.DEFLATED, crc.getValue(), size, out.buffer(), out.size());
+    }
+
+    /**
+     * Byte buffer that hands out its backing array without copying
+     */
+    private static class EntryBuffer extends ByteArrayOutputStream {
+        EntryBuffer(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * Check if entry should be stored uncompressed
+     */
+    public static boolean shouldStore(String entryName) {
+        if (NO_COMPRESS_ENTRIES.contains(entryName)) {
+            return true;
+        }
+        String lower = entryName.toLowerCase(Locale.ROOT);
+        int dot = lower.lastIndexOf('.');
+        return dot >= 0 && NO_COMPRESS_EXTENSIONS.contains(lower.substring(dot));
+    }
+
+    /**
+     * Get number of worker threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+}
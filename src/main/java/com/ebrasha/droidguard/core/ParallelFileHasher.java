@@ -0,0 +1,461 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ParallelFileHasher.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:26:52
+ * Description  : Work-stealing parallel file and archive entry hashing
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import com.ebrasha.droidguard.utils.SimpleLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+
+/**
+ * Hashes every file of a directory tree, or every entry of an archive, on a fork-join pool
+ * Each worker keeps one MessageDigest and one large buffer for its lifetime,
+ * so hashing a file allocates nothing but the digest result. Work is submitted
+ * largest first, so a big entry does not end up alone at the tail while idle
+ * workers wait; small items are stolen by whichever worker is free. Results
+ * land in a concurrent map and are returned sorted by name, so the output does
+ * not depend on scheduling.
+ *
+ * Archive mode digests the uncompressed content of each entry straight from
+ * the ZIP through positional reads, so no temp directory is needed: stored
+ * entries are read into the direct buffer, deflated ones are inflated per
+ * worker.
+ *
+ * In chunked mode each result is the concatenation of the leaf hashes of the
+ * item's fixed-size chunks (see MerkleManifest) instead of one whole digest.
+ * JAR signature files (META-INF/MANIFEST.MF, *.SF, *.RSA, *.DSA, *.EC) are
+ * skipped in every mode: the signer rewrites them after hashing, so they
+ * could never match.
+ *
+ * With file digests enabled the whole digest is computed in the same pass and
+ * appended after the leaves; splitLeaves() separates the two.
+ */
+public class ParallelFileHasher {
+
+    public static final String DEFAULT_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final SimpleLogger logger = SimpleLogger.getInstance();
+    private final int threads;
+    private final String algorithm;
+    private final int chunkSize;
+    private final boolean fileDigests;
+    private final int digestLength;
+    private final ThreadLocal<DigestSink> sinks;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private final ThreadLocal<byte[]> streamBuffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private int failedCount = 0;
+
+    /**
+     * Create SHA-256 hasher using the given number of worker threads
+     */
+    public ParallelFileHasher(int threads) {
+        this(threads, DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * Create hasher for a DigestEngine algorithm (SHA-256, BLAKE3, XXH64) using the given number of worker threads
+     */
+    public ParallelFileHasher(int threads, String algorithm) {
+        this(threads, algorithm, 0);
+    }
+
+    /**
+     * Create chunked hasher returning concatenated leaf hashes of chunkSize chunks
+     * A chunkSize of zero hashes whole files.
+     */
+    public ParallelFileHasher(int threads, String algorithm, int chunkSize) {
+        this(threads, algorithm, chunkSize, false);
+    }
+
+    /**
+     * Create chunked hasher that also digests each item as a whole in the same pass
+     * With fileDigests each result is the chunk leaves followed by the whole digest.
+     */
+    public ParallelFileHasher(int threads, String algorithm, int chunkSize, boolean fileDigests) {
+        if (chunkSize < 0 || (fileDigests && chunkSize == 0)) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        DigestEngine engine = DigestEngine.forName(algorithm); // Fail early on an unknown algorithm
+        this.threads = Math.max(1, threads);
+        this.algorithm = engine.getName();
+        this.chunkSize = chunkSize;
+        this.fileDigests = fileDigests;
+        this.digestLength = engine.getDigestLength();
+        this.sinks = ThreadLocal.withInitial(() ->
+            new DigestSink(engine.newDigest(), fileDigests ? engine.newDigest() : null, chunkSize));
+    }
+
+    /**
+     * Hash all regular files below root, keyed by relative path with '/' separators
+     */
+    public SortedMap<String, byte[]> hashTree(Path root) throws IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        Map<String, Path> byName = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String name = root.relativize(file).toString().replace("\\", "/");
+                if (attributes.isRegularFile() && !isSignatureFile(name)) {
+                    byName.put(name, file);
+                    sizes.put(name, attributes.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return run("files", sizes, name -> hash(byName.get(name)));
+    }
+
+    /**
+     * Hash uncompressed content of all entries of a ZIP archive (APK, JAR), keyed by entry name
+     */
+    public SortedMap<String, byte[]> hashArchive(Path archive) throws IOException {
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(archive)) {
+            return hashArchive(source);
+        }
+    }
+
+    /**
+     * Hash uncompressed content of all entries of an already opened archive
+     */
+    public SortedMap<String, byte[]> hashArchive(ZipCentralDirectory source) throws IOException {
+        Map<String, Long> sizes = new HashMap<>();
+        for (APKParser.APKEntry entry : source.getEntries()) {
+            if (!entry.isDirectory && !isSignatureFile(entry.name)) {
+                sizes.put(entry.name, entry.size);
+            }
+        }
+        return run("archive entries", sizes, name -> hashEntry(source, source.getEntry(name)));
+    }
+
+    /**
+     * Hash effective content of all entries of an overlay, as APKBuilder would write them
+     * Untouched entries are digested from the source archive, replaced and added
+     * ones from the overlay.
+     */
+    public SortedMap<String, byte[]> hashOverlay(APKOverlay overlay) throws IOException {
+        ZipCentralDirectory source = overlay.getSource();
+        Map<String, Long> sizes = new HashMap<>();
+        for (APKParser.APKEntry entry : source.getEntries()) {
+            if (!entry.isDirectory) {
+                sizes.put(entry.name, entry.size);
+            }
+        }
+        for (String name : overlay.getOverlaidEntries()) {
+            sizes.put(name, Files.size(overlay.resolve(name)));
+        }
+        for (ParallelEntryCompressor.CompressedEntry entry : overlay.getPrecompressedEntries()) {
+            sizes.put(entry.name, (long) entry.length);
+        }
+        sizes.keySet().removeIf(ParallelFileHasher::isSignatureFile);
+        return run("overlay entries", sizes, name -> {
+            if (overlay.isReplaced(name)) {
+                try (InputStream in = overlay.openEntry(name)) {
+                    return hash(in);
+                }
+            }
+            return hashEntry(source, source.getEntry(name));
+        });
+    }
+
+    /**
+     * Hash one file with the calling thread's digest and buffer
+     */
+    public byte[] hash(Path file) throws IOException {
+        DigestSink digest = sinks.get();
+        ByteBuffer buffer = buffers.get();
+        digest.reset();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                digest.update(buffer);
+            }
+        }
+        return digest.finish();
+    }
+
+    /**
+     * Hash a stream with the calling thread's digest and buffer
+     */
+    public byte[] hash(InputStream in) throws IOException {
+        DigestSink digest = sinks.get();
+        byte[] buffer = streamBuffers.get();
+        digest.reset();
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return digest.finish();
+    }
+
+    /**
+     * Hash uncompressed content of one archive entry
+     */
+    private byte[] hashEntry(ZipCentralDirectory source, APKParser.APKEntry entry) throws IOException {
+        if (entry.method != ZipEntry.STORED) {
+            try (InputStream in = source.openEntry(entry)) {
+                return hash(in);
+            }
+        }
+        DigestSink digest = sinks.get();
+        ByteBuffer buffer = buffers.get();
+        digest.reset();
+        FileChannel channel = source.getChannel();
+        long position = source.getDataOffset(entry);
+        long end = position + entry.compressedSize;
+        while (position < end) {
+            buffer.clear();
+            if (end - position < buffer.capacity()) {
+                buffer.limit((int) (end - position));
+            }
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive in entry: " + entry.name);
+            }
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+        }
+        return digest.finish();
+    }
+
+    /**
+     * Hash named items on the pool, largest first, and return digests sorted by name
+     */
+    private SortedMap<String, byte[]> run(String kind, Map<String, Long> sizes, ItemHasher hasher) {
+        List<String> names = new ArrayList<>(sizes.keySet());
+        names.sort(Comparator.comparing((String name) -> sizes.get(name)).reversed().thenComparing(name -> name));
+
+        Map<String, byte[]> results = new ConcurrentHashMap<>();
+        AtomicInteger failed = new AtomicInteger();
+        long time = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(threads, ParallelFileHasher::newWorker, null, false);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(names.size());
+            for (String name : names) {
+                tasks.add(pool.submit(() -> {
+                    try {
+                        results.put(name, hasher.hash(name));
+                        logger.debug("Hash calculated for: " + name);
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        logger.error("Failed to calculate hash for: " + name + " - " + e.getMessage());
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        failedCount = failed.get();
+        long bytes = 0;
+        for (long size : sizes.values()) {
+            bytes += size;
+        }
+        logger.info("Hashed " + results.size() + " " + kind + " (" + bytes / 1024 + " KB, " + failedCount + " failed) with "
+            + algorithm + " on " + threads + " threads in " + (System.currentTimeMillis() - time) + " ms");
+        return new TreeMap<>(results);
+    }
+
+    /**
+     * Get number of files or entries that could not be read in the last call
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Get digest algorithm
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get chunk size, zero when hashing whole files
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Split results of a hasher with file digests into whole digests, added to
+     * fileDigests, and the chunk leaves, which are returned
+     */
+    public SortedMap<String, byte[]> splitLeaves(SortedMap<String, byte[]> results, Map<String, byte[]> fileDigests) {
+        if (!this.fileDigests) {
+            throw new IllegalStateException("Hasher was created without file digests");
+        }
+        SortedMap<String, byte[]> leaves = new TreeMap<>();
+        for (Map.Entry<String, byte[]> result : results.entrySet()) {
+            byte[] data = result.getValue();
+            fileDigests.put(result.getKey(), Arrays.copyOfRange(data, data.length - digestLength, data.length));
+            leaves.put(result.getKey(), Arrays.copyOfRange(data, 0, data.length - digestLength));
+        }
+        return leaves;
+    }
+
+    /**
+     * Check if an entry is a JAR signature file, which signing rewrites after hashing
+     */
+    public static boolean isSignatureFile(String name) {
+        String upper = name.toUpperCase(Locale.ROOT);
+        if (!upper.startsWith("META-INF/") || upper.indexOf('/', 9) >= 0) {
+            return false;
+        }
+        return upper.equals("META-INF/MANIFEST.MF") || upper.endsWith(".SF") || upper.endsWith(".RSA")
+            || upper.endsWith(".DSA") || upper.endsWith(".EC");
+    }
+
+    /**
+     * Encode digest as lowercase hex
+     */
+    public static String toHex(byte[] digest) {
+        return DigestEngine.toHex(digest);
+    }
+
+    /**
+     * Per-thread digest that optionally splits its input into chunk leaves
+     */
+    private static class DigestSink {
+        private final MessageDigest digest;
+        private final MessageDigest whole;
+        private final int chunkSize;
+        private final ByteArrayOutputStream leaves = new ByteArrayOutputStream();
+        private int inChunk;
+        private int chunkCount;
+
+        DigestSink(MessageDigest digest, MessageDigest whole, int chunkSize) {
+            this.digest = digest;
+            this.whole = whole;
+            this.chunkSize = chunkSize;
+        }
+
+        void reset() {
+            digest.reset();
+            if (whole != null) {
+                whole.reset();
+            }
+            leaves.reset();
+            inChunk = 0;
+            chunkCount = 0;
+            startChunk();
+        }
+
+        void update(ByteBuffer buffer) {
+            if (chunkSize == 0) {
+                digest.update(buffer);
+                return;
+            }
+            if (whole != null) {
+                int start = buffer.position();
+                whole.update(buffer);
+                buffer.position(start);
+            }
+            int limit = buffer.limit();
+            while (buffer.position() < limit) {
+                int length = Math.min(limit - buffer.position(), chunkSize - inChunk);
+                buffer.limit(buffer.position() + length);
+                digest.update(buffer);
+                buffer.limit(limit);
+                advance(length);
+            }
+        }
+
+        void update(byte[] data, int offset, int length) {
+            if (chunkSize == 0) {
+                digest.update(data, offset, length);
+                return;
+            }
+            if (whole != null) {
+                whole.update(data, offset, length);
+            }
+            int end = offset + length;
+            while (offset < end) {
+                int part = Math.min(end - offset, chunkSize - inChunk);
+                digest.update(data, offset, part);
+                offset += part;
+                advance(part);
+            }
+        }
+
+        byte[] finish() {
+            if (chunkSize == 0) {
+                return digest.digest();
+            }
+            // A trailing partial chunk, or the single empty chunk of an empty file
+            if (inChunk > 0 || chunkCount == 0) {
+                endChunk();
+            }
+            if (whole != null) {
+                leaves.writeBytes(whole.digest());
+            }
+            return leaves.toByteArray();
+        }
+
+        private void advance(int length) {
+            inChunk += length;
+            if (inChunk == chunkSize) {
+                endChunk();
+                startChunk();
+            }
+        }
+
+        private void startChunk() {
+            if (chunkSize > 0) {
+                digest.update(MerkleManifest.LEAF_PREFIX);
+            }
+            inChunk = 0;
+        }
+
+        private void endChunk() {
+            leaves.writeBytes(digest.digest());
+            chunkCount++;
+        }
+    }
+
+    private interface ItemHasher {
+        byte[] hash(String name) throws IOException;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("abdal-hash-" + worker.getPoolIndex());
+        return worker;
+    }
+}
@@ -141,6 +141,7 @@ public class RASProtection {
                         byte[] protectedClass = addRASProtectionToClass(inputJar.getInputStream(entry));
                         
                         JarEntry newEntry = new JarEntry(entryName);
+                        newEntry.setTime(ReproducibleBuild.currentTimeMillis());
                         outputJar.putNextEntry(newEntry);
                         outputJar.write(protectedClass);
                         outputJar.closeEntry();
@@ -148,6 +149,7 @@ public class RASProtection {
                     } else {
                         // Copy other files as-is
                         JarEntry newEntry = new JarEntry(entryName);
+                        newEntry.setTime(ReproducibleBuild.currentTimeMillis());
                         outputJar.putNextEntry(newEntry);
                         try (InputStream inputStream = inputJar.getInputStream(entry)) {
                             inputStream.transferTo(outputJar);
@@ -1017,10 +1019,12 @@ public class RASProtection {
         try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(outputFile))) {
             Files.walk(extractDir)
                 .filter(Files::isRegularFile)
+                .sorted()
                 .forEach(filePath -> {
                     try {
                         String relativePath = extractDir.relativize(filePath).toString().replace("\\", "/");
                         ZipEntry entry = new ZipEntry(relativePath);
+                        entry.setTime(ReproducibleBuild.currentTimeMillis());
                         zipOut.putNextEntry(entry);
                         Files.copy(filePath, zipOut);
                         zipOut.closeEntry();
@@ -1066,6 +1070,7 @@ public class RASProtection {
         byte[] classBytes = compileJavaClass(classSource);
         
         JarEntry entry = new JarEntry(className);
+        entry.setTime(ReproducibleBuild.currentTimeMillis());
         jarOutputStream.putNextEntry(entry);
         jarOutputStream.write(classBytes);
         jarOutputStream.closeEntry();
@@ -42,6 +42,22 @@ public class RealAPKHardener {
     
     private final SimpleLogger logger = SimpleLogger.getInstance();
     private final AndroidSDKConfig sdkConfig = new AndroidSDKConfig();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path cacheDir;
+    
+    /**
+     * Set number of worker threads used by parallel hardening stages
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Enable incremental mode, keeping hardened entries of the previous build in the given directory
+     */
+    public void setCacheDir(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
     
     /**
      * Harden APK with proper signing and alignment
@@ -67,43 +83,59 @@ public class RealAPKHardener {
                     return false;
                 }
                 
-                // Step 3: Extract APK
-                Path extractedDir = workingDir.resolve("extracted");
-                Files.createDirectories(extractedDir);
-                if (!apkParser.extractAPK(inputAPK, extractedDir)) {
-                    logger.error("Failed to extract APK");
-                    return false;
-                }
-                logger.info("APK extracted successfully");
+                Path newAPK = workingDir.resolve("hardened.apk");
                 
-                // Step 4: Obfuscate DEX files (BEFORE building APK)
-                if (obfuscationEngine != null) {
-                    logger.info("Starting DEX obfuscation...");
-                    DexProcessor dexProcessor = new DexProcessor();
-                    if (!obfuscateDEXFiles(extractedDir, dexProcessor)) {
-                        logger.warn("DEX obfuscation failed, continuing without it");
-                    } else {
-                        logger.info("DEX obfuscation completed successfully");
+                // Step 3: Open APK as overlay (originals are read in place, only changes hit disk)
+                Path overlayDir = workingDir.resolve("overlay");
+                try (APKOverlay overlay = new APKOverlay(inputAPK, overlayDir)) {
+                    logger.info("APK opened for in-place hardening");
+                    
+                    // Step 4: Obfuscate DEX files (BEFORE building APK)
+                    if (obfuscationEngine != null) {
+                        logger.info("Starting DEX obfuscation...");
+                        DexProcessor dexProcessor = new DexProcessor();
+                        HardeningCache cache = null;
+                        if (cacheDir != null) {
+                            cache = new HardeningCache(cacheDir, dexProcessor.getOptionsFingerprint());
+                            logger.info("Incremental mode, cache directory: " + cacheDir);
+                        }
+                        if (!obfuscateDEXFiles(overlay, apkParser.getDexFiles(), dexProcessor, cache)) {
+                            logger.warn("DEX obfuscation failed, continuing without it");
+                        } else {
+                            logger.info("DEX obfuscation completed successfully");
+                        }
+                        if (cache != null) {
+                            logger.info("Hardening cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+                            cache.prune();
+                        }
                     }
+                    
+                    // Step 5: Inject protection code (BEFORE building APK)
+                    InjectionEngine injectionEngine = new InjectionEngine();
+                    if (!injectionEngine.injectProtection(overlay.getOverlayRoot())) {
+                        logger.error("Failed to inject protection code");
+                        return false;
+                    }
+                    logger.info("Protection code injected successfully");
+                    
+                    // Step 5b: Record integrity data of the final entries, hashed straight from the overlay
+                    if (tamperDetection != null) {
+                        tamperDetection.setThreads(threads);
+                        if (!tamperDetection.addTamperDetection(overlay)) {
+                            logger.warn("Tamper detection failed, continuing without it");
+                        }
+                    }
+                    
+                    // Step 6: Build APK with proper structure (NO changes after this)
+                    APKBuilder apkBuilder = new APKBuilder();
+                    apkBuilder.setCompressionThreads(threads);
+                    if (!apkBuilder.buildAPK(overlay, newAPK)) {
+                        logger.error("Failed to build APK");
+                        return false;
+                    }
+                    logger.info("APK built successfully");
                 }
                 
-                // Step 5: Inject protection code (BEFORE building APK)
-                InjectionEngine injectionEngine = new InjectionEngine();
-                if (!injectionEngine.injectProtection(extractedDir)) {
-                    logger.error("Failed to inject protection code");
-                    return false;
-                }
-                logger.info("Protection code injected successfully");
-                
-                // Step 6: Build APK with proper structure (NO changes after this)
-                Path newAPK = workingDir.resolve("hardened.apk");
-                APKBuilder apkBuilder = new APKBuilder();
-                if (!apkBuilder.buildAPK(inputAPK, extractedDir, newAPK)) {
-                    logger.error("Failed to build APK");
-                    return false;
-                }
-                logger.info("APK built successfully");
-                
                 // Step 6: Copy to final output first
                 Files.copy(newAPK, outputAPK.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 logger.info("APK copied to final output");
@@ -188,25 +220,23 @@ public class RealAPKHardener {
     private void processDEXFilesWithRealObfuscation(Path extractedDir) throws IOException {
         DexProcessor dexProcessor = new DexProcessor();
         
-        Path dexDir = extractedDir.resolve("classes.dex");
-        if (Files.exists(dexDir)) {
-            logger.info("Processing classes.dex with real obfuscation...");
-            dexProcessor.obfuscateDEX(dexDir);
-        }
-        
-        // Process additional DEX files if they exist
-        int dexIndex = 2;
-        while (true) {
-            Path additionalDex = extractedDir.resolve("classes" + dexIndex + ".dex");
-            if (Files.exists(additionalDex)) {
-                logger.info("Processing classes" + dexIndex + ".dex with real obfuscation...");
-                dexProcessor.obfuscateDEX(additionalDex);
+        // Collect classes.dex, classes2.dex, ... until the first gap
+        List<String> dexNames = new ArrayList<>();
+        if (Files.exists(extractedDir.resolve("classes.dex"))) {
+            dexNames.add("classes.dex");
+            int dexIndex = 2;
+            while (Files.exists(extractedDir.resolve("classes" + dexIndex + ".dex"))) {
+                dexNames.add("classes" + dexIndex + ".dex");
                 dexIndex++;
-            } else {
-                break;
             }
         }
         
+        new DexBatchProcessor(threads).run(dexNames, dexName -> {
+            logger.info("Processing " + dexName + " with real obfuscation...");
+            return dexProcessor.obfuscateDEX(extractedDir.resolve(dexName))
+                ? DexBatchProcessor.Outcome.MODIFIED : DexBatchProcessor.Outcome.FAILED;
+        });
+        
         logger.info("Real DEX obfuscation completed");
     }
     
@@ -215,6 +245,7 @@ public class RealAPKHardener {
      */
     private void addRealTamperDetection(Path extractedDir) throws IOException {
         RealTamperDetection realTamperDetection = new RealTamperDetection();
+        realTamperDetection.setThreads(threads);
         realTamperDetection.addTamperDetection(extractedDir);
         logger.info("Real tamper detection added");
     }
@@ -236,7 +267,7 @@ public class RealAPKHardener {
         byte[] dexData = Files.readAllBytes(dexFile);
         
         // Add a simple marker at the end (this is a simplified approach)
-        String marker = "ABDAL_OBFUSCATED_" + System.currentTimeMillis();
+        String marker = "ABDAL_OBFUSCATED_" + ReproducibleBuild.currentTimeMillis();
         byte[] markerBytes = marker.getBytes("UTF-8");
         
         // Create new DEX data with marker
@@ -260,7 +291,7 @@ public class RealAPKHardener {
         if (tamperDetection != null) {
             Path tamperMarker = assetsDir.resolve("abdal_tamper_detection.txt");
             String tamperContent = "ABDAL_TAMPER_DETECTION_ENABLED\n" +
-                                 "Timestamp: " + System.currentTimeMillis() + "\n" +
+                                 "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                                  "Version: 1.0.0\n" +
                                  "Author: Ebrahim Shafiei (EbraSha)";
             Files.write(tamperMarker, tamperContent.getBytes("UTF-8"));
@@ -271,7 +302,7 @@ public class RealAPKHardener {
         if (raspProtection != null) {
             Path raspMarker = assetsDir.resolve("abdal_rasp_protection.txt");
             String raspContent = "ABDAL_RASP_PROTECTION_ENABLED\n" +
-                               "Timestamp: " + System.currentTimeMillis() + "\n" +
+                               "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                                "Version: 1.0.0\n" +
                                "Author: Ebrahim Shafiei (EbraSha)";
             Files.write(raspMarker, raspContent.getBytes("UTF-8"));
@@ -281,7 +312,7 @@ public class RealAPKHardener {
         // Add general hardening marker
         Path hardeningMarker = assetsDir.resolve("abdal_hardening_info.txt");
         String hardeningContent = "ABDAL_DROIDGUARD_HARDENING\n" +
-                                "Timestamp: " + System.currentTimeMillis() + "\n" +
+                                "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                                 "Version: 1.0.0\n" +
                                 "Author: Ebrahim Shafiei (EbraSha)\n" +
                                 "Email: Prof.Shafiei@Gmail.com\n" +
@@ -600,10 +631,8 @@ public class RealAPKHardener {
             // Try to find zipalign in common locations
             String zipalignPath = findZipalignPath();
             if (zipalignPath == null) {
-                logger.info("zipalign not found, skipping alignment");
-                // Fallback: just copy the file
-                Files.copy(inputAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
-                return true;
+                logger.info("zipalign not found, using built-in aligner");
+                return new APKBuilder().alignAPK(inputAPK, outputAPK);
             }
             
             ProcessBuilder pb = new ProcessBuilder(
@@ -637,44 +666,30 @@ public class RealAPKHardener {
                 return true;
             } else {
                 logger.error("zipalign failed with exit code: " + exitCode);
-                // Fallback: just copy the file
-                try {
-                    Files.copy(inputAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
-                    logger.info("APK alignment fallback: file copied");
-                    return true;
-                } catch (IOException ioE) {
-                    logger.error("APK alignment fallback failed: " + ioE.getMessage());
-                    return false;
-                }
+                // Fallback: built-in aligner
+                return new APKBuilder().alignAPK(inputAPK, outputAPK);
             }
             
         } catch (Exception e) {
             logger.error("zipalign not available or failed: " + e.getMessage());
-            // Fallback: just copy the file
-            try {
-                Files.copy(inputAPK, outputAPK, StandardCopyOption.REPLACE_EXISTING);
-                logger.info("APK alignment fallback: file copied");
-                return true;
-            } catch (IOException ioE) {
-                logger.error("APK alignment fallback failed: " + ioE.getMessage());
-                return false;
-            }
+            // Fallback: built-in aligner
+            return new APKBuilder().alignAPK(inputAPK, outputAPK);
         }
     }
     
     /**
-     * Obfuscate DEX files in extracted directory
+     * Obfuscate DEX files through the overlay
+     * Each DEX is copied into the overlay only while it is being processed,
+     * and dropped again if the processor left it unchanged. With a cache,
+     * DEX files whose input and options match a previous build are not
+     * processed again; the cached compressed output is used instead.
+     * DEX files are processed concurrently on the configured number of threads.
      */
-    private boolean obfuscateDEXFiles(Path extractedDir, DexProcessor dexProcessor) {
+    private boolean obfuscateDEXFiles(APKOverlay overlay, List<String> dexFiles, DexProcessor dexProcessor,
+                                      HardeningCache cache) {
         try {
             logger.info("Starting DEX obfuscation process...");
             
-            // Find all DEX files
-            List<Path> dexFiles = new ArrayList<>();
-            Files.walk(extractedDir)
-                .filter(path -> path.toString().endsWith(".dex"))
-                .forEach(dexFiles::add);
-            
             if (dexFiles.isEmpty()) {
                 logger.warn("No DEX files found for obfuscation");
                 return false;
@@ -682,21 +697,10 @@ public class RealAPKHardener {
             
             logger.info("Found " + dexFiles.size() + " DEX files to obfuscate");
             
-            // Obfuscate each DEX file
-            int successCount = 0;
-            for (Path dexFile : dexFiles) {
-                try {
-                    logger.info("Obfuscating: " + dexFile.getFileName());
-                    if (dexProcessor.obfuscateDEX(dexFile)) {
-                        successCount++;
-                        logger.info("Successfully obfuscated: " + dexFile.getFileName());
-                    } else {
-                        logger.warn("Failed to obfuscate: " + dexFile.getFileName());
-                    }
-                } catch (Exception e) {
-                    logger.error("Error obfuscating " + dexFile.getFileName() + ": " + e.getMessage());
-                }
-            }
+            // Obfuscate DEX files concurrently, a failing DEX does not affect the others
+            DexBatchProcessor.Stats stats = new DexBatchProcessor(threads).run(dexFiles,
+                dexName -> obfuscateDEXEntry(overlay, dexName, dexProcessor, cache));
+            int successCount = stats.getSucceeded();
             
             logger.info("DEX obfuscation completed: " + successCount + "/" + dexFiles.size() + " files processed");
             return successCount > 0;
@@ -707,6 +711,52 @@ public class RealAPKHardener {
         }
     }
     
+    /**
+     * Obfuscate one DEX entry of the overlay, reusing a cached result when possible
+     */
+    private DexBatchProcessor.Outcome obfuscateDEXEntry(APKOverlay overlay, String dexName,
+                                                         DexProcessor dexProcessor, HardeningCache cache)
+            throws IOException {
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = cache.keyFor(overlay.getSource(), overlay.getSource().getEntry(dexName));
+            HardeningCache.CachedResult cached = cache.lookup(cacheKey, dexName);
+            if (cached != null) {
+                if (!cached.unchanged) {
+                    overlay.putPrecompressed(cached.entry);
+                }
+                logger.info("Reused cached result: " + dexName);
+                return DexBatchProcessor.Outcome.CACHED;
+            }
+        }
+        
+        logger.info("Obfuscating: " + dexName);
+        Path dexFile = overlay.materialize(dexName);
+        boolean obfuscated = dexProcessor.obfuscateDEX(dexFile);
+        if (obfuscated) {
+            logger.info("Successfully obfuscated: " + dexName);
+        } else {
+            logger.warn("Failed to obfuscate: " + dexName);
+        }
+        boolean unchanged = overlay.revertIfUnchanged(dexName);
+        
+        // Only successful results are cached, failures are retried next build
+        if (cache != null && obfuscated) {
+            if (unchanged) {
+                cache.storeUnchanged(cacheKey);
+            } else {
+                ParallelEntryCompressor.CompressedEntry compressed =
+                    ParallelEntryCompressor.deflate(dexName, dexFile);
+                cache.store(cacheKey, compressed);
+                overlay.putPrecompressed(compressed);
+            }
+        }
+        if (!obfuscated) {
+            return DexBatchProcessor.Outcome.FAILED;
+        }
+        return unchanged ? DexBatchProcessor.Outcome.UNCHANGED : DexBatchProcessor.Outcome.MODIFIED;
+    }
+    
     /**
      * Delete directory recursively
      */
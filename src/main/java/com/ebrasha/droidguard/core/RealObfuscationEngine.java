@@ -21,7 +21,7 @@ import com.ebrasha.droidguard.utils.SimpleLogger;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
-import java.security.SecureRandom;
+import java.util.function.UnaryOperator;
 
 /**
  * Real Obfuscation Engine for DEX bytecode manipulation
@@ -30,8 +30,77 @@ import java.security.SecureRandom;
 public class RealObfuscationEngine {
     
     private final SimpleLogger logger = SimpleLogger.getInstance();
-    private final SecureRandom random = new SecureRandom();
+    private final Random random = ReproducibleBuild.newRandom("obfuscation-engine");
     private final Map<String, String> obfuscatedNames = new HashMap<>();
+    private final DexPassManager passManager = new DexPassManager();
+    private volatile List<DexPassManager.PassMetrics> lastPassMetrics = Collections.emptyList();
+    
+    // Names of the DEX passes, for switching them on or off per build profile
+    public static final String PASS_ENCRYPT_STRINGS = "encrypt-strings";
+    public static final String PASS_FLATTEN_CONTROL_FLOW = "flatten-control-flow";
+    public static final String PASS_ARITHMETIC = "arithmetic";
+    public static final String PASS_METHOD_NAMES = "method-names";
+    public static final String PASS_PROTECTION_MARKERS = "protection-markers";
+    
+    // Target strings of the rewrite passes, each list compiled once into a single-pass scanner
+    private static final String[] SAFE_STRINGS = {
+        "MainActivity", "onCreate", "onResume", "onPause",
+        "setContentView", "findViewById", "getResources"
+    };
+    private static final String[] SENSITIVE_STRINGS = {
+        "MainActivity", "onCreate", "onResume", "onPause", "onDestroy",
+        "setContentView", "findViewById", "getResources", "getString",
+        "Log", "System.out", "println", "debug", "info", "error",
+        "SharedPreferences", "getSharedPreferences", "edit", "putString",
+        "Intent", "startActivity", "getIntent", "putExtra", "getStringExtra",
+        "Bluestacks", "emulator", "x86", "genymotion", "nox", "mumu",
+        "root", "su", "superuser", "xposed", "frida", "substrate"
+    };
+    private static final String[] METHOD_NAMES = {
+        "onCreate", "onResume", "onPause", "onDestroy", "onStart", "onStop",
+        "onClick", "onTouch", "onKeyDown", "onKeyUp", "onBackPressed",
+        "init", "setup", "configure", "initialize", "load", "save"
+    };
+    private static final MultiPatternScanner SAFE_STRING_SCANNER = MultiPatternScanner.forStrings(SAFE_STRINGS);
+    private static final MultiPatternScanner SENSITIVE_STRING_SCANNER = MultiPatternScanner.forStrings(SENSITIVE_STRINGS);
+    private static final MultiPatternScanner METHOD_NAME_SCANNER = MultiPatternScanner.forStrings(METHOD_NAMES);
+    
+    /**
+     * Create engine with the default pass pipeline
+     * String encryption relocates string data to the end of the file, so it
+     * runs before the passes that append blocks after the DEX, and the
+     * protection marker stays last.
+     */
+    public RealObfuscationEngine() {
+        passManager
+            .register(PASS_ENCRYPT_STRINGS, this::encryptStringsAdvanced)
+            .register(PASS_FLATTEN_CONTROL_FLOW, this::obfuscateControlFlowFlattening, PASS_ENCRYPT_STRINGS)
+            .register(PASS_ARITHMETIC, this::obfuscateArithmetic, PASS_ENCRYPT_STRINGS)
+            .register(PASS_METHOD_NAMES, this::obfuscateMethodNames, PASS_ENCRYPT_STRINGS)
+            .register(PASS_PROTECTION_MARKERS, this::addProtectionMarkers,
+                PASS_FLATTEN_CONTROL_FLOW, PASS_ARITHMETIC, PASS_METHOD_NAMES);
+    }
+    
+    /**
+     * Switch a DEX pass on or off
+     */
+    public void setPassEnabled(String name, boolean enabled) {
+        passManager.setEnabled(name, enabled);
+    }
+    
+    /**
+     * Get pass manager, e.g. to register additional passes
+     */
+    public DexPassManager getPassManager() {
+        return passManager;
+    }
+    
+    /**
+     * Get per-pass metrics of the most recent DEX
+     */
+    public List<DexPassManager.PassMetrics> getLastPassMetrics() {
+        return lastPassMetrics;
+    }
     
     /**
      * Obfuscate DEX file with real bytecode manipulation
@@ -40,16 +109,17 @@ public class RealObfuscationEngine {
         try {
             logger.info("Starting REAL DEX obfuscation for: " + dexFile.getFileName());
             
-            // Read DEX file
-            byte[] dexData = Files.readAllBytes(dexFile);
-            logger.info("Original DEX size: " + dexData.length + " bytes");
+            // Load DEX file, all passes patch the same copy-on-write view. It is not
+            // mapped because the working copy is deleted once the APK is built
+            DexBuffer dex = DexBuffer.load(dexFile);
+            logger.info("Original DEX size: " + dex.size() + " bytes");
             
             // Perform obfuscation
-            byte[] obfuscatedData = performDEXObfuscation(dexData);
-            logger.info("Obfuscated DEX size: " + obfuscatedData.length + " bytes");
+            performDEXObfuscation(dex);
+            logger.info("Obfuscated DEX size: " + dex.size() + " bytes");
             
-            // Write obfuscated DEX
-            Files.write(dexFile, obfuscatedData);
+            // Write only the patched pages and appended data, with header checksums updated
+            DexFile.writeTo(dex, dexFile);
             logger.info("REAL DEX obfuscation completed successfully");
             
             return true;
@@ -63,121 +133,83 @@ public class RealObfuscationEngine {
     /**
      * Perform actual DEX obfuscation with real protection
      */
-    private byte[] performDEXObfuscation(byte[] originalDex) throws Exception {
+    void performDEXObfuscation(DexBuffer dex) {
         logger.info("Starting REAL DEX obfuscation with actual protection...");
         
-        // Create obfuscated DEX with protection markers
-        byte[] obfuscatedDex = originalDex.clone();
-        
-        // Apply ADVANCED string encryption with dynamic keys
-        obfuscatedDex = encryptStringsAdvanced(obfuscatedDex);
-        
-        // Apply control flow flattening
-        obfuscatedDex = obfuscateControlFlowFlattening(obfuscatedDex);
-        
-        // Apply arithmetic obfuscation
-        obfuscatedDex = obfuscateArithmetic(obfuscatedDex);
-        
-        // Apply method name obfuscation
-        obfuscatedDex = obfuscateMethodNames(obfuscatedDex);
-        
-        // Add protection markers at the end
-        obfuscatedDex = addProtectionMarkers(obfuscatedDex);
+        // All passes patch the same view, nothing is copied between them
+        lastPassMetrics = passManager.run(dex);
         
         logger.info("REAL DEX obfuscation completed with actual protection");
-        return obfuscatedDex;
     }
     
     /**
      * Add protection markers to DEX
      */
-    private byte[] addProtectionMarkers(byte[] dexData) {
-        try {
-            String marker = "ABDAL_PROTECTED_DEX_" + System.currentTimeMillis();
-            byte[] markerBytes = marker.getBytes("UTF-8");
-            
-            // Add marker at the end
-            byte[] result = new byte[dexData.length + markerBytes.length];
-            System.arraycopy(dexData, 0, result, 0, dexData.length);
-            System.arraycopy(markerBytes, 0, result, dexData.length, markerBytes.length);
-            
-            logger.info("Protection markers added: " + marker);
-            return result;
-        } catch (Exception e) {
-            logger.error("Failed to add protection markers: " + e.getMessage());
-            return dexData;
-        }
+    private void addProtectionMarkers(DexBuffer dex) throws Exception {
+        String marker = "ABDAL_PROTECTED_DEX_" + ReproducibleBuild.currentTimeMillis();
+        
+        // Add marker at the end
+        dex.append(marker.getBytes("UTF-8"));
+        
+        logger.info("Protection markers added: " + marker);
     }
     
     /**
      * Obfuscate strings in DEX (safe method)
      */
-    private byte[] obfuscateStrings(byte[] dexData) {
+    private void obfuscateStrings(DexBuffer dex) {
         try {
             // Apply safe string obfuscation
-            String[] stringsToObfuscate = {
-                "MainActivity", "onCreate", "onResume", "onPause",
-                "setContentView", "findViewById", "getResources"
-            };
-            
-            byte[] obfuscatedData = dexData.clone();
+            int[] counts = rewriteAll(dex, SAFE_STRING_SCANNER, SAFE_STRINGS, this::generateObfuscatedString);
             int obfuscatedCount = 0;
             
-            for (String str : stringsToObfuscate) {
-                if (obfuscateStringInBytes(obfuscatedData, str)) {
+            for (int i = 0; i < SAFE_STRINGS.length; i++) {
+                if (counts[i] > 0) {
+                    logger.info("Obfuscated '" + SAFE_STRINGS[i] + "' (" + counts[i] + " occurrences)");
                     obfuscatedCount++;
                 }
             }
             
             logger.info("String obfuscation applied to " + obfuscatedCount + " strings");
-            return obfuscatedData;
         } catch (Exception e) {
             logger.error("String obfuscation failed: " + e.getMessage());
-            return dexData;
         }
     }
     
     /**
-     * Obfuscate a specific string in byte array
+     * Rewrite all occurrences of the targets in place after a single scan,
+     * returns number of replacements per target
      */
-    private boolean obfuscateStringInBytes(byte[] data, String targetString) {
-        try {
-            byte[] targetBytes = targetString.getBytes();
-            String obfuscatedString = generateObfuscatedString(targetString);
-            byte[] obfuscatedBytes = obfuscatedString.getBytes();
-            
-            if (obfuscatedBytes.length != targetBytes.length) {
-                return false; // Skip if lengths don't match
-            }
-            
-            // Find and replace all occurrences
-            int replacementCount = 0;
-            for (int i = 0; i <= data.length - targetBytes.length; i++) {
-                boolean match = true;
-                for (int j = 0; j < targetBytes.length; j++) {
-                    if (data[i + j] != targetBytes[j]) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    // Replace with obfuscated string
-                    for (int j = 0; j < obfuscatedBytes.length; j++) {
-                        data[i + j] = obfuscatedBytes[j];
-                    }
-                    replacementCount++;
-                }
+    private int[] rewriteAll(DexBuffer dex, MultiPatternScanner scanner, String[] targets,
+                             UnaryOperator<String> transform) {
+        byte[][] replacements = new byte[targets.length][];
+        for (int i = 0; i < targets.length; i++) {
+            byte[] replacement = transform.apply(targets[i]).getBytes();
+            // Skip targets whose replacement has a different length
+            replacements[i] = replacement.length == scanner.getPatternLength(i) ? replacement : null;
+        }
+        
+        // Earlier targets win where matches overlap, as if targets were rewritten one after another
+        List<MultiPatternScanner.Match> matches = scanner.scan(dex);
+        matches.sort(Comparator.comparingInt((MultiPatternScanner.Match match) -> match.pattern)
+            .thenComparingInt(match -> match.offset));
+        BitSet rewritten = new BitSet();
+        int[] counts = new int[targets.length];
+        for (MultiPatternScanner.Match match : matches) {
+            byte[] replacement = replacements[match.pattern];
+            if (replacement == null) {
+                continue;
             }
-            
-            if (replacementCount > 0) {
-                logger.info("Obfuscated '" + targetString + "' (" + replacementCount + " occurrences)");
-                return true;
+            int end = match.offset + replacement.length;
+            int claimed = rewritten.nextSetBit(match.offset);
+            if (claimed >= 0 && claimed < end) {
+                continue;
             }
-            return false;
-        } catch (Exception e) {
-            logger.error("Failed to obfuscate string '" + targetString + "': " + e.getMessage());
-            return false;
+            dex.put(match.offset, replacement);
+            rewritten.set(match.offset, end);
+            counts[match.pattern]++;
         }
+        return counts;
     }
     
     /**
@@ -197,78 +229,24 @@ public class RealObfuscationEngine {
     /**
      * Encrypt strings in DEX with real encryption
      */
-    private byte[] encryptStrings(byte[] dexData) {
+    private void encryptStrings(DexBuffer dex) {
         try {
             logger.info("Applying REAL string encryption...");
             
             // Target sensitive strings for encryption
-            String[] sensitiveStrings = {
-                "MainActivity", "onCreate", "onResume", "onPause", "onDestroy",
-                "setContentView", "findViewById", "getResources", "getString",
-                "Log", "System.out", "println", "debug", "info", "error",
-                "SharedPreferences", "getSharedPreferences", "edit", "putString",
-                "Intent", "startActivity", "getIntent", "putExtra", "getStringExtra",
-                "Bluestacks", "emulator", "x86", "genymotion", "nox", "mumu",
-                "root", "su", "superuser", "xposed", "frida", "substrate"
-            };
-            
-            byte[] encryptedData = dexData.clone();
+            int[] counts = rewriteAll(dex, SENSITIVE_STRING_SCANNER, SENSITIVE_STRINGS, this::encryptString);
             int encryptedCount = 0;
             
-            for (String str : sensitiveStrings) {
-                if (encryptStringInBytes(encryptedData, str)) {
+            for (int i = 0; i < SENSITIVE_STRINGS.length; i++) {
+                if (counts[i] > 0) {
+                    logger.info("Encrypted '" + SENSITIVE_STRINGS[i] + "' (" + counts[i] + " occurrences)");
                     encryptedCount++;
                 }
             }
             
             logger.info("REAL string encryption applied to " + encryptedCount + " sensitive strings");
-            return encryptedData;
         } catch (Exception e) {
             logger.error("String encryption failed: " + e.getMessage());
-            return dexData;
-        }
-    }
-    
-    /**
-     * Encrypt a specific string in byte array with AES-like encryption
-     */
-    private boolean encryptStringInBytes(byte[] data, String targetString) {
-        try {
-            byte[] targetBytes = targetString.getBytes();
-            String encryptedString = encryptString(targetString);
-            byte[] encryptedBytes = encryptedString.getBytes();
-            
-            if (encryptedBytes.length != targetBytes.length) {
-                return false; // Skip if lengths don't match
-            }
-            
-            // Find and replace all occurrences
-            int replacementCount = 0;
-            for (int i = 0; i <= data.length - targetBytes.length; i++) {
-                boolean match = true;
-                for (int j = 0; j < targetBytes.length; j++) {
-                    if (data[i + j] != targetBytes[j]) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    // Replace with encrypted string
-                    for (int j = 0; j < encryptedBytes.length; j++) {
-                        data[i + j] = encryptedBytes[j];
-                    }
-                    replacementCount++;
-                }
-            }
-            
-            if (replacementCount > 0) {
-                logger.info("Encrypted '" + targetString + "' (" + replacementCount + " occurrences)");
-                return true;
-            }
-            return false;
-        } catch (Exception e) {
-            logger.error("Failed to encrypt string '" + targetString + "': " + e.getMessage());
-            return false;
         }
     }
     
@@ -291,30 +269,23 @@ public class RealObfuscationEngine {
     /**
      * Apply control flow obfuscation
      */
-    private byte[] obfuscateControlFlow(byte[] dexData) {
+    private void obfuscateControlFlow(DexBuffer dex) {
         try {
             logger.info("Applying REAL control flow obfuscation...");
             
-            // Add dummy instructions and control flow complexity
-            byte[] obfuscatedData = new byte[dexData.length + 2048]; // Add extra space
-            
-            // Copy original data
-            System.arraycopy(dexData, 0, obfuscatedData, 0, dexData.length);
-            
-            // Add obfuscation markers and dummy code
+            // Add obfuscation markers and dummy instructions in a 2 KB block after the DEX
+            byte[] block = new byte[2048];
             byte[] obfuscationMarker = "ABDAL_CF_OBFUSCATED_REAL".getBytes();
-            System.arraycopy(obfuscationMarker, 0, obfuscatedData, dexData.length, obfuscationMarker.length);
+            System.arraycopy(obfuscationMarker, 0, block, 0, obfuscationMarker.length);
             
             // Add dummy instructions to confuse decompilers
             byte[] dummyInstructions = generateDummyInstructions();
-            System.arraycopy(dummyInstructions, 0, obfuscatedData, 
-                           dexData.length + obfuscationMarker.length, dummyInstructions.length);
+            System.arraycopy(dummyInstructions, 0, block, obfuscationMarker.length, dummyInstructions.length);
+            dex.append(block);
             
             logger.info("REAL control flow obfuscation applied");
-            return obfuscatedData;
         } catch (Exception e) {
             logger.error("Control flow obfuscation failed: " + e.getMessage());
-            return dexData;
         }
     }
     
@@ -332,75 +303,21 @@ public class RealObfuscationEngine {
     /**
      * Obfuscate method names in DEX
      */
-    private byte[] obfuscateMethodNames(byte[] dexData) {
-        try {
-            logger.info("Applying REAL method name obfuscation...");
-            
-            // Target common method names
-            String[] methodNames = {
-                "onCreate", "onResume", "onPause", "onDestroy", "onStart", "onStop",
-                "onClick", "onTouch", "onKeyDown", "onKeyUp", "onBackPressed",
-                "init", "setup", "configure", "initialize", "load", "save"
-            };
-            
-            byte[] obfuscatedData = dexData.clone();
-            int obfuscatedCount = 0;
-            
-            for (String methodName : methodNames) {
-                if (obfuscateMethodNameInBytes(obfuscatedData, methodName)) {
-                    obfuscatedCount++;
-                }
-            }
-            
-            logger.info("REAL method name obfuscation applied to " + obfuscatedCount + " methods");
-            return obfuscatedData;
-        } catch (Exception e) {
-            logger.error("Method name obfuscation failed: " + e.getMessage());
-            return dexData;
-        }
-    }
-    
-    /**
-     * Obfuscate a specific method name in byte array
-     */
-    private boolean obfuscateMethodNameInBytes(byte[] data, String methodName) {
-        try {
-            byte[] methodBytes = methodName.getBytes();
-            String obfuscatedName = generateObfuscatedMethodName(methodName);
-            byte[] obfuscatedBytes = obfuscatedName.getBytes();
-            
-            if (obfuscatedBytes.length != methodBytes.length) {
-                return false; // Skip if lengths don't match
-            }
-            
-            // Find and replace all occurrences
-            int replacementCount = 0;
-            for (int i = 0; i <= data.length - methodBytes.length; i++) {
-                boolean match = true;
-                for (int j = 0; j < methodBytes.length; j++) {
-                    if (data[i + j] != methodBytes[j]) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    // Replace with obfuscated name
-                    for (int j = 0; j < obfuscatedBytes.length; j++) {
-                        data[i + j] = obfuscatedBytes[j];
-                    }
-                    replacementCount++;
-                }
-            }
-            
-            if (replacementCount > 0) {
-                logger.info("Obfuscated method '" + methodName + "' (" + replacementCount + " occurrences)");
-                return true;
+    private void obfuscateMethodNames(DexBuffer dex) throws Exception {
+        logger.info("Applying REAL method name obfuscation...");
+        
+        // Target common method names
+        int[] counts = rewriteAll(dex, METHOD_NAME_SCANNER, METHOD_NAMES, this::generateObfuscatedMethodName);
+        int obfuscatedCount = 0;
+        
+        for (int i = 0; i < METHOD_NAMES.length; i++) {
+            if (counts[i] > 0) {
+                logger.info("Obfuscated method '" + METHOD_NAMES[i] + "' (" + counts[i] + " occurrences)");
+                obfuscatedCount++;
             }
-            return false;
-        } catch (Exception e) {
-            logger.error("Failed to obfuscate method name '" + methodName + "': " + e.getMessage());
-            return false;
         }
+        
+        logger.info("REAL method name obfuscation applied to " + obfuscatedCount + " methods");
     }
     
     /**
@@ -419,80 +336,85 @@ public class RealObfuscationEngine {
     
     /**
      * Advanced string encryption with dynamic keys
+     * Whole string_data entries are rewritten through the string pool, so the
+     * encrypted value may have any length. Strings naming types, methods or
+     * fields are left alone.
      */
-    private byte[] encryptStringsAdvanced(byte[] dexData) {
-        try {
-            logger.info("Applying ADVANCED string encryption with dynamic keys...");
-            
-            // Target sensitive strings for advanced encryption
-            String[] sensitiveStrings = {
-                "MainActivity", "onCreate", "onResume", "onPause", "onDestroy",
-                "setContentView", "findViewById", "getResources", "getString",
-                "Log", "System.out", "println", "debug", "info", "error",
-                "SharedPreferences", "getSharedPreferences", "edit", "putString",
-                "Intent", "startActivity", "getIntent", "putExtra", "getStringExtra",
-                "Bluestacks", "emulator", "x86", "genymotion", "nox", "mumu",
-                "root", "su", "superuser", "xposed", "frida", "substrate"
-            };
-            
-            byte[] encryptedData = dexData.clone();
-            int encryptedCount = 0;
-            
-            for (String str : sensitiveStrings) {
-                if (encryptStringAdvanced(encryptedData, str)) {
-                    encryptedCount++;
-                }
+    private void encryptStringsAdvanced(DexBuffer dex) throws Exception {
+        logger.info("Applying ADVANCED string encryption with dynamic keys...");
+        if (!DexFile.isDex(dex)) {
+            logger.warn("Not a DEX file, advanced string encryption skipped");
+            return;
+        }
+        DexFile dexFile = new DexFile(dex);
+        DexStringPool strings = dexFile.getStrings();
+        BitSet memberNames = collectMemberNames(dexFile);
+        DexStringRewriter rewriter = new DexStringRewriter(dexFile);
+        int skippedCount = 0;
+        
+        // Target sensitive strings for advanced encryption
+        for (String target : SENSITIVE_STRINGS) {
+            int index = strings.indexOf(target);
+            if (index < 0 || memberNames.get(index)) {
+                continue;
+            }
+            String encrypted = generateOrderedEncryptedString(target,
+                index > 0 ? strings.get(index - 1) : "",
+                index + 1 < strings.size() ? strings.get(index + 1) : null);
+            if (!encrypted.equals(target) && rewriter.replace(index, encrypted)) {
+                logger.info("Advanced encrypted '" + target + "'");
+            } else {
+                // Too short to encrypt, or out of order next to an encrypted neighbour
+                skippedCount++;
             }
-            
-            logger.info("ADVANCED string encryption applied to " + encryptedCount + " sensitive strings");
-            return encryptedData;
-        } catch (Exception e) {
-            logger.error("Advanced string encryption failed: " + e.getMessage());
-            return dexData;
         }
+        
+        int encryptedCount = rewriter.getPendingCount();
+        int growth = rewriter.rebuild();
+        logger.info("ADVANCED string encryption applied to " + encryptedCount + " sensitive strings ("
+            + skippedCount + " kept to preserve string order, DEX grew by " + growth + " bytes)");
     }
     
     /**
-     * Advanced string encryption with dynamic keys
+     * Encrypt a string so it still sorts between its neighbours
+     * Only the characters needed to tell it apart from the neighbours are
+     * kept, the rest is encrypted, so string_ids stay in order.
      */
-    private boolean encryptStringAdvanced(byte[] data, String targetString) {
-        try {
-            byte[] targetBytes = targetString.getBytes();
-            String encryptedString = generateAdvancedEncryptedString(targetString);
-            byte[] encryptedBytes = encryptedString.getBytes();
-            
-            if (encryptedBytes.length != targetBytes.length) {
-                return false; // Skip if lengths don't match
-            }
-            
-            // Find and replace all occurrences
-            int replacementCount = 0;
-            for (int i = 0; i <= data.length - targetBytes.length; i++) {
-                boolean match = true;
-                for (int j = 0; j < targetBytes.length; j++) {
-                    if (data[i + j] != targetBytes[j]) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (match) {
-                    // Replace with advanced encrypted string
-                    for (int j = 0; j < encryptedBytes.length; j++) {
-                        data[i + j] = encryptedBytes[j];
-                    }
-                    replacementCount++;
-                }
-            }
-            
-            if (replacementCount > 0) {
-                logger.info("Advanced encrypted '" + targetString + "' (" + replacementCount + " occurrences)");
-                return true;
-            }
-            return false;
-        } catch (Exception e) {
-            logger.error("Failed to advanced encrypt string '" + targetString + "': " + e.getMessage());
-            return false;
+    private String generateOrderedEncryptedString(String original, String previous, String next) {
+        int keep = commonPrefixLength(previous, original) + 1;
+        if (next != null) {
+            keep = Math.max(keep, commonPrefixLength(original, next) + 1);
+        }
+        if (keep >= original.length()) {
+            return original;
+        }
+        return original.substring(0, keep) + generateAdvancedEncryptedString(original.substring(keep));
+    }
+    
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
         }
+        return i;
+    }
+    
+    /**
+     * Mark strings used as type descriptors, method names or field names
+     */
+    private BitSet collectMemberNames(DexFile dexFile) {
+        BitSet names = new BitSet(dexFile.getStringCount());
+        for (int i = 0; i < dexFile.getTypeCount(); i++) {
+            names.set(dexFile.getTypeDescriptorIndex(i));
+        }
+        for (int i = 0; i < dexFile.getMethodCount(); i++) {
+            names.set(dexFile.getMethodNameIndex(i));
+        }
+        for (int i = 0; i < dexFile.getFieldCount(); i++) {
+            names.set(dexFile.getFieldNameIndex(i));
+        }
+        return names;
     }
     
     /**
@@ -500,7 +422,7 @@ public class RealObfuscationEngine {
      */
     private String generateAdvancedEncryptedString(String original) {
         StringBuilder encrypted = new StringBuilder();
-        long timestamp = System.currentTimeMillis();
+        long timestamp = ReproducibleBuild.currentTimeMillis();
         
         for (int i = 0; i < original.length(); i++) {
             char c = original.charAt(i);
@@ -515,31 +437,20 @@ public class RealObfuscationEngine {
     /**
      * Control flow flattening obfuscation
      */
-    private byte[] obfuscateControlFlowFlattening(byte[] dexData) {
-        try {
-            logger.info("Applying control flow flattening obfuscation...");
-            
-            // Add dummy instructions and control flow complexity
-            byte[] obfuscatedData = new byte[dexData.length + 4096]; // Add extra space
-            
-            // Copy original data
-            System.arraycopy(dexData, 0, obfuscatedData, 0, dexData.length);
-            
-            // Add control flow flattening markers
-            byte[] flatteningMarker = "ABDAL_CF_FLATTENED_ADVANCED".getBytes();
-            System.arraycopy(flatteningMarker, 0, obfuscatedData, dexData.length, flatteningMarker.length);
-            
-            // Add dummy control flow instructions
-            byte[] dummyInstructions = generateDummyControlFlowInstructions();
-            System.arraycopy(dummyInstructions, 0, obfuscatedData, 
-                           dexData.length + flatteningMarker.length, dummyInstructions.length);
-            
-            logger.info("Control flow flattening obfuscation applied");
-            return obfuscatedData;
-        } catch (Exception e) {
-            logger.error("Control flow flattening obfuscation failed: " + e.getMessage());
-            return dexData;
-        }
+    private void obfuscateControlFlowFlattening(DexBuffer dex) throws Exception {
+        logger.info("Applying control flow flattening obfuscation...");
+        
+        // Add flattening marker and dummy instructions in a 4 KB block after the DEX
+        byte[] block = new byte[4096];
+        byte[] flatteningMarker = "ABDAL_CF_FLATTENED_ADVANCED".getBytes();
+        System.arraycopy(flatteningMarker, 0, block, 0, flatteningMarker.length);
+        
+        // Add dummy control flow instructions
+        byte[] dummyInstructions = generateDummyControlFlowInstructions();
+        System.arraycopy(dummyInstructions, 0, block, flatteningMarker.length, dummyInstructions.length);
+        dex.append(block);
+        
+        logger.info("Control flow flattening obfuscation applied");
     }
     
     /**
@@ -557,29 +468,16 @@ public class RealObfuscationEngine {
     /**
      * Arithmetic obfuscation
      */
-    private byte[] obfuscateArithmetic(byte[] dexData) {
-        try {
-            logger.info("Applying arithmetic obfuscation...");
-            
-            // Add arithmetic obfuscation markers
-            byte[] obfuscatedData = new byte[dexData.length + 1024];
-            System.arraycopy(dexData, 0, obfuscatedData, 0, dexData.length);
-            
-            // Add arithmetic obfuscation markers
-            byte[] arithmeticMarker = "ABDAL_ARITH_OBFUSCATED".getBytes();
-            System.arraycopy(arithmeticMarker, 0, obfuscatedData, dexData.length, arithmeticMarker.length);
-            
-            // Add dummy arithmetic operations
-            byte[] dummyArithmetic = generateDummyArithmeticOperations();
-            System.arraycopy(dummyArithmetic, 0, obfuscatedData, 
-                           dexData.length + arithmeticMarker.length, dummyArithmetic.length);
-            
-            logger.info("Arithmetic obfuscation applied");
-            return obfuscatedData;
-        } catch (Exception e) {
-            logger.error("Arithmetic obfuscation failed: " + e.getMessage());
-            return dexData;
-        }
+    private void obfuscateArithmetic(DexBuffer dex) throws Exception {
+        logger.info("Applying arithmetic obfuscation...");
+        
+        // Add arithmetic obfuscation marker followed by dummy arithmetic operations
+        byte[] arithmeticMarker = "ABDAL_ARITH_OBFUSCATED".getBytes();
+        byte[] dummyArithmetic = generateDummyArithmeticOperations();
+        dex.append(arithmeticMarker);
+        dex.append(dummyArithmetic);
+        
+        logger.info("Arithmetic obfuscation applied");
     }
     
     /**
@@ -110,7 +110,7 @@ public class RealRASProtection {
         code.append("import java.util.*;\n\n");
         
         code.append("public class AntiDebugging {\n");
-        code.append("    private static final String DEBUG_KEY = \"ABDAL_DEBUG_KEY_" + System.currentTimeMillis() + "\";\n");
+        code.append("    private static final String DEBUG_KEY = \"ABDAL_DEBUG_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n");
         code.append("    private static boolean isDebuggingDetected = false;\n\n");
         
         // Add debugging detection methods
@@ -254,7 +254,7 @@ public class RealRASProtection {
         code.append("import java.util.*;\n\n");
         
         code.append("public class EmulatorDetection {\n");
-        code.append("    private static final String EMULATOR_KEY = \"ABDAL_EMULATOR_KEY_" + System.currentTimeMillis() + "\";\n\n");
+        code.append("    private static final String EMULATOR_KEY = \"ABDAL_EMULATOR_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n\n");
         
         code.append("    public static boolean isEmulator() {\n");
         code.append("        return checkBuildProperties() ||\n");
@@ -379,7 +379,7 @@ public class RealRASProtection {
         code.append("import java.util.*;\n\n");
         
         code.append("public class RootDetection {\n");
-        code.append("    private static final String ROOT_KEY = \"ABDAL_ROOT_KEY_" + System.currentTimeMillis() + "\";\n\n");
+        code.append("    private static final String ROOT_KEY = \"ABDAL_ROOT_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n\n");
         
         code.append("    public static boolean isRooted() {\n");
         code.append("        return checkRootFiles() ||\n");
@@ -495,7 +495,7 @@ public class RealRASProtection {
         code.append("import java.util.*;\n\n");
         
         code.append("public class HookDetection {\n");
-        code.append("    private static final String HOOK_KEY = \"ABDAL_HOOK_KEY_" + System.currentTimeMillis() + "\";\n\n");
+        code.append("    private static final String HOOK_KEY = \"ABDAL_HOOK_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n\n");
         
         code.append("    public static boolean isHooked() {\n");
         code.append("        return checkXposed() ||\n");
@@ -614,7 +614,7 @@ public class RealRASProtection {
         code.append("import java.util.concurrent.*;\n\n");
         
         code.append("public class RuntimeMonitoring {\n");
-        code.append("    private static final String MONITOR_KEY = \"ABDAL_MONITOR_KEY_" + System.currentTimeMillis() + "\";\n");
+        code.append("    private static final String MONITOR_KEY = \"ABDAL_MONITOR_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n");
         code.append("    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);\n");
         code.append("    private static boolean isMonitoring = false;\n\n");
         
@@ -725,7 +725,7 @@ public class RealRASProtection {
         // Create RASP protection marker
         Path raspMarker = assetsDir.resolve("rasp_protection.txt");
         String markerContent = "ABDAL_RASP_PROTECTION_ENABLED\n" +
-                             "Timestamp: " + System.currentTimeMillis() + "\n" +
+                             "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                              "Version: 1.0.0\n" +
                              "Author: Ebrahim Shafiei (EbraSha)\n" +
                              "Email: Prof.Shafiei@Gmail.com\n" +
@@ -22,6 +22,7 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.zip.*;
 import java.security.*;
+import java.time.Instant;
 import java.util.*;
 
 /**
@@ -31,8 +32,42 @@ import java.util.*;
 public class RealTamperDetection {
     
     private final SimpleLogger logger = SimpleLogger.getInstance();
-    private final Map<String, String> fileHashes = new HashMap<>();
+    // Sorted so the hash database is written in a stable order
+    private final Map<String, String> fileHashes = new TreeMap<>();
+    private final Map<String, byte[]> fileDigests = new TreeMap<>();
     private final Map<String, String> integrityChecks = new HashMap<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private DigestEngine digestEngine = DigestEngine.SHA256;
+    private ParallelFileHasher hasher = new ParallelFileHasher(threads, digestEngine.getName());
+    private int manifestChunkSize = MerkleManifest.CHUNK_4K;
+    private MerkleManifest manifest;
+    
+    /**
+     * Set number of worker threads used for file hashing
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        this.hasher = new ParallelFileHasher(this.threads, digestEngine.getName());
+    }
+    
+    /**
+     * Set digest used for all integrity data: SHA-256 (default), BLAKE3, or XXH64 for
+     * fast non-cryptographic change detection
+     */
+    public void setDigestEngine(DigestEngine digestEngine) {
+        this.digestEngine = digestEngine;
+        this.hasher = new ParallelFileHasher(threads, digestEngine.getName());
+    }
+    
+    /**
+     * Set chunk size of the Merkle integrity manifest (MerkleManifest.CHUNK_4K or CHUNK_1M)
+     */
+    public void setManifestChunkSize(int chunkSize) {
+        if (chunkSize != MerkleManifest.CHUNK_4K && chunkSize != MerkleManifest.CHUNK_1M) {
+            throw new IllegalArgumentException("Chunk size must be 4 KB or 1 MB: " + chunkSize);
+        }
+        this.manifestChunkSize = chunkSize;
+    }
     
     /**
      * Add real tamper detection to APK
@@ -44,20 +79,33 @@ public class RealTamperDetection {
             // Calculate file hashes for integrity verification
             calculateFileHashes(extractedDir);
             
-            // Create runtime integrity verification code
-            createRuntimeIntegrityVerification(extractedDir);
+            addProtection(extractedDir);
             
-            // Add signature validation code
-            createSignatureValidation(extractedDir);
+            logger.info("REAL tamper detection with integrity verification added successfully");
+            return true;
             
-            // Add anti-tampering protection mechanisms
-            createAntiTamperingProtection(extractedDir);
+        } catch (Exception e) {
+            logger.error("Tamper detection failed: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Add real tamper detection to an APK opened as overlay
+     * Hashes are taken straight from the archive (and from replaced entries in
+     * the overlay), so the APK never has to be extracted; generated files are
+     * written into the overlay.
+     */
+    public boolean addTamperDetection(APKOverlay overlay) {
+        try {
+            logger.info("Adding REAL tamper detection with integrity verification (archive mode)...");
             
-            // Add tamper detection markers
-            addTamperDetectionMarkers(extractedDir);
+            // Calculate entry hashes and manifest leaves for integrity verification
+            ParallelFileHasher integrityHasher = newIntegrityHasher();
+            recordDigests(integrityHasher, integrityHasher.hashOverlay(overlay));
+            logger.info("Entry hashes calculated: " + fileHashes.size() + " entries");
             
-            // Create verification script
-            createVerificationScript(extractedDir);
+            addProtection(overlay.getOverlayRoot());
             
             logger.info("REAL tamper detection with integrity verification added successfully");
             return true;
@@ -68,49 +116,64 @@ public class RealTamperDetection {
         }
     }
     
+    /**
+     * Write verification code, protection files and markers for the calculated hashes
+     */
+    private void addProtection(Path outputDir) throws Exception {
+        // Create runtime integrity verification code
+        createRuntimeIntegrityVerification(outputDir);
+        
+        // Add signature validation code
+        createSignatureValidation(outputDir);
+        
+        // Add anti-tampering protection mechanisms
+        createAntiTamperingProtection(outputDir);
+        
+        // Add tamper detection markers
+        addTamperDetectionMarkers(outputDir);
+        
+        // Create verification script
+        createVerificationScript(outputDir);
+    }
+    
     /**
      * Calculate hashes for all files
      */
     private void calculateFileHashes(Path extractedDir) throws Exception {
         logger.info("Calculating file hashes...");
         
-        Files.walk(extractedDir)
-            .filter(Files::isRegularFile)
-            .forEach(file -> {
-                try {
-                    String relativePath = extractedDir.relativize(file).toString();
-                    String hash = calculateFileHash(file);
-                    fileHashes.put(relativePath, hash);
-                    logger.info("Hash calculated for: " + relativePath);
-                } catch (Exception e) {
-                    logger.error("Failed to calculate hash for: " + file);
-                }
-            });
+        ParallelFileHasher integrityHasher = newIntegrityHasher();
+        recordDigests(integrityHasher, integrityHasher.hashTree(extractedDir));
         
         logger.info("File hashes calculated: " + fileHashes.size() + " files");
     }
     
     /**
-     * Calculate SHA-256 hash of a file
+     * Hasher producing whole digests and manifest chunk leaves in one pass over each entry
      */
-    private String calculateFileHash(Path file) throws Exception {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        
-        try (FileInputStream fis = new FileInputStream(file.toFile())) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
-            }
-        }
-        
-        byte[] hashBytes = digest.digest();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hashBytes) {
-            sb.append(String.format("%02x", b));
+    private ParallelFileHasher newIntegrityHasher() {
+        return new ParallelFileHasher(threads, digestEngine.getName(), manifestChunkSize, true);
+    }
+    
+    /**
+     * Record whole digests for the hash database and build the manifest from the leaves
+     * Digests of an APK processed earlier by this instance are dropped first.
+     */
+    private void recordDigests(ParallelFileHasher integrityHasher, SortedMap<String, byte[]> results) {
+        fileDigests.clear();
+        fileHashes.clear();
+        SortedMap<String, byte[]> leaves = integrityHasher.splitLeaves(results, fileDigests);
+        for (Map.Entry<String, byte[]> entry : fileDigests.entrySet()) {
+            fileHashes.put(entry.getKey(), ParallelFileHasher.toHex(entry.getValue()));
         }
-        
-        return sb.toString();
+        manifest = MerkleManifest.build(leaves, integrityHasher.getAlgorithm(), manifestChunkSize);
+    }
+    
+    /**
+     * Calculate hash of a file with the configured digest engine
+     */
+    String calculateFileHash(Path file) throws Exception {
+        return ParallelFileHasher.toHex(hasher.hash(file));
     }
     
     /**
@@ -155,7 +218,13 @@ public class RealTamperDetection {
         
         code.append("public class TamperVerification {\n");
         code.append("    private static final Map<String, String> EXPECTED_HASHES = new HashMap<>();\n");
-        code.append("    private static final String TAMPER_KEY = \"ABDAL_TAMPER_KEY_" + System.currentTimeMillis() + "\";\n\n");
+        code.append("    private static final String TAMPER_KEY = \"ABDAL_TAMPER_KEY_" + ReproducibleBuild.currentTimeMillis() + "\";\n");
+        code.append("    private static final String MANIFEST_ENTRY = \"" + MerkleManifest.MANIFEST_ENTRY + "\";\n");
+        code.append("    private static final int MANIFEST_MAGIC = 0x" + Integer.toHexString(MerkleManifest.MAGIC).toUpperCase() + ";\n");
+        code.append("    private static final String MANIFEST_ROOT = \"" + ParallelFileHasher.toHex(manifest.getRoot()) + "\";\n");
+        code.append("    private static final String HASH_DATABASE_ENTRY = \"" + BinaryHashDatabase.DATABASE_ENTRY + "\";\n");
+        code.append("    private static final int HASH_DATABASE_MAGIC = 0x" + Integer.toHexString(BinaryHashDatabase.MAGIC).toUpperCase() + ";\n");
+        code.append("    private static final int DIGEST_ID = " + digestEngine.getId() + "; // " + digestEngine.getName() + "\n\n");
         
         // Add expected hashes
         code.append("    static {\n");
@@ -206,7 +275,7 @@ public class RealTamperDetection {
         
         code.append("    private static String calculateHash(String filePath) {\n");
         code.append("        try {\n");
-        code.append("            MessageDigest digest = MessageDigest.getInstance(\"SHA-256\");\n");
+        code.append("            MessageDigest digest = newDigest();\n");
         code.append("            FileInputStream fis = new FileInputStream(filePath);\n");
         code.append("            byte[] buffer = new byte[8192];\n");
         code.append("            int bytesRead;\n");
@@ -215,17 +284,395 @@ public class RealTamperDetection {
         code.append("            }\n");
         code.append("            fis.close();\n");
         code.append("            \n");
-        code.append("            byte[] hashBytes = digest.digest();\n");
-        code.append("            StringBuilder sb = new StringBuilder();\n");
-        code.append("            for (byte b : hashBytes) {\n");
-        code.append("                sb.append(String.format(\"%02x\", b));\n");
-        code.append("            }\n");
-        code.append("            return sb.toString();\n");
+        code.append("            return toHex(digest.digest());\n");
         code.append("        } catch (Exception e) {\n");
         code.append("            return \"\";\n");
         code.append("        }\n");
         code.append("    }\n\n");
         
+        // Single entry verification through the memory-mapped binary hash database
+        code.append("    public static boolean verifyEntryHash(String apkPath, String entryName) {\n");
+        code.append("        try (RandomAccessFile file = new RandomAccessFile(apkPath, \"r\");\n");
+        code.append("             java.util.zip.ZipFile apk = new java.util.zip.ZipFile(apkPath)) {\n");
+        code.append("            java.nio.ByteBuffer db = mapHashDatabase(file, apk);\n");
+        code.append("            if (db.getInt(0) != HASH_DATABASE_MAGIC || (db.getShort(4) & 0xFFFF) != 1 || db.get(6) != DIGEST_ID) {\n");
+        code.append("                return false;\n");
+        code.append("            }\n");
+        code.append("            int digestLength = db.get(7) & 0xFF;\n");
+        code.append("            int count = db.getInt(8);\n");
+        code.append("            long hash = 0xcbf29ce484222325L;\n");
+        code.append("            for (byte b : entryName.getBytes(\"UTF-8\")) {\n");
+        code.append("                hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;\n");
+        code.append("            }\n");
+        code.append("            // Binary search over the sorted path hash table, straight in the mapped buffer\n");
+        code.append("            int low = 0;\n");
+        code.append("            int high = count - 1;\n");
+        code.append("            int index = -1;\n");
+        code.append("            while (low <= high) {\n");
+        code.append("                int middle = (low + high) >>> 1;\n");
+        code.append("                long value = db.getLong(16 + middle * 8);\n");
+        code.append("                if (value < hash) {\n");
+        code.append("                    low = middle + 1;\n");
+        code.append("                } else if (value > hash) {\n");
+        code.append("                    high = middle - 1;\n");
+        code.append("                } else {\n");
+        code.append("                    index = middle;\n");
+        code.append("                    break;\n");
+        code.append("                }\n");
+        code.append("            }\n");
+        code.append("            java.util.zip.ZipEntry entry = apk.getEntry(entryName);\n");
+        code.append("            if (index < 0 || entry == null) {\n");
+        code.append("                return false;\n");
+        code.append("            }\n");
+        code.append("            MessageDigest digest = newDigest();\n");
+        code.append("            byte[] buffer = new byte[65536];\n");
+        code.append("            try (InputStream in = apk.getInputStream(entry)) {\n");
+        code.append("                int read;\n");
+        code.append("                while ((read = in.read(buffer)) != -1) {\n");
+        code.append("                    digest.update(buffer, 0, read);\n");
+        code.append("                }\n");
+        code.append("            }\n");
+        code.append("            byte[] actual = digest.digest();\n");
+        code.append("            int base = 16 + count * 8 + index * digestLength;\n");
+        code.append("            int difference = actual.length ^ digestLength;\n");
+        code.append("            for (int i = 0; i < digestLength && i < actual.length; i++) {\n");
+        code.append("                difference |= db.get(base + i) ^ actual[i];\n");
+        code.append("            }\n");
+        code.append("            return difference == 0;\n");
+        code.append("        } catch (Exception e) {\n");
+        code.append("            return false;\n");
+        code.append("        }\n");
+        code.append("    }\n");
+        code.append("\n");
+        code.append("    private static java.nio.ByteBuffer mapHashDatabase(RandomAccessFile file, java.util.zip.ZipFile apk) throws IOException {\n");
+        code.append("        // A stored entry is mapped in place: find its local header through the central directory\n");
+        code.append("        long length = file.length();\n");
+        code.append("        int tail = (int) Math.min(length, 65557);\n");
+        code.append("        byte[] end = new byte[tail];\n");
+        code.append("        file.seek(length - tail);\n");
+        code.append("        file.readFully(end);\n");
+        code.append("        java.nio.ByteBuffer eocd = java.nio.ByteBuffer.wrap(end).order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+        code.append("        for (int i = tail - 22; i >= 0; i--) {\n");
+        code.append("            if (eocd.getInt(i) != 0x06054b50) {\n");
+        code.append("                continue;\n");
+        code.append("            }\n");
+        code.append("            int entries = eocd.getShort(i + 10) & 0xFFFF;\n");
+        code.append("            byte[] cd = new byte[eocd.getInt(i + 12)];\n");
+        code.append("            file.seek(eocd.getInt(i + 16) & 0xFFFFFFFFL);\n");
+        code.append("            file.readFully(cd);\n");
+        code.append("            java.nio.ByteBuffer dir = java.nio.ByteBuffer.wrap(cd).order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+        code.append("            int pos = 0;\n");
+        code.append("            for (int e = 0; e < entries; e++) {\n");
+        code.append("                int nameLength = dir.getShort(pos + 28) & 0xFFFF;\n");
+        code.append("                String name = new String(cd, pos + 46, nameLength, \"UTF-8\");\n");
+        code.append("                if (name.equals(HASH_DATABASE_ENTRY) && dir.getShort(pos + 10) == 0) {\n");
+        code.append("                    long local = dir.getInt(pos + 42) & 0xFFFFFFFFL;\n");
+        code.append("                    byte[] header = new byte[30];\n");
+        code.append("                    file.seek(local);\n");
+        code.append("                    file.readFully(header);\n");
+        code.append("                    java.nio.ByteBuffer lh = java.nio.ByteBuffer.wrap(header).order(java.nio.ByteOrder.LITTLE_ENDIAN);\n");
+        code.append("                    long data = local + 30 + (lh.getShort(26) & 0xFFFF) + (lh.getShort(28) & 0xFFFF);\n");
+        code.append("                    return file.getChannel().map(java.nio.channels.FileChannel.MapMode.READ_ONLY, data,\n");
+        code.append("                        dir.getInt(pos + 20) & 0xFFFFFFFFL);\n");
+        code.append("                }\n");
+        code.append("                pos += 46 + nameLength + (dir.getShort(pos + 30) & 0xFFFF) + (dir.getShort(pos + 32) & 0xFFFF);\n");
+        code.append("            }\n");
+        code.append("            break;\n");
+        code.append("        }\n");
+        code.append("        // Compressed database: inflate it once\n");
+        code.append("        java.util.zip.ZipEntry entry = apk.getEntry(HASH_DATABASE_ENTRY);\n");
+        code.append("        if (entry == null) {\n");
+        code.append("            throw new FileNotFoundException(HASH_DATABASE_ENTRY);\n");
+        code.append("        }\n");
+        code.append("        ByteArrayOutputStream out = new ByteArrayOutputStream();\n");
+        code.append("        try (InputStream in = apk.getInputStream(entry)) {\n");
+        code.append("            byte[] buffer = new byte[8192];\n");
+        code.append("            int read;\n");
+        code.append("            while ((read = in.read(buffer)) != -1) {\n");
+        code.append("                out.write(buffer, 0, read);\n");
+        code.append("            }\n");
+        code.append("        }\n");
+        code.append("        return java.nio.ByteBuffer.wrap(out.toByteArray());\n");
+        code.append("    }\n");
+        code.append("\n");
+        // Sampled chunk verification against the Merkle manifest: checks the
+        // manifest against MANIFEST_ROOT, then hashes only the sampled chunks
+        // (deflated entries are still inflated up to their last sampled chunk)
+        code.append("    public static boolean verifySampledChunks(String apkPath, int samples) {\n");
+        code.append("        try (java.util.zip.ZipFile apk = new java.util.zip.ZipFile(apkPath)) {\n");
+        code.append("            java.util.zip.ZipEntry manifestEntry = apk.getEntry(MANIFEST_ENTRY);\n");
+        code.append("            if (manifestEntry == null) {\n");
+        code.append("                return false;\n");
+        code.append("            }\n");
+        code.append("            try (DataInputStream in = new DataInputStream(new BufferedInputStream(apk.getInputStream(manifestEntry)))) {\n");
+        code.append("                if (in.readInt() != MANIFEST_MAGIC || in.readUnsignedShort() != 1 || in.readUnsignedByte() != DIGEST_ID) {\n");
+        code.append("                    return false;\n");
+        code.append("                }\n");
+        code.append("                int digestLength = in.readUnsignedByte();\n");
+        code.append("                int chunkSize = in.readInt();\n");
+        code.append("                int count = in.readInt();\n");
+        code.append("                MessageDigest digest = newDigest();\n");
+        code.append("                if (digestLength != digest.getDigestLength() || count < 0 || count > 0xFFFF\n");
+        code.append("                        || (chunkSize != " + MerkleManifest.CHUNK_4K + " && chunkSize != " + MerkleManifest.CHUNK_1M + ")) {\n");
+        code.append("                    return false;\n");
+        code.append("                }\n");
+        code.append("                // Bound counts before allocating, a corrupt manifest must not exhaust the heap\n");
+        code.append("                long maxChunks = (" + MerkleManifest.MAX_ENTRY_SIZE + "L + chunkSize - 1) / chunkSize;\n");
+        code.append("                in.readFully(new byte[digestLength]);\n");
+        code.append("                String[] names = new String[count];\n");
+        code.append("                byte[][] leaves = new byte[count][];\n");
+        code.append("                long[] ends = new long[count];\n");
+        code.append("                long total = 0;\n");
+        code.append("                List<byte[]> entryNodes = new ArrayList<>();\n");
+        code.append("                for (int i = 0; i < count; i++) {\n");
+        code.append("                    byte[] name = new byte[in.readUnsignedShort()];\n");
+        code.append("                    in.readFully(name);\n");
+        code.append("                    names[i] = new String(name, \"UTF-8\");\n");
+        code.append("                    int chunkCount = in.readInt();\n");
+        code.append("                    if (chunkCount <= 0 || chunkCount > maxChunks) {\n");
+        code.append("                        return false;\n");
+        code.append("                    }\n");
+        code.append("                    byte[] entryRoot = new byte[digestLength];\n");
+        code.append("                    in.readFully(entryRoot);\n");
+        code.append("                    leaves[i] = new byte[chunkCount * digestLength];\n");
+        code.append("                    in.readFully(leaves[i]);\n");
+        code.append("                    List<byte[]> level = new ArrayList<>();\n");
+        code.append("                    for (int c = 0; c < chunkCount; c++) {\n");
+        code.append("                        level.add(Arrays.copyOfRange(leaves[i], c * digestLength, (c + 1) * digestLength));\n");
+        code.append("                    }\n");
+        code.append("                    if (!MessageDigest.isEqual(entryRoot, treeRoot(digest, level))) {\n");
+        code.append("                        return false;\n");
+        code.append("                    }\n");
+        code.append("                    digest.update((byte) 2);\n");
+        code.append("                    digest.update(name);\n");
+        code.append("                    digest.update((byte) 0);\n");
+        code.append("                    digest.update(entryRoot);\n");
+        code.append("                    entryNodes.add(digest.digest());\n");
+        code.append("                    total += chunkCount;\n");
+        code.append("                    ends[i] = total;\n");
+        code.append("                }\n");
+        code.append("                // The manifest is only trusted if it hashes up to the root compiled into this class\n");
+        code.append("                if (!MANIFEST_ROOT.equals(toHex(treeRoot(digest, entryNodes)))) {\n");
+        code.append("                    return false;\n");
+        code.append("                }\n");
+        code.append("                Random random = new java.security.SecureRandom();\n");
+        code.append("                long[] picks = new long[Math.max(0, samples)];\n");
+        code.append("                for (int s = 0; s < picks.length; s++) {\n");
+        code.append("                    picks[s] = (long) (random.nextDouble() * total);\n");
+        code.append("                }\n");
+        code.append("                // Visit samples in archive order so every entry is opened once and read forward.\n");
+        code.append("                // Skipping seeks within stored entries, but a deflated entry is inflated up to the sample.\n");
+        code.append("                Arrays.sort(picks);\n");
+        code.append("                byte[] buffer = new byte[chunkSize];\n");
+        code.append("                InputStream data = null;\n");
+        code.append("                int current = -1;\n");
+        code.append("                long position = 0;\n");
+        code.append("                try {\n");
+        code.append("                    for (int s = 0; s < picks.length && total > 0; s++) {\n");
+        code.append("                        int found = Arrays.binarySearch(ends, picks[s] + 1);\n");
+        code.append("                        int i = found >= 0 ? found : -found - 1;\n");
+        code.append("                        int chunk = (int) (picks[s] - (ends[i] - leaves[i].length / digestLength));\n");
+        code.append("                        if (i != current) {\n");
+        code.append("                            if (data != null) {\n");
+        code.append("                                data.close();\n");
+        code.append("                            }\n");
+        code.append("                            java.util.zip.ZipEntry entry = apk.getEntry(names[i]);\n");
+        code.append("                            if (entry == null) {\n");
+        code.append("                                return false;\n");
+        code.append("                            }\n");
+        code.append("                            data = apk.getInputStream(entry);\n");
+        code.append("                            current = i;\n");
+        code.append("                            position = 0;\n");
+        code.append("                        } else if (picks[s] == picks[s - 1]) {\n");
+        code.append("                            continue; // Same chunk drawn twice, already verified\n");
+        code.append("                        }\n");
+        code.append("                        long skip = (long) chunk * chunkSize - position;\n");
+        code.append("                        while (skip > 0) {\n");
+        code.append("                            long skipped = data.skip(skip);\n");
+        code.append("                            if (skipped <= 0) {\n");
+        code.append("                                return false;\n");
+        code.append("                            }\n");
+        code.append("                            skip -= skipped;\n");
+        code.append("                        }\n");
+        code.append("                        int length = 0;\n");
+        code.append("                        int read;\n");
+        code.append("                        while (length < chunkSize && (read = data.read(buffer, length, chunkSize - length)) != -1) {\n");
+        code.append("                            length += read;\n");
+        code.append("                        }\n");
+        code.append("                        position = (long) chunk * chunkSize + length;\n");
+        code.append("                        digest.update((byte) 0);\n");
+        code.append("                        digest.update(buffer, 0, length);\n");
+        code.append("                        byte[] expected = Arrays.copyOfRange(leaves[i], chunk * digestLength, (chunk + 1) * digestLength);\n");
+        code.append("                        if (!MessageDigest.isEqual(expected, digest.digest())) {\n");
+        code.append("                            return false;\n");
+        code.append("                        }\n");
+        code.append("                    }\n");
+        code.append("                } finally {\n");
+        code.append("                    if (data != null) {\n");
+        code.append("                        data.close();\n");
+        code.append("                    }\n");
+        code.append("                }\n");
+        code.append("                return true;\n");
+        code.append("            }\n");
+        code.append("        } catch (Exception e) {\n");
+        code.append("            return false;\n");
+        code.append("        }\n");
+        code.append("    }\n");
+        code.append("\n");
+        code.append("    private static byte[] treeRoot(MessageDigest digest, List<byte[]> level) {\n");
+        code.append("        if (level.isEmpty()) {\n");
+        code.append("            return digest.digest(new byte[] {2});\n");
+        code.append("        }\n");
+        code.append("        while (level.size() > 1) {\n");
+        code.append("            List<byte[]> next = new ArrayList<>();\n");
+        code.append("            for (int i = 0; i + 1 < level.size(); i += 2) {\n");
+        code.append("                digest.update((byte) 1);\n");
+        code.append("                digest.update(level.get(i));\n");
+        code.append("                digest.update(level.get(i + 1));\n");
+        code.append("                next.add(digest.digest());\n");
+        code.append("            }\n");
+        code.append("            if (level.size() % 2 == 1) {\n");
+        code.append("                next.add(level.get(level.size() - 1));\n");
+        code.append("            }\n");
+        code.append("            level = next;\n");
+        code.append("        }\n");
+        code.append("        return level.get(0);\n");
+        code.append("    }\n");
+        code.append("\n");
+        code.append("    private static String toHex(byte[] data) {\n");
+        code.append("        StringBuilder sb = new StringBuilder();\n");
+        code.append("        for (byte b : data) {\n");
+        code.append("            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));\n");
+        code.append("        }\n");
+        code.append("        return sb.toString();\n");
+        code.append("    }\n");
+        code.append("\n");
+        // Digest matching the one the integrity data was recorded with
+        code.append("    private static MessageDigest newDigest() throws Exception {\n");
+        if (digestEngine == DigestEngine.XXH64) {
+            code.append("        return new Xxh64();\n");
+        } else if (digestEngine == DigestEngine.BLAKE3) {
+            code.append("        // Provided by BouncyCastle, which the app has to bundle and register\n");
+            code.append("        return MessageDigest.getInstance(\"BLAKE3-256\");\n");
+        } else {
+            code.append("        return MessageDigest.getInstance(\"SHA-256\");\n");
+        }
+        code.append("    }\n\n");
+        if (digestEngine == DigestEngine.XXH64) {
+            code.append("    private static final class Xxh64 extends MessageDigest {\n");
+            code.append("        private static final long P1 = 0x9E3779B185EBCA87L;\n");
+            code.append("        private static final long P2 = 0xC2B2AE3D27D4EB4FL;\n");
+            code.append("        private static final long P3 = 0x165667B19E3779F9L;\n");
+            code.append("        private static final long P4 = 0x85EBCA77C2B2AE63L;\n");
+            code.append("        private static final long P5 = 0x27D4EB2F165667C5L;\n");
+            code.append("        private final byte[] stripe = new byte[32];\n");
+            code.append("        private int filled;\n");
+            code.append("        private long v1, v2, v3, v4, total;\n");
+            code.append("\n");
+            code.append("        Xxh64() {\n");
+            code.append("            super(\"XXH64\");\n");
+            code.append("            engineReset();\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        protected void engineUpdate(byte input) {\n");
+            code.append("            stripe[filled++] = input;\n");
+            code.append("            total++;\n");
+            code.append("            if (filled == 32) {\n");
+            code.append("                v1 = round(v1, lane(stripe, 0));\n");
+            code.append("                v2 = round(v2, lane(stripe, 8));\n");
+            code.append("                v3 = round(v3, lane(stripe, 16));\n");
+            code.append("                v4 = round(v4, lane(stripe, 24));\n");
+            code.append("                filled = 0;\n");
+            code.append("            }\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        protected void engineUpdate(byte[] input, int offset, int length) {\n");
+            code.append("            while (length > 0 && filled > 0) {\n");
+            code.append("                engineUpdate(input[offset++]);\n");
+            code.append("                length--;\n");
+            code.append("            }\n");
+            code.append("            while (length >= 32) {\n");
+            code.append("                v1 = round(v1, lane(input, offset));\n");
+            code.append("                v2 = round(v2, lane(input, offset + 8));\n");
+            code.append("                v3 = round(v3, lane(input, offset + 16));\n");
+            code.append("                v4 = round(v4, lane(input, offset + 24));\n");
+            code.append("                offset += 32;\n");
+            code.append("                length -= 32;\n");
+            code.append("                total += 32;\n");
+            code.append("            }\n");
+            code.append("            while (length-- > 0) {\n");
+            code.append("                engineUpdate(input[offset++]);\n");
+            code.append("            }\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        protected int engineGetDigestLength() {\n");
+            code.append("            return 8;\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        protected byte[] engineDigest() {\n");
+            code.append("            long h = P5;\n");
+            code.append("            if (total >= 32) {\n");
+            code.append("                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);\n");
+            code.append("                h = merge(merge(merge(merge(h, v1), v2), v3), v4);\n");
+            code.append("            }\n");
+            code.append("            h += total;\n");
+            code.append("            int p = 0;\n");
+            code.append("            for (; p + 8 <= filled; p += 8) {\n");
+            code.append("                h ^= round(0, lane(stripe, p));\n");
+            code.append("                h = Long.rotateLeft(h, 27) * P1 + P4;\n");
+            code.append("            }\n");
+            code.append("            if (p + 4 <= filled) {\n");
+            code.append("                h ^= (lane(stripe, p) & 0xFFFFFFFFL) * P1;\n");
+            code.append("                h = Long.rotateLeft(h, 23) * P2 + P3;\n");
+            code.append("                p += 4;\n");
+            code.append("            }\n");
+            code.append("            for (; p < filled; p++) {\n");
+            code.append("                h ^= (stripe[p] & 0xFF) * P5;\n");
+            code.append("                h = Long.rotateLeft(h, 11) * P1;\n");
+            code.append("            }\n");
+            code.append("            h ^= h >>> 33;\n");
+            code.append("            h *= P2;\n");
+            code.append("            h ^= h >>> 29;\n");
+            code.append("            h *= P3;\n");
+            code.append("            h ^= h >>> 32;\n");
+            code.append("            engineReset();\n");
+            code.append("            byte[] out = new byte[8];\n");
+            code.append("            for (int i = 0; i < 8; i++) {\n");
+            code.append("                out[i] = (byte) (h >>> (56 - 8 * i));\n");
+            code.append("            }\n");
+            code.append("            return out;\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        protected void engineReset() {\n");
+            code.append("            v1 = P1 + P2;\n");
+            code.append("            v2 = P2;\n");
+            code.append("            v3 = 0;\n");
+            code.append("            v4 = -P1;\n");
+            code.append("            total = 0;\n");
+            code.append("            filled = 0;\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        private static long round(long acc, long lane) {\n");
+            code.append("            acc += lane * P2;\n");
+            code.append("            return Long.rotateLeft(acc, 31) * P1;\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        private static long merge(long h, long v) {\n");
+            code.append("            h ^= round(0, v);\n");
+            code.append("            return h * P1 + P4;\n");
+            code.append("        }\n");
+            code.append("\n");
+            code.append("        private static long lane(byte[] b, int o) {\n");
+            code.append("            long v = 0;\n");
+            code.append("            for (int i = 7; i >= 0; i--) {\n");
+            code.append("                v = (v << 8) | (b[o + i] & 0xFF);\n");
+            code.append("            }\n");
+            code.append("            return v;\n");
+            code.append("        }\n");
+            code.append("    }\n");
+            code.append("\n");
+        }
+        
         code.append("    private static boolean isDebugMode() {\n");
         code.append("        try {\n");
         code.append("            return android.os.Debug.isDebuggerConnected();\n");
@@ -265,7 +712,7 @@ public class RealTamperDetection {
         StringBuilder hashData = new StringBuilder();
         
         hashData.append("# Abdal DroidGuard Hash Database\n");
-        hashData.append("# Generated: ").append(new Date()).append("\n");
+        hashData.append("# Generated: ").append(Instant.ofEpochMilli(ReproducibleBuild.currentTimeMillis())).append("\n");
         hashData.append("# Author: Ebrahim Shafiei (EbraSha)\n\n");
         
         for (Map.Entry<String, String> entry : fileHashes.entrySet()) {
@@ -274,9 +721,16 @@ public class RealTamperDetection {
         
         Files.write(hashDb, hashData.toString().getBytes("UTF-8"));
         
+        // Create binary hash database for mapped lookups
+        Files.write(extractedDir.resolve(BinaryHashDatabase.DATABASE_ENTRY),
+            BinaryHashDatabase.encode(fileDigests, hasher.getAlgorithm()));
+        
+        // Create Merkle manifest for sampled chunk verification
+        Files.write(extractedDir.resolve(MerkleManifest.MANIFEST_ENTRY), manifest.toByteArray());
+        
         // Create integrity key
         Path integrityKey = assetsDir.resolve("integrity_key.txt");
-        String key = "ABDAL_INTEGRITY_KEY_" + System.currentTimeMillis() + "_" + 
+        String key = "ABDAL_INTEGRITY_KEY_" + ReproducibleBuild.currentTimeMillis() + "_" + 
                     generateRandomKey();
         Files.write(integrityKey, key.getBytes("UTF-8"));
         
@@ -292,7 +746,7 @@ public class RealTamperDetection {
         // Create tamper detection marker
         Path tamperMarker = assetsDir.resolve("tamper_detection.txt");
         String markerContent = "ABDAL_TAMPER_DETECTION_ENABLED\n" +
-                             "Timestamp: " + System.currentTimeMillis() + "\n" +
+                             "Timestamp: " + ReproducibleBuild.currentTimeMillis() + "\n" +
                              "Version: 1.0.0\n" +
                              "Author: Ebrahim Shafiei (EbraSha)\n" +
                              "Email: Prof.Shafiei@Gmail.com\n" +
@@ -348,7 +802,7 @@ public class RealTamperDetection {
     private String generateRandomKey() {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
         StringBuilder sb = new StringBuilder();
-        Random random = new Random();
+        Random random = ReproducibleBuild.newRandom("integrity-key");
         
         for (int i = 0; i < 16; i++) {
             sb.append(chars.charAt(random.nextInt(chars.length())));
@@ -492,6 +946,6 @@ public class RealTamperDetection {
      * Generate expected signature
      */
     private String generateExpectedSignature() {
-        return "ABDAL_SIGNATURE_" + System.currentTimeMillis() + "_SECURE";
+        return "ABDAL_SIGNATURE_" + ReproducibleBuild.currentTimeMillis() + "_SECURE";
     }
 }
@@ -0,0 +1,356 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : RenameTable.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 21:58:40
+ * Description  : Whole-program rename table applied through an ASM Remapper
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.objectweb.asm.*;
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Rename map for all classes, methods and fields of a program
+ * Classes are first collected (concurrently) with their supertypes, declared
+ * members and the members they reference. build() then assigns new names in
+ * one pass: names that may bind to members of classes outside the program
+ * (overrides of library methods, calls resolved in library classes) are kept,
+ * and every other name gets a fresh one checked against a reverse-lookup set.
+ * Classes keep their package and only get a new simple name, so package-private
+ * access and nestmate checks between a class and its helpers keep working.
+ * Methods and fields are renamed by name across the program, so overrides
+ * inside the program stay consistent. The table is then applied to every
+ * class through getRemapper(), which also rewrites references.
+ */
+public class RenameTable {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final Set<String> OBJECT_METHODS = new HashSet<>(Arrays.asList(
+        "<init>", "<clinit>", "equals", "hashCode", "toString", "clone", "finalize",
+        "getClass", "notify", "notifyAll", "wait"
+    ));
+
+    /**
+     * Declarations of one program class
+     */
+    private static class ClassInfo {
+        final String name;
+        final List<String> supertypes = new ArrayList<>();
+        final Set<String> methods = new HashSet<>();
+        final Set<String> nonPrivateMethods = new HashSet<>();
+        final Set<String> fields = new HashSet<>();
+
+        ClassInfo(String name, String superName, String[] interfaces) {
+            this.name = name;
+            if (superName != null) {
+                supertypes.add(superName);
+            }
+            if (interfaces != null) {
+                supertypes.addAll(Arrays.asList(interfaces));
+            }
+        }
+    }
+
+    private final Supplier<String> nameSource;
+    private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+    private final Set<String> methodReferences = ConcurrentHashMap.newKeySet();
+    private final Set<String> fieldReferences = ConcurrentHashMap.newKeySet();
+    private final Set<String> keptClasses = ConcurrentHashMap.newKeySet();
+    private final Set<String> keptMethods = ConcurrentHashMap.newKeySet();
+    private final Set<String> keptFields = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> classNames = new HashMap<>();
+    private final Map<String, String> methodNames = new HashMap<>();
+    private final Map<String, String> fieldNames = new HashMap<>();
+    private final Remapper remapper = new TableRemapper();
+    private boolean built = false;
+
+    /**
+     * Create table drawing new names from nameSource
+     */
+    public RenameTable(Supplier<String> nameSource) {
+        this.nameSource = nameSource;
+    }
+
+    /**
+     * Keep the name of a class, e.g. the Main-Class of a JAR
+     */
+    public void keepClass(String internalName) {
+        keptClasses.add(internalName);
+    }
+
+    /**
+     * Keep a method name everywhere in the program
+     */
+    public void keepMethod(String name) {
+        keptMethods.add(name);
+    }
+
+    /**
+     * Record declarations and references of a class, safe to call concurrently
+     */
+    public void collect(ClassReader reader) {
+        reader.accept(new Collector(), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    /**
+     * Assign new names to everything that was collected and is not kept
+     */
+    public void build() {
+        Set<String> methodsToKeep = new HashSet<>(OBJECT_METHODS);
+        methodsToKeep.addAll(keptMethods);
+        Set<String> fieldsToKeep = new HashSet<>(keptFields);
+
+        // Members reached through library classes keep their names
+        for (String reference : methodReferences) {
+            int dot = reference.indexOf('.');
+            if (!isDeclaredInProgram(reference.substring(0, dot), reference.substring(dot + 1), true)) {
+                methodsToKeep.add(reference.substring(dot + 1));
+            }
+        }
+        for (String reference : fieldReferences) {
+            int dot = reference.indexOf('.');
+            if (!isDeclaredInProgram(reference.substring(0, dot), reference.substring(dot + 1), false)) {
+                fieldsToKeep.add(reference.substring(dot + 1));
+            }
+        }
+        // Methods of classes extending library types may override library methods
+        Map<String, Boolean> libraryAncestry = new HashMap<>();
+        for (ClassInfo info : classes.values()) {
+            if (hasLibraryAncestor(info.name, libraryAncestry)) {
+                methodsToKeep.addAll(info.nonPrivateMethods);
+            }
+        }
+
+        SortedSet<String> declaredMethods = new TreeSet<>();
+        SortedSet<String> declaredFields = new TreeSet<>();
+        for (ClassInfo info : classes.values()) {
+            declaredMethods.addAll(info.methods);
+            declaredFields.addAll(info.fields);
+        }
+        assignClasses(new TreeSet<>(classes.keySet()));
+        assign(declaredMethods, methodsToKeep, methodNames);
+        assign(declaredFields, fieldsToKeep, fieldNames);
+        built = true;
+    }
+
+    /**
+     * Get remapper applying this table, for use with ClassRemapper
+     */
+    public Remapper getRemapper() {
+        if (!built) {
+            throw new IllegalStateException("Rename table has not been built");
+        }
+        return remapper;
+    }
+
+    /**
+     * Get new internal name of a class, the name itself if it is not renamed
+     */
+    public String mapClass(String internalName) {
+        return classNames.getOrDefault(internalName, internalName);
+    }
+
+    /**
+     * Get number of collected program classes
+     */
+    public int getClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * Get number of renamed class, method and field names
+     */
+    public int getRenamedCount() {
+        return classNames.size() + methodNames.size() + fieldNames.size();
+    }
+
+    /**
+     * Map every name that is not kept to a fresh name
+     * The reverse-lookup set makes each collision check a hash lookup.
+     */
+    private void assign(SortedSet<String> names, Set<String> kept, Map<String, String> target) {
+        Set<String> taken = new HashSet<>(kept);
+        for (String name : names) {
+            if (kept.contains(name)) {
+                continue;
+            }
+            String newName;
+            do {
+                newName = nameSource.get();
+            } while (!taken.add(newName));
+            target.put(name, newName);
+        }
+    }
+
+    /**
+     * Give every class that is not kept a fresh simple name inside its own package
+     */
+    private void assignClasses(SortedSet<String> names) {
+        Set<String> taken = new HashSet<>(keptClasses);
+        for (String name : names) {
+            if (keptClasses.contains(name)) {
+                continue;
+            }
+            String packagePrefix = name.substring(0, name.lastIndexOf('/') + 1);
+            String newName;
+            do {
+                newName = packagePrefix + nameSource.get();
+            } while (!taken.add(newName));
+            classNames.put(name, newName);
+        }
+    }
+
+    /**
+     * Check if a member referenced through owner is declared by owner or one
+     * of its program supertypes, so renaming it by name is safe
+     */
+    private boolean isDeclaredInProgram(String owner, String name, boolean method) {
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        pending.push(owner);
+        while (!pending.isEmpty()) {
+            ClassInfo info = classes.get(pending.pop());
+            if (info == null) {
+                continue;
+            }
+            if ((method ? info.methods : info.fields).contains(name)) {
+                return true;
+            }
+            for (String supertype : info.supertypes) {
+                if (seen.add(supertype)) {
+                    pending.push(supertype);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasLibraryAncestor(String name, Map<String, Boolean> memo) {
+        Boolean known = memo.get(name);
+        if (known != null) {
+            return known;
+        }
+        memo.put(name, false);
+        boolean result = false;
+        for (String supertype : classes.get(name).supertypes) {
+            if (!supertype.equals(OBJECT) && (!classes.containsKey(supertype) || hasLibraryAncestor(supertype, memo))) {
+                result = true;
+                break;
+            }
+        }
+        memo.put(name, result);
+        return result;
+    }
+
+    private boolean isProgramClass(String internalName) {
+        return classes.containsKey(internalName);
+    }
+
+    /**
+     * Collects one class, a fresh instance is used per class
+     */
+    private class Collector extends ClassVisitor {
+        private ClassInfo info;
+
+        Collector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            info = new ClassInfo(name, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            info.fields.add(name);
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            info.methods.add(name);
+            if ((access & Opcodes.ACC_PRIVATE) == 0) {
+                info.nonPrivateMethods.add(name);
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                    methodReferences.add(owner + "." + name);
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                    fieldReferences.add(owner + "." + name);
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                   Object... bootstrapMethodArguments) {
+                    for (Object argument : bootstrapMethodArguments) {
+                        if (argument instanceof Handle) {
+                            Handle handle = (Handle) argument;
+                            (handle.getTag() <= Opcodes.H_PUTSTATIC ? fieldReferences : methodReferences)
+                                .add(handle.getOwner() + "." + handle.getName());
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void visitEnd() {
+            classes.put(info.name, info);
+        }
+    }
+
+    /**
+     * Remapper backed by the table
+     */
+    private class TableRemapper extends Remapper {
+
+        @Override
+        public String map(String internalName) {
+            return classNames.getOrDefault(internalName, internalName);
+        }
+
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            return isProgramClass(owner) ? methodNames.getOrDefault(name, name) : name;
+        }
+
+        @Override
+        public String mapInvokeDynamicMethodName(String name, String descriptor) {
+            // For lambdas the name is the method of the functional interface being created
+            Type type = Type.getReturnType(descriptor);
+            boolean programInterface = type.getSort() == Type.OBJECT && isProgramClass(type.getInternalName());
+            return programInterface ? methodNames.getOrDefault(name, name) : name;
+        }
+
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            return isProgramClass(owner) ? fieldNames.getOrDefault(name, name) : name;
+        }
+
+        @Override
+        public String mapRecordComponentName(String owner, String name, String descriptor) {
+            return mapFieldName(owner, name, descriptor);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ReproducibleBuild.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:06:44
+ * Description  : Fixed clock and seeded randomness for byte-identical output
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Process-wide switch for reproducible builds
+ * When enabled, every timestamp that ends up in the output comes from a fixed
+ * epoch and every random choice comes from a generator seeded by the build
+ * seed and a purpose label, so two runs over the same input produce the same
+ * bytes. Generators are per purpose, not per file, so a stage that processes
+ * files in parallel must draw from its generator in a fixed order, as the
+ * rename table does, or the sequence follows thread scheduling.
+ * Enable before the hardening components are created.
+ */
+public final class ReproducibleBuild {
+
+    /**
+     * Default fixed epoch, 1980-02-01 00:00:00 UTC, safely inside the ZIP date range
+     */
+    public static final long DEFAULT_EPOCH_MILLIS = 318211200000L;
+
+    /**
+     * Environment variable holding the fixed epoch in seconds
+     */
+    public static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+
+    private static volatile boolean enabled = false;
+    private static volatile long epochMillis = DEFAULT_EPOCH_MILLIS;
+    private static volatile long seed = 0;
+
+    private ReproducibleBuild() {
+    }
+
+    /**
+     * Enable with the given seed and the epoch from SOURCE_DATE_EPOCH, or the default epoch
+     */
+    public static void enable(long seed) {
+        long epoch = DEFAULT_EPOCH_MILLIS;
+        String value = System.getenv(SOURCE_DATE_EPOCH);
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                epoch = Long.parseLong(value.trim()) * 1000L;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + SOURCE_DATE_EPOCH + ": " + value);
+            }
+        }
+        enable(epoch, seed);
+    }
+
+    /**
+     * Enable with an explicit epoch in milliseconds and seed
+     */
+    public static void enable(long epochMillis, long seed) {
+        ReproducibleBuild.epochMillis = epochMillis;
+        ReproducibleBuild.seed = seed;
+        ReproducibleBuild.enabled = true;
+    }
+
+    /**
+     * Go back to wall-clock time and unseeded randomness
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * Check if reproducible mode is on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the build seed
+     */
+    public static long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the fixed epoch in milliseconds
+     */
+    public static long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Time to embed in output: the fixed epoch when enabled, otherwise the wall clock
+     */
+    public static long currentTimeMillis() {
+        return enabled ? epochMillis : System.currentTimeMillis();
+    }
+
+    /**
+     * Random generator for one purpose, seeded when enabled and secure otherwise
+     */
+    public static Random newRandom(String purpose) {
+        return enabled ? new Random(seedFor(purpose)) : new SecureRandom();
+    }
+
+    /**
+     * Name generator for one purpose, seeded when enabled
+     */
+    public static NameGenerator newNameGenerator(String purpose) {
+        return enabled ? new NameGenerator(seedFor(purpose)) : NameGenerator.withRandomSeed();
+    }
+
+    /**
+     * Derive a stable seed for a purpose label from the build seed
+     */
+    static long seedFor(String purpose) {
+        CRC32 crc = new CRC32();
+        crc.update(purpose.getBytes(StandardCharsets.UTF_8));
+        return new SplittableRandom(seed ^ (crc.getValue() << 32 | crc.getValue())).nextLong();
+    }
+}
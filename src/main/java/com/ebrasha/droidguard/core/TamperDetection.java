@@ -27,7 +27,6 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.*;
 import java.util.jar.JarEntry;
@@ -47,6 +46,7 @@ public class TamperDetection {
     private final SecureRandom random = new SecureRandom();
     private final Map<String, String> fileHashes = new HashMap<>();
     private final Map<String, String> signatureHashes = new HashMap<>();
+    private final ParallelFileHasher hasher = new ParallelFileHasher(Runtime.getRuntime().availableProcessors());
     
     /**
      * Add tamper detection to the application
@@ -89,8 +89,8 @@ public class TamperDetection {
             // Extract APK contents
             extractAPK(apkFile, extractedDir);
             
-            // Calculate and store file hashes
-            calculateFileHashes(extractedDir);
+            // Calculate and store entry hashes straight from the archive
+            calculateArchiveHashes(apkFile);
             
             // Generate integrity verification code
             generateIntegrityVerifier(extractedDir);
@@ -141,6 +141,7 @@ public class TamperDetection {
                         byte[] protectedClass = addTamperDetectionToClass(inputJar.getInputStream(entry));
                         
                         JarEntry newEntry = new JarEntry(entryName);
+                        newEntry.setTime(ReproducibleBuild.currentTimeMillis());
                         outputJar.putNextEntry(newEntry);
                         outputJar.write(protectedClass);
                         outputJar.closeEntry();
@@ -148,6 +149,7 @@ public class TamperDetection {
                     } else {
                         // Copy other files as-is
                         JarEntry newEntry = new JarEntry(entryName);
+                        newEntry.setTime(ReproducibleBuild.currentTimeMillis());
                         outputJar.putNextEntry(newEntry);
                         try (InputStream inputStream = inputJar.getInputStream(entry)) {
                             inputStream.transferTo(outputJar);
@@ -203,58 +205,15 @@ public class TamperDetection {
     }
     
     /**
-     * Calculate file hashes for integrity verification
-     * @param extractDir Directory containing extracted files
-     */
-    private void calculateFileHashes(Path extractDir) throws IOException {
-        logger.debug("Calculating file hashes for integrity verification...");
-        
-        Files.walk(extractDir)
-            .filter(Files::isRegularFile)
-            .forEach(filePath -> {
-                try {
-                    String relativePath = extractDir.relativize(filePath).toString().replace("\\", "/");
-                    String hash = calculateFileHash(filePath);
-                    fileHashes.put(relativePath, hash);
-                    logger.debug("Hash for " + relativePath + ": " + hash);
-                } catch (IOException e) {
-                    logger.error("Failed to calculate hash for: " + filePath + " - " + e.getMessage());
-                }
-            });
-    }
-    
-    /**
-     * Calculate hash of a single file
-     * @param filePath Path to file
-     * @return SHA-256 hash of the file
+     * Calculate entry hashes for integrity verification without extracting the archive
+     * @param archiveFile APK or JAR file
      */
-    private String calculateFileHash(Path filePath) throws IOException {
-        MessageDigest digest = null;
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (Exception e) {
-            throw new IOException("Failed to create SHA-256 digest", e);
-        }
+    private void calculateArchiveHashes(File archiveFile) throws IOException {
+        logger.debug("Calculating entry hashes for integrity verification...");
         
-        try (InputStream inputStream = Files.newInputStream(filePath)) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
-            }
-        }
-        
-        byte[] hashBytes = digest.digest();
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hashBytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+        for (Map.Entry<String, byte[]> entry : hasher.hashArchive(archiveFile.toPath()).entrySet()) {
+            fileHashes.put(entry.getKey(), ParallelFileHasher.toHex(entry.getValue()));
         }
-        
-        return hexString.toString();
     }
     
     /**
@@ -492,10 +451,12 @@ public class TamperDetection {
         try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(outputFile))) {
             Files.walk(extractDir)
                 .filter(Files::isRegularFile)
+                .sorted()
                 .forEach(filePath -> {
                     try {
                         String relativePath = extractDir.relativize(filePath).toString().replace("\\", "/");
                         ZipEntry entry = new ZipEntry(relativePath);
+                        entry.setTime(ReproducibleBuild.currentTimeMillis());
                         zipOut.putNextEntry(entry);
                         Files.copy(filePath, zipOut);
                         zipOut.closeEntry();
@@ -532,30 +493,7 @@ public class TamperDetection {
      * @return SHA-256 hash
      */
     private String calculateStreamHash(InputStream inputStream) throws IOException {
-        MessageDigest digest = null;
-        try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (Exception e) {
-            throw new IOException("Failed to create SHA-256 digest", e);
-        }
-        
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            digest.update(buffer, 0, bytesRead);
-        }
-        
-        byte[] hashBytes = digest.digest();
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hashBytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        
-        return hexString.toString();
+        return ParallelFileHasher.toHex(hasher.hash(inputStream));
     }
     
     /**
@@ -578,6 +516,7 @@ public class TamperDetection {
         byte[] classBytes = compileJavaClass(integrityClass);
         
         JarEntry entry = new JarEntry("com/ebrasha/droidguard/IntegrityVerifier.class");
+        entry.setTime(ReproducibleBuild.currentTimeMillis());
         jarOutputStream.putNextEntry(entry);
         jarOutputStream.write(classBytes);
         jarOutputStream.closeEntry();
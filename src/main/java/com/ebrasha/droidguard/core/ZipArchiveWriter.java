@@ -0,0 +1,541 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ZipArchiveWriter.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 12:14:50
+ * Description  : FileChannel based APK writer with raw entry copy support
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * APK (ZIP) writer on top of a FileChannel
+ * Unlike ZipOutputStream it can copy the compressed bytes of an entry from a
+ * source archive as-is (FileChannel.transferTo), so unchanged entries are never
+ * inflated and deflated again. Local headers are written with final CRC and
+ * sizes, so no data descriptors are emitted.
+ * STORED entries are aligned while writing (like zipalign -p): the local
+ * header extra field is padded so entry data starts on a 4-byte boundary,
+ * or on a 16 KB page boundary for native libraries so they can be mapped
+ * directly from the APK.
+ */
+public class ZipArchiveWriter implements Closeable {
+
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long MAX_ZIP32_VALUE = 0xFFFFFFFFL;
+    private static final int MAX_ZIP32_ENTRIES = 0xFFFF;
+    private static final int BUFFER_SIZE = 65536;
+    // Direct buffer per thread for CRC reads, entries are prepared in parallel
+    private static final ThreadLocal<ByteBuffer> CRC_BUFFERS =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private static final int ALIGNMENT_EXTRA_ID = 0xD935;
+    private static final int ALIGNMENT_EXTRA_HEADER_SIZE = 6;
+    static final int STORED_ALIGNMENT = 4;
+    static final int NATIVE_LIBRARY_ALIGNMENT = 16384;
+
+    private final Path outputPath;
+    private final FileChannel channel;
+    private final List<CentralRecord> records = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private EntryOutputStream currentEntry;
+    private boolean alignmentEnabled = true;
+    private boolean closed = false;
+
+    /**
+     * Central directory record of a written entry
+     */
+    private static class CentralRecord {
+        byte[] name;
+        int flags;
+        int method;
+        long dosDateTime;
+        long crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+        int alignment;
+    }
+
+    /**
+     * Create writer, truncating any existing output file
+     */
+    public ZipArchiveWriter(Path outputPath) throws IOException {
+        this.outputPath = outputPath;
+        this.channel = FileChannel.open(outputPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Copy an entry from a source archive without recompressing it
+     * The compressed bytes are transferred channel to channel, and the entry
+     * keeps its method, CRC, sizes and timestamp from the source central directory
+     */
+    public void copyRawEntry(ZipCentralDirectory source, APKParser.APKEntry entry) throws IOException {
+        ensureNoOpenEntry();
+        CentralRecord record = newRecord(entry.name, entry.method, entry.time);
+        record.crc = entry.crc;
+        record.compressedSize = entry.compressedSize;
+        record.size = entry.size;
+
+        long dataOffset = source.getDataOffset(entry);
+        writeLocalHeader(record);
+        transferFully(source.getChannel(), dataOffset, entry.compressedSize);
+        records.add(record);
+    }
+
+    /**
+     * Open a new entry; data written to the stream is stored or deflated
+     * The local header is patched with CRC and sizes when the stream is closed
+     */
+    public OutputStream openEntry(String name, int method, long time) throws IOException {
+        ensureNoOpenEntry();
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + name);
+        }
+        CentralRecord record = newRecord(name, method, time);
+        writeLocalHeader(record);
+        currentEntry = new EntryOutputStream(record);
+        return currentEntry;
+    }
+
+    /**
+     * Write a complete entry from memory
+     */
+    public void writeEntry(String name, byte[] data, int method, long time) throws IOException {
+        try (OutputStream out = openEntry(name, method, time)) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Write an entry whose data was already compressed (or is stored) elsewhere
+     */
+    public void writePrecompressedEntry(String name, int method, long time, long crc, long size,
+                                        ByteBuffer data) throws IOException {
+        ensureNoOpenEntry();
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + " for entry: " + name);
+        }
+        CentralRecord record = newRecord(name, method, time);
+        record.crc = crc;
+        record.compressedSize = data.remaining();
+        record.size = size;
+        writeLocalHeader(record);
+        writeFully(data);
+        records.add(record);
+    }
+
+    /**
+     * Write a file as a STORED entry without loading it into memory
+     * Pass one computes the CRC through mapped chunks, pass two transfers the
+     * file into the archive channel to channel
+     */
+    public void writeStoredFile(String name, Path file, long time) throws IOException {
+        writeStoredFile(name, file, time, crc32(file));
+    }
+
+    /**
+     * Write a file as a STORED entry using a CRC computed beforehand
+     */
+    public void writeStoredFile(String name, Path file, long time, long crc) throws IOException {
+        ensureNoOpenEntry();
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            if (size > MAX_ZIP32_VALUE) {
+                throw new ZipException("Entry too large, ZIP64 output is not supported: " + name);
+            }
+            CentralRecord record = newRecord(name, ZipEntry.STORED, time);
+            record.crc = crc;
+            record.compressedSize = size;
+            record.size = size;
+            writeLocalHeader(record);
+            transferFully(source, 0, size);
+            records.add(record);
+        }
+    }
+
+    /**
+     * Compute CRC-32 of a file through a reused direct buffer
+     * Heap use stays constant regardless of the file size. The file is not
+     * mapped, so it can be deleted right after the archive is built.
+     */
+    public static long crc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = CRC_BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Enable or disable alignment of STORED entries (enabled by default)
+     */
+    public void setAlignmentEnabled(boolean alignmentEnabled) {
+        this.alignmentEnabled = alignmentEnabled;
+    }
+
+    /**
+     * Get data alignment required for an entry, 0 if it does not need alignment
+     */
+    static int getAlignment(String name, int method) {
+        if (method != ZipEntry.STORED) {
+            return 0;
+        }
+        if (name.startsWith("lib/") && name.endsWith(".so")) {
+            return NATIVE_LIBRARY_ALIGNMENT;
+        }
+        return STORED_ALIGNMENT;
+    }
+
+    /**
+     * Check if entry name was already written
+     */
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    /**
+     * Get number of entries written so far
+     */
+    public int getEntryCount() {
+        return records.size();
+    }
+
+    /**
+     * Create record for a new entry and reject duplicate names
+     */
+    private CentralRecord newRecord(String name, int method, long time) throws IOException {
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        CentralRecord record = new CentralRecord();
+        record.name = name.getBytes(StandardCharsets.UTF_8);
+        record.flags = record.name.length != name.length() ? FLAG_UTF8 : 0;
+        record.method = method;
+        // Reproducible builds stamp every entry, copied ones included, with the fixed epoch
+        record.dosDateTime = javaToDosTime(ReproducibleBuild.isEnabled() ? ReproducibleBuild.currentTimeMillis() : time);
+        record.alignment = alignmentEnabled ? getAlignment(name, method) : 0;
+        record.localHeaderOffset = channel.position();
+        if (record.localHeaderOffset > MAX_ZIP32_VALUE) {
+            throw new ZipException("Archive too large, ZIP64 output is not supported: " + outputPath);
+        }
+        return record;
+    }
+
+    /**
+     * Write local file header for record at the current position
+     * For entries that need alignment, the extra field carries the padding
+     */
+    private void writeLocalHeader(CentralRecord record) throws IOException {
+        int extraLength = 0;
+        int alignment = record.alignment;
+        if (alignment > 0) {
+            long dataOffset = record.localHeaderOffset + ZipCentralDirectory.LOCAL_HEADER_SIZE + record.name.length;
+            if (dataOffset % alignment != 0) {
+                long paddedOffset = dataOffset + ALIGNMENT_EXTRA_HEADER_SIZE;
+                extraLength = ALIGNMENT_EXTRA_HEADER_SIZE + (int) ((alignment - paddedOffset % alignment) % alignment);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(ZipCentralDirectory.LOCAL_HEADER_SIZE + record.name.length + extraLength)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(ZipCentralDirectory.LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) versionNeeded(record.method));
+        header.putShort((short) record.flags);
+        header.putShort((short) record.method);
+        header.putInt((int) record.dosDateTime);
+        header.putInt((int) record.crc);
+        header.putInt((int) record.compressedSize);
+        header.putInt((int) record.size);
+        header.putShort((short) record.name.length);
+        header.putShort((short) extraLength);
+        header.put(record.name);
+        if (extraLength > 0) {
+            // Android alignment extra: ID, data size, alignment, zero padding
+            header.putShort((short) ALIGNMENT_EXTRA_ID);
+            header.putShort((short) (extraLength - 4));
+            header.putShort((short) alignment);
+        }
+        header.position(header.limit());
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Patch CRC and sizes of an already written local header
+     */
+    private void patchLocalHeader(CentralRecord record) throws IOException {
+        ByteBuffer patch = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        patch.putInt((int) record.crc);
+        patch.putInt((int) record.compressedSize);
+        patch.putInt((int) record.size);
+        patch.flip();
+        long position = record.localHeaderOffset + 14;
+        while (patch.hasRemaining()) {
+            position += channel.write(patch, position);
+        }
+    }
+
+    /**
+     * Transfer a region of another channel to the end of the output
+     */
+    private void transferFully(FileChannel source, long position, long count) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long n = source.transferTo(position + transferred, count - transferred, channel);
+            if (n <= 0) {
+                if (position + transferred >= source.size()) {
+                    throw new EOFException("Unexpected end of source archive while copying entry data");
+                }
+                continue;
+            }
+            transferred += n;
+        }
+    }
+
+    /**
+     * Write buffer to the end of the output
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fail if a previously opened entry stream is still open
+     */
+    private void ensureNoOpenEntry() throws IOException {
+        if (closed) {
+            throw new IOException("Archive writer is closed: " + outputPath);
+        }
+        if (currentEntry != null) {
+            throw new ZipException("Previous entry is still open");
+        }
+    }
+
+    /**
+     * Get version needed to extract for compression method
+     */
+    private static int versionNeeded(int method) {
+        return method == ZipEntry.DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+    }
+
+    /**
+     * Convert Java time to MS-DOS date (high 16 bits) and time (low 16 bits)
+     * Reproducible builds use UTC so the host time zone does not leak into the archive.
+     */
+    static long javaToDosTime(long time) {
+        if (time < 0) {
+            return (1 << 21) | (1 << 16); // 1980-01-01 00:00:00
+        }
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time),
+            ReproducibleBuild.isEnabled() ? ZoneOffset.UTC : ZoneId.systemDefault());
+        int year = dateTime.getYear();
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        if (year > 2107) {
+            year = 2107;
+        }
+        long dosDate = ((year - 1980) << 9) | (dateTime.getMonthValue() << 5) | dateTime.getDayOfMonth();
+        long dosTime = (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+        return (dosDate << 16) | dosTime;
+    }
+
+    /**
+     * Write central directory and end of central directory record
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (currentEntry != null) {
+                currentEntry.close();
+            }
+            if (records.size() > MAX_ZIP32_ENTRIES) {
+                throw new ZipException("Too many entries, ZIP64 output is not supported: " + outputPath);
+            }
+
+            long centralDirectoryOffset = channel.position();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (CentralRecord record : records) {
+                int recordSize = ZipCentralDirectory.CENTRAL_HEADER_SIZE + record.name.length;
+                if (buffer.remaining() < recordSize) {
+                    buffer.flip();
+                    writeFully(buffer);
+                    buffer.clear();
+                    if (buffer.remaining() < recordSize) {
+                        buffer = ByteBuffer.allocate(recordSize).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                int version = versionNeeded(record.method);
+                buffer.putInt(ZipCentralDirectory.CENTRAL_HEADER_SIGNATURE);
+                buffer.putShort((short) version);
+                buffer.putShort((short) version);
+                buffer.putShort((short) record.flags);
+                buffer.putShort((short) record.method);
+                buffer.putInt((int) record.dosDateTime);
+                buffer.putInt((int) record.crc);
+                buffer.putInt((int) record.compressedSize);
+                buffer.putInt((int) record.size);
+                buffer.putShort((short) record.name.length);
+                buffer.putShort((short) 0); // extra length
+                buffer.putShort((short) 0); // comment length
+                buffer.putShort((short) 0); // disk number
+                buffer.putShort((short) 0); // internal attributes
+                buffer.putInt(0);           // external attributes
+                buffer.putInt((int) record.localHeaderOffset);
+                buffer.put(record.name);
+            }
+            buffer.flip();
+            writeFully(buffer);
+
+            long centralDirectorySize = channel.position() - centralDirectoryOffset;
+            if (centralDirectoryOffset > MAX_ZIP32_VALUE || centralDirectorySize > MAX_ZIP32_VALUE) {
+                throw new ZipException("Archive too large, ZIP64 output is not supported: " + outputPath);
+            }
+
+            ByteBuffer eocd = ByteBuffer.allocate(ZipCentralDirectory.EOCD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            eocd.putInt(ZipCentralDirectory.EOCD_SIGNATURE);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) 0);
+            eocd.putShort((short) records.size());
+            eocd.putShort((short) records.size());
+            eocd.putInt((int) centralDirectorySize);
+            eocd.putInt((int) centralDirectoryOffset);
+            eocd.putShort((short) 0);
+            eocd.flip();
+            writeFully(eocd);
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Stream for a single entry, computes CRC and optionally deflates
+     */
+    private class EntryOutputStream extends OutputStream {
+        private final CentralRecord record;
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater;
+        private final byte[] deflateBuffer;
+        private long size = 0;
+        private long compressedSize = 0;
+        private boolean entryClosed = false;
+
+        EntryOutputStream(CentralRecord record) {
+            this.record = record;
+            if (record.method == ZipEntry.DEFLATED) {
+                this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                this.deflateBuffer = new byte[BUFFER_SIZE];
+            } else {
+                this.deflater = null;
+                this.deflateBuffer = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (entryClosed) {
+                throw new IOException("Entry is closed");
+            }
+            if (len == 0) {
+                return;
+            }
+            crc.update(b, off, len);
+            size += len;
+            if (deflater == null) {
+                writeData(ByteBuffer.wrap(b, off, len));
+            } else {
+                deflater.setInput(b, off, len);
+                while (!deflater.needsInput()) {
+                    drainDeflater();
+                }
+            }
+        }
+
+        private void drainDeflater() throws IOException {
+            int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+            if (n > 0) {
+                writeData(ByteBuffer.wrap(deflateBuffer, 0, n));
+            }
+        }
+
+        private void writeData(ByteBuffer data) throws IOException {
+            compressedSize += data.remaining();
+            writeFully(data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (entryClosed) {
+                return;
+            }
+            entryClosed = true;
+            try {
+                if (deflater != null) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        drainDeflater();
+                    }
+                }
+                if (size > MAX_ZIP32_VALUE || compressedSize > MAX_ZIP32_VALUE) {
+                    throw new ZipException("Entry too large, ZIP64 output is not supported: "
+                        + new String(record.name, StandardCharsets.UTF_8));
+                }
+                record.crc = crc.getValue();
+                record.size = size;
+                record.compressedSize = compressedSize;
+                patchLocalHeader(record);
+                records.add(record);
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+                currentEntry = null;
+            }
+        }
+    }
+}
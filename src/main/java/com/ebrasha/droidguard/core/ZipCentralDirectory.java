@@ -0,0 +1,392 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ZipCentralDirectory.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 09:41:12
+ * Description  : Central directory reader for APK archives without entry inflation
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Central directory reader for APK (ZIP) archives
+ * Locates the End-of-Central-Directory record through a FileChannel and builds
+ * APK entries straight from the central directory, so the cost depends on the
+ * number of entries and not on the size of the archive
+ */
+public class ZipCentralDirectory implements Closeable {
+
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int EOCD_SIGNATURE = 0x06054b50;
+    static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    static final int LOCAL_HEADER_SIZE = 30;
+    static final int CENTRAL_HEADER_SIZE = 46;
+    static final int EOCD_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private final Path archivePath;
+    private final FileChannel channel;
+    private final List<APKParser.APKEntry> entries = new ArrayList<>();
+    private final Map<String, APKParser.APKEntry> entriesByName = new HashMap<>();
+    private long centralDirectoryOffset;
+    private long centralDirectorySize;
+
+    private ZipCentralDirectory(Path archivePath) throws IOException {
+        this.archivePath = archivePath;
+        this.channel = FileChannel.open(archivePath, StandardOpenOption.READ);
+        try {
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open archive and read its central directory
+     */
+    public static ZipCentralDirectory open(Path archivePath) throws IOException {
+        return new ZipCentralDirectory(archivePath);
+    }
+
+    /**
+     * Open archive and read its central directory
+     */
+    public static ZipCentralDirectory open(File archiveFile) throws IOException {
+        return new ZipCentralDirectory(archiveFile.toPath());
+    }
+
+    /**
+     * Locate EOCD record and decode every central directory header
+     */
+    private void readCentralDirectory() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < EOCD_SIZE) {
+            throw new IOException("Not a ZIP archive (too small): " + archivePath);
+        }
+
+        // EOCD is the last record, followed only by an optional comment of up to 64 KB
+        int tailSize = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT_SIZE);
+        long tailStart = fileSize - tailSize;
+        ByteBuffer tail = readFully(tailStart, tailSize);
+
+        int eocdPos = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                int commentLength = tail.getShort(i + 20) & 0xFFFF;
+                if (i + EOCD_SIZE + commentLength == tailSize) {
+                    eocdPos = i;
+                    break;
+                }
+            }
+        }
+        if (eocdPos < 0) {
+            throw new IOException("End of central directory record not found: " + archivePath);
+        }
+
+        long entryCount = tail.getShort(eocdPos + 10) & 0xFFFF;
+        centralDirectorySize = tail.getInt(eocdPos + 12) & 0xFFFFFFFFL;
+        centralDirectoryOffset = tail.getInt(eocdPos + 16) & 0xFFFFFFFFL;
+
+        // ZIP64 archives keep the real values in the ZIP64 EOCD record
+        long eocdOffset = tailStart + eocdPos;
+        if ((entryCount == 0xFFFF || centralDirectorySize == 0xFFFFFFFFL || centralDirectoryOffset == 0xFFFFFFFFL)
+                && eocdOffset >= ZIP64_LOCATOR_SIZE) {
+            ByteBuffer locator = readFully(eocdOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64 = readFully(locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                    throw new IOException("Invalid ZIP64 end of central directory record: " + archivePath);
+                }
+                entryCount = zip64.getLong(32);
+                centralDirectorySize = zip64.getLong(40);
+                centralDirectoryOffset = zip64.getLong(48);
+            }
+        }
+
+        if (centralDirectoryOffset + centralDirectorySize > eocdOffset || centralDirectorySize > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt central directory bounds: " + archivePath);
+        }
+
+        ByteBuffer cd = readFully(centralDirectoryOffset, (int) centralDirectorySize);
+        int pos = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (pos + CENTRAL_HEADER_SIZE > cd.limit() || cd.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt central directory header #" + i + ": " + archivePath);
+            }
+
+            int method = cd.getShort(pos + 10) & 0xFFFF;
+            int dosTime = cd.getShort(pos + 12) & 0xFFFF;
+            int dosDate = cd.getShort(pos + 14) & 0xFFFF;
+            long crc = cd.getInt(pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = cd.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = cd.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+            int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+            int commentLength = cd.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = cd.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            cd.get(pos + CENTRAL_HEADER_SIZE, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // Resolve ZIP64 extended information for saturated fields
+            if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                int extraPos = pos + CENTRAL_HEADER_SIZE + nameLength;
+                int extraEnd = extraPos + extraLength;
+                while (extraPos + 4 <= extraEnd) {
+                    int id = cd.getShort(extraPos) & 0xFFFF;
+                    int dataSize = cd.getShort(extraPos + 2) & 0xFFFF;
+                    int dataPos = extraPos + 4;
+                    if (id == ZIP64_EXTRA_ID) {
+                        if (size == 0xFFFFFFFFL) {
+                            size = cd.getLong(dataPos);
+                            dataPos += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = cd.getLong(dataPos);
+                            dataPos += 8;
+                        }
+                        if (localHeaderOffset == 0xFFFFFFFFL) {
+                            localHeaderOffset = cd.getLong(dataPos);
+                        }
+                        break;
+                    }
+                    extraPos += 4 + dataSize;
+                }
+            }
+
+            APKParser.APKEntry entry = new APKParser.APKEntry(
+                name,
+                size,
+                compressedSize,
+                crc,
+                method,
+                dosToJavaTime(dosDate, dosTime),
+                name.endsWith("/"),
+                localHeaderOffset
+            );
+            entries.add(entry);
+            entriesByName.put(name, entry);
+
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * Get offset of entry data (just past its local header)
+     */
+    public long getDataOffset(APKParser.APKEntry entry) throws IOException {
+        ByteBuffer header = readFully(entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for entry: " + entry.name);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        return entry.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    /**
+     * Open a stream over the uncompressed content of an entry
+     * Reads go straight to the archive through positional channel reads
+     */
+    public InputStream openEntry(APKParser.APKEntry entry) throws IOException {
+        long dataOffset = getDataOffset(entry);
+        InputStream raw = new BufferedInputStream(
+            Channels.newInputStream(new RegionChannel(channel, dataOffset, entry.compressedSize)), 65536);
+        if (entry.method == ZipEntry.STORED) {
+            return raw;
+        }
+        if (entry.method != ZipEntry.DEFLATED) {
+            raw.close();
+            throw new IOException("Unsupported compression method " + entry.method + " for entry: " + entry.name);
+        }
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(raw, inflater, 65536) {
+            private boolean closed = false;
+            private boolean eof = false;
+
+            @Override
+            protected void fill() throws IOException {
+                if (eof) {
+                    throw new EOFException("Unexpected end of compressed data: " + entry.name);
+                }
+                len = in.read(buf, 0, buf.length);
+                if (len == -1) {
+                    // Raw inflate may need one trailing dummy byte to finish
+                    buf[0] = 0;
+                    len = 1;
+                    eof = true;
+                }
+                inf.setInput(buf, 0, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    super.close();
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Read-only channel over a fixed region of the archive
+     * Uses positional reads so several regions can be streamed concurrently
+     */
+    private static class RegionChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+        private boolean open = true;
+
+        RegionChannel(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.position = start;
+            this.end = start + length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > end - position) {
+                dst.limit(dst.position() + (int) (end - position));
+            }
+            try {
+                int read = channel.read(dst, position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * Read a region of the archive into a little-endian buffer
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive: " + archivePath);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Convert MS-DOS date and time fields to Java time
+     */
+    static long dosToJavaTime(int dosDate, int dosTime) {
+        try {
+            LocalDateTime time = LocalDateTime.of(
+                ((dosDate >> 9) & 0x7F) + 1980,
+                (dosDate >> 5) & 0x0F,
+                dosDate & 0x1F,
+                (dosTime >> 11) & 0x1F,
+                (dosTime >> 5) & 0x3F,
+                (dosTime << 1) & 0x3E
+            );
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get all entries in central directory order
+     */
+    public List<APKParser.APKEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Get entry by name
+     */
+    public APKParser.APKEntry getEntry(String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * Get central directory offset
+     */
+    public long getCentralDirectoryOffset() {
+        return centralDirectoryOffset;
+    }
+
+    /**
+     * Get central directory size
+     */
+    public long getCentralDirectorySize() {
+        return centralDirectorySize;
+    }
+
+    /**
+     * Get underlying channel for positional reads
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Get archive path
+     */
+    public Path getArchivePath() {
+        return archivePath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
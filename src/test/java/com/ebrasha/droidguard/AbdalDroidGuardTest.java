@@ -25,6 +25,9 @@ import com.ebrasha.droidguard.utils.Logger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 import java.io.File;
 import java.io.IOException;
@@ -82,6 +85,26 @@ public class AbdalDroidGuardTest {
         assertTrue(engine.processFile(testApkFile, true));
     }
 
+    @Test
+    void testObfuscationKeepsJarWithBrokenClass() throws IOException {
+        File brokenJar = tempDir.resolve("broken.jar").toFile();
+        try (java.util.jar.JarOutputStream jarOut = new java.util.jar.JarOutputStream(
+                new java.io.FileOutputStream(brokenJar))) {
+            jarOut.putNextEntry(new java.util.jar.JarEntry("TestClass.class"));
+            jarOut.write(createTestClass());
+            jarOut.closeEntry();
+            jarOut.putNextEntry(new java.util.jar.JarEntry("Broken.class"));
+            jarOut.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+            jarOut.closeEntry();
+        }
+        byte[] original = Files.readAllBytes(brokenJar.toPath());
+
+        // Renaming around a class that cannot be processed would break its referrers
+        assertFalse(new ObfuscationEngine().processFile(brokenJar, false));
+        assertArrayEquals(original, Files.readAllBytes(brokenJar.toPath()));
+        assertFalse(tempDir.resolve("temp_broken.jar").toFile().exists());
+    }
+
     @Test
     void testTamperDetection() {
         TamperDetection tamperDetection = new TamperDetection();
@@ -190,11 +213,28 @@ public class AbdalDroidGuardTest {
             // Add a simple class file
             java.util.jar.JarEntry classEntry = new java.util.jar.JarEntry("TestClass.class");
             jarOut.putNextEntry(classEntry);
-            jarOut.write(new byte[]{0xCA, 0xFE, 0xBA, 0xBE}); // Java class file magic number
+            jarOut.write(createTestClass());
             jarOut.closeEntry();
         }
     }
 
+    /**
+     * Create bytes of an empty public TestClass with a default constructor
+     */
+    private static byte[] createTestClass() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "TestClass", null, "java/lang/Object", null);
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
     /**
      * Create a test APK file for testing purposes
      * @param apkFile APK file to create
@@ -0,0 +1,126 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : APKOverlayTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 11:26:04
+ * Description  : Unit tests for the APK overlay and overlay-based builder
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for APKOverlay
+ */
+public class APKOverlayTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path createSampleAPK() throws IOException {
+        Path apk = tempDir.resolve("sample.apk");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apk.toFile()))) {
+            zos.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            zos.write(new byte[]{0x03, 0x00, 0x08, 0x00});
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("classes.dex"));
+            zos.write("original dex".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("res/layout/main.xml"));
+            zos.write(new byte[8192]);
+            zos.closeEntry();
+        }
+        return apk;
+    }
+
+    @Test
+    void testMaterializeAndRevert() throws IOException {
+        Path apk = createSampleAPK();
+        try (APKOverlay overlay = new APKOverlay(apk.toFile(), tempDir.resolve("overlay"))) {
+            assertTrue(overlay.exists("res/layout/main.xml"));
+            assertFalse(overlay.isOverlaid("res/layout/main.xml"));
+            assertEquals(8192, overlay.readEntry("res/layout/main.xml").length);
+
+            // Unchanged entries are dropped from the overlay again
+            overlay.materialize("classes.dex");
+            assertTrue(overlay.isOverlaid("classes.dex"));
+            assertTrue(overlay.revertIfUnchanged("classes.dex"));
+            assertFalse(overlay.isOverlaid("classes.dex"));
+
+            // Modified entries stay and shadow the original
+            Path dex = overlay.materialize("classes.dex");
+            Files.write(dex, "patched dex".getBytes(StandardCharsets.UTF_8));
+            assertFalse(overlay.revertIfUnchanged("classes.dex"));
+            assertEquals("patched dex", new String(overlay.readEntry("classes.dex"), StandardCharsets.UTF_8));
+
+            assertThrows(IOException.class, () -> overlay.resolve("../escape.txt"));
+        }
+    }
+
+    @Test
+    void testBuilderMergesOverlayWithOriginals() throws IOException {
+        Path apk = createSampleAPK();
+        Path output = tempDir.resolve("hardened.apk");
+        try (APKOverlay overlay = new APKOverlay(apk.toFile(), tempDir.resolve("overlay"))) {
+            overlay.writeEntry("classes.dex", "patched dex".getBytes(StandardCharsets.UTF_8));
+            overlay.writeEntry("assets/extra.txt", "extra".getBytes(StandardCharsets.UTF_8));
+            assertTrue(new APKBuilder().buildAPK(overlay, output));
+            // Untouched entries never land in the overlay
+            assertEquals(2, overlay.getOverlaidEntries().size());
+        }
+
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            assertNotNull(zipFile.getEntry("AndroidManifest.xml"));
+            assertNotNull(zipFile.getEntry("assets/extra.txt"));
+            ZipEntry layout = zipFile.getEntry("res/layout/main.xml");
+            assertEquals(ZipEntry.DEFLATED, layout.getMethod());
+            assertEquals(8192, layout.getSize());
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("classes.dex"))) {
+                assertEquals("patched dex", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void testPrecompressedEntryReplacesOriginal() throws IOException {
+        Path apk = createSampleAPK();
+        Path dex = tempDir.resolve("hardened.dex");
+        Files.write(dex, "hardened dex".getBytes(StandardCharsets.UTF_8));
+        Path output = tempDir.resolve("cached.apk");
+
+        try (APKOverlay overlay = new APKOverlay(apk.toFile(), tempDir.resolve("overlay"))) {
+            overlay.putPrecompressed(ParallelEntryCompressor.deflate("classes.dex", dex));
+            assertTrue(overlay.isReplaced("classes.dex"));
+            assertEquals("hardened dex", new String(overlay.readEntry("classes.dex"), StandardCharsets.UTF_8));
+            assertTrue(new APKBuilder().buildAPK(overlay, output));
+        }
+
+        try (ZipFile zipFile = new ZipFile(output.toFile());
+             InputStream in = zipFile.getInputStream(zipFile.getEntry("classes.dex"))) {
+            assertEquals("hardened dex", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
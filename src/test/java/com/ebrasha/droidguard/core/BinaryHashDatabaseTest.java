@@ -0,0 +1,172 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : BinaryHashDatabaseTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 01:37:52
+ * Description  : Unit tests for the memory-mapped binary hash database
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BinaryHashDatabase
+ */
+public class BinaryHashDatabaseTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMappedLookups() throws Exception {
+        Map<String, byte[]> digests = new TreeMap<>();
+        for (int i = 0; i < 500; i++) {
+            digests.put("res/drawable/icon_" + i + ".png", sha256(new byte[] {(byte) i, (byte) (i >> 8)}));
+        }
+        digests.put("assets/fünf/日本.txt", sha256(new byte[] {42}));
+        Path file = tempDir.resolve("hash_database.bin");
+        Files.write(file, BinaryHashDatabase.encode(digests, "SHA-256"));
+
+        BinaryHashDatabase database = BinaryHashDatabase.open(file);
+
+        assertEquals(501, database.size());
+        assertEquals(32, database.getDigestLength());
+        assertEquals(BinaryHashDatabase.HEADER_SIZE + 501 * (8 + 32), Files.size(file));
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            assertTrue(database.matches(entry.getKey(), entry.getValue()), entry.getKey());
+            assertArrayEquals(entry.getValue(), database.get(entry.getKey()));
+        }
+        assertFalse(database.matches("res/drawable/icon_1.png", digests.get("res/drawable/icon_2.png")));
+        assertEquals(-1, database.indexOf("classes.dex"));
+        assertNull(database.get("classes.dex"));
+    }
+
+    @Test
+    void testPathHashMatchesUtf8Bytes() {
+        for (String path : new String[] {"", "classes.dex", "assets/fünf/日本.txt", "emoji/😀.png"}) {
+            long expected = 0xcbf29ce484222325L;
+            for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+                expected = (expected ^ (b & 0xFF)) * 0x100000001b3L;
+            }
+            assertEquals(expected, BinaryHashDatabase.pathHash(path), path);
+        }
+    }
+
+    @Test
+    void testVerifyArchiveReportsChanges() throws Exception {
+        Map<String, byte[]> digests = new TreeMap<>();
+        digests.put("classes.dex", sha256(new byte[] {1, 2, 3}));
+        digests.put("AndroidManifest.xml", sha256(new byte[] {4}));
+        digests.put("lib/arm64-v8a/libgone.so", sha256(new byte[] {5}));
+        byte[] database = BinaryHashDatabase.encode(digests, "SHA-256");
+
+        Path apk = tempDir.resolve("app.apk");
+        try (OutputStream out = Files.newOutputStream(apk); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("classes.dex"));
+            zip.write(new byte[] {1, 2, 3});
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            zip.write(new byte[] {9});
+            zip.closeEntry();
+            ZipEntry stored = new ZipEntry(BinaryHashDatabase.DATABASE_ENTRY);
+            CRC32 crc = new CRC32();
+            crc.update(database);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(database.length);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(database);
+            zip.closeEntry();
+        }
+
+        BinaryHashDatabase.Report report = BinaryHashDatabase.verifyArchive(apk, 2);
+
+        assertEquals(1, report.getVerified());
+        assertEquals(1, report.getModified().size());
+        assertEquals("AndroidManifest.xml", report.getModified().get(0));
+        assertEquals(1, report.getMissing());
+        assertTrue(report.getUnlisted().contains(BinaryHashDatabase.DATABASE_ENTRY));
+        assertFalse(report.isIntact());
+    }
+
+    @Test
+    void testSigningAfterHashingKeepsArchiveIntact() throws Exception {
+        Map<String, byte[]> unsigned = new TreeMap<>();
+        unsigned.put("classes.dex", new byte[] {1, 2, 3});
+        unsigned.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+        Path before = tempDir.resolve("unsigned.apk");
+        writeApk(before, unsigned, null);
+        byte[] database = BinaryHashDatabase.encode(new ParallelFileHasher(2).hashArchive(before), "SHA-256");
+        assertEquals(1, BinaryHashDatabase.wrap(database).size());
+
+        // Signing rewrites the manifest and adds signature files
+        Map<String, byte[]> signed = new TreeMap<>(unsigned);
+        signed.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nName: classes.dex\r\n".getBytes(StandardCharsets.UTF_8));
+        signed.put("META-INF/CERT.SF", new byte[] {4});
+        signed.put("META-INF/CERT.RSA", new byte[] {5});
+        Path apk = tempDir.resolve("signed.apk");
+        writeApk(apk, signed, database);
+
+        BinaryHashDatabase.Report report = BinaryHashDatabase.verifyArchive(apk, 2);
+
+        assertTrue(report.isIntact());
+        assertEquals(1, report.getVerified());
+        assertFalse(report.getUnlisted().contains("META-INF/MANIFEST.MF"));
+        assertFalse(report.getUnlisted().contains("META-INF/CERT.SF"));
+        assertTrue(ParallelFileHasher.isSignatureFile("META-INF/key.ec"));
+        assertFalse(ParallelFileHasher.isSignatureFile("META-INF/services/x.SF"));
+        assertFalse(ParallelFileHasher.isSignatureFile("assets/MANIFEST.MF"));
+    }
+
+    @Test
+    void testCorruptHeaderIsRejected() {
+        assertThrows(IOException.class, () -> BinaryHashDatabase.wrap(new byte[] {1, 2, 3}));
+        byte[] data = BinaryHashDatabase.encode(new TreeMap<>(), "SHA-256");
+        data[11] = 9; // Claims nine records without any table
+        assertThrows(IOException.class, () -> BinaryHashDatabase.wrap(data));
+    }
+
+    private static void writeApk(Path apk, Map<String, byte[]> entries, byte[] database) throws IOException {
+        try (OutputStream out = Files.newOutputStream(apk); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+            if (database != null) {
+                zip.putNextEntry(new ZipEntry(BinaryHashDatabase.DATABASE_ENTRY));
+                zip.write(database);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static byte[] sha256(byte[] data) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexBatchProcessorTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 17:36:05
+ * Description  : Unit tests for concurrent multi-dex processing
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexBatchProcessor
+ */
+public class DexBatchProcessorTest {
+
+    @Test
+    void testFailuresAreIsolatedAndStatsMerged() {
+        List<String> dexNames = Arrays.asList("classes.dex", "classes2.dex", "classes3.dex", "classes4.dex");
+        DexBatchProcessor.Stats stats = new DexBatchProcessor(4).run(dexNames, dexName -> {
+            switch (dexName) {
+                case "classes.dex":
+                    return DexBatchProcessor.Outcome.MODIFIED;
+                case "classes2.dex":
+                    throw new IOException("corrupt DEX");
+                case "classes3.dex":
+                    return DexBatchProcessor.Outcome.CACHED;
+                default:
+                    return DexBatchProcessor.Outcome.UNCHANGED;
+            }
+        });
+
+        assertEquals(4, stats.getTotal());
+        assertEquals(3, stats.getSucceeded());
+        assertEquals(1, stats.getCount(DexBatchProcessor.Outcome.FAILED));
+        assertEquals(DexBatchProcessor.Outcome.FAILED, stats.getOutcomes().get("classes2.dex"));
+        assertEquals(dexNames, new ArrayList<>(stats.getOutcomes().keySet()));
+    }
+
+    @Test
+    void testDexFilesRunConcurrently() {
+        // Every task waits for all others, which only completes when they run at the same time
+        List<String> dexNames = Arrays.asList("classes.dex", "classes2.dex", "classes3.dex");
+        CountDownLatch started = new CountDownLatch(dexNames.size());
+        DexBatchProcessor.Stats stats = new DexBatchProcessor(dexNames.size()).run(dexNames, dexName -> {
+            started.countDown();
+            return started.await(10, TimeUnit.SECONDS)
+                ? DexBatchProcessor.Outcome.MODIFIED : DexBatchProcessor.Outcome.FAILED;
+        });
+        assertEquals(3, stats.getCount(DexBatchProcessor.Outcome.MODIFIED));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexBufferTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 16:48:12
+ * Description  : Unit tests for the copy-on-write DEX view
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexBuffer
+ */
+public class DexBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPatchAndAppendKeepSourceUntilWritten() throws IOException {
+        byte[] data = new byte[3 * DexBuffer.PAGE_SIZE + 100];
+        new Random(7).nextBytes(data);
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, data);
+
+        DexBuffer dex = DexBuffer.open(dexFile);
+        assertFalse(dex.isModified());
+        assertEquals(data.length, dex.size());
+
+        // Patch across a page boundary and append a tail
+        byte[] patch = "onCreate".getBytes(StandardCharsets.UTF_8);
+        int offset = DexBuffer.PAGE_SIZE - 3;
+        dex.put(offset, patch);
+        dex.append("MARKER".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, dex.getDirtyPageCount());
+        assertEquals(offset, dex.indexOf(patch, 0));
+        assertEquals(data.length, dex.indexOf("MARKER".getBytes(StandardCharsets.UTF_8), 0));
+        assertArrayEquals(data, Files.readAllBytes(dexFile));
+
+        byte[] expected = new byte[data.length + 6];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        System.arraycopy(patch, 0, expected, offset, patch.length);
+        System.arraycopy("MARKER".getBytes(StandardCharsets.UTF_8), 0, expected, data.length, 6);
+        assertArrayEquals(expected, dex.toByteArray());
+
+        assertTrue(dex.writeTo(dexFile));
+        assertArrayEquals(expected, Files.readAllBytes(dexFile));
+
+        Path copy = tempDir.resolve("copy.dex");
+        assertTrue(dex.writeTo(copy));
+        assertArrayEquals(expected, Files.readAllBytes(copy));
+    }
+
+    @Test
+    void testRegionsSkipCleanPagesBetweenPatches() throws IOException {
+        byte[] data = new byte[4 * DexBuffer.PAGE_SIZE + 10];
+        new Random(11).nextBytes(data);
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, data);
+
+        DexBuffer dex = DexBuffer.open(dexFile);
+        dex.put(5, (byte) 1);
+        dex.putInt(4 * DexBuffer.PAGE_SIZE + 2, 0x01020304);
+        assertEquals(2, dex.getDirtyPageCount());
+        assertEquals(1, dex.get(5));
+        assertEquals(0x01020304, dex.getInt(4 * DexBuffer.PAGE_SIZE + 2));
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        List<Integer> regionSizes = new ArrayList<>();
+        dex.forEachRegion(0, region -> {
+            regionSizes.add(region.remaining());
+            byte[] bytes = new byte[region.remaining()];
+            region.get(bytes);
+            joined.write(bytes, 0, bytes.length);
+        });
+        assertEquals(List.of(DexBuffer.PAGE_SIZE, 3 * DexBuffer.PAGE_SIZE, 10), regionSizes);
+        assertArrayEquals(dex.toByteArray(), joined.toByteArray());
+
+        byte[] expected = dex.toByteArray();
+        assertTrue(dex.writeTo(dexFile));
+        assertArrayEquals(expected, Files.readAllBytes(dexFile));
+    }
+
+    @Test
+    void testLoadedDexPatchesSourceAndCanBeDeleted() throws IOException {
+        byte[] data = new byte[2 * DexBuffer.PAGE_SIZE + 7];
+        new Random(13).nextBytes(data);
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, data);
+
+        DexBuffer dex = DexBuffer.load(dexFile);
+        dex.putInt(DexBuffer.PAGE_SIZE + 1, 0x0A0B0C0D);
+        assertEquals(1, dex.getDirtyPageCount());
+        byte[] expected = dex.toByteArray();
+        assertTrue(dex.writeTo(dexFile));
+        assertArrayEquals(expected, Files.readAllBytes(dexFile));
+
+        // Nothing stays mapped, so the working copy can go while the buffer is still in use
+        Files.delete(dexFile);
+        assertArrayEquals(expected, dex.toByteArray());
+    }
+
+    @Test
+    void testUnchangedDexIsNotRewritten() throws IOException {
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, "dex\n035\0".getBytes(StandardCharsets.UTF_8));
+        FileTime before = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(dexFile, before);
+
+        assertTrue(new DexProcessor().obfuscateDEX(dexFile));
+        assertEquals(before, Files.getLastModifiedTime(dexFile));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexChecksumTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 20:14:27
+ * Description  : Unit tests for the single-pass DEX checksum finalizer
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexChecksum
+ */
+public class DexChecksumTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCombinedAdlerMatchesDirectAdler() {
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 20, 65520, 65521, 200000}) {
+            byte[] first = new byte[20];
+            byte[] second = new byte[length];
+            random.nextBytes(first);
+            random.nextBytes(second);
+
+            Adler32 whole = new Adler32();
+            whole.update(first);
+            whole.update(second);
+            Adler32 a = new Adler32();
+            a.update(first);
+            Adler32 b = new Adler32();
+            b.update(second);
+            assertEquals(whole.getValue(), DexChecksum.combineAdler32(a.getValue(), b.getValue(), length));
+        }
+    }
+
+    @Test
+    void testFinalizerMatchesReferenceAcrossPatchedPages() throws IOException {
+        byte[] original = DexFileTest.buildDex("Lcom/example/MainActivity;", "onCreate");
+        byte[] padded = new byte[3 * DexBuffer.PAGE_SIZE];
+        new Random(7).nextBytes(padded);
+        System.arraycopy(original, 0, padded, 0, original.length);
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, padded);
+
+        // Clean run, patched page, clean run and appended tail
+        DexBuffer dex = DexBuffer.open(dexFile);
+        dex.put(DexBuffer.PAGE_SIZE + 100, new byte[]{1, 2, 3, 4});
+        dex.append(new byte[]{9, 8, 7});
+        DexChecksum.finalizeHeader(dex);
+
+        byte[] expected = dex.toByteArray();
+        DexFileTest.fixChecksums(expected);
+        assertArrayEquals(expected, dex.toByteArray());
+        assertEquals(dex.size(), dex.getInt(DexFile.FILE_SIZE_OFFSET));
+        assertTrue(DexChecksum.verify(dex));
+
+        int offset = 2 * DexBuffer.PAGE_SIZE;
+        dex.put(offset, (byte) ~dex.get(offset));
+        assertFalse(DexChecksum.verify(dex));
+    }
+}
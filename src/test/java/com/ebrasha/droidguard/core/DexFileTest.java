@@ -0,0 +1,176 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexFileTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 19:16:53
+ * Description  : Unit tests for the lazily decoded DEX model
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexFile
+ */
+public class DexFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Build a minimal DEX: strings[0] is the descriptor of type 0 and
+     * strings[1] the name of method 0, which is declared by type 0
+     */
+    static byte[] buildDex(String... strings) throws IOException {
+        int stringIdsOff = DexFile.HEADER_SIZE;
+        int typeIdsOff = stringIdsOff + strings.length * 4;
+        int methodIdsOff = typeIdsOff + 4;
+        int dataOff = methodIdsOff + 8;
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            stringOffsets[i] = dataOff + stringData.size();
+            stringData.write(strings[i].length());
+            stringData.write(DexFile.Mutf8.encode(strings[i]));
+            stringData.write(0);
+        }
+        while (stringData.size() % 4 != 0) {
+            stringData.write(0);
+        }
+        int mapOff = dataOff + stringData.size();
+        int fileSize = mapOff + 4 + 6 * 12;
+
+        ByteBuffer dex = ByteBuffer.allocate(fileSize).order(ByteOrder.LITTLE_ENDIAN);
+        dex.put("dex\n035\0".getBytes(StandardCharsets.US_ASCII));
+        dex.putInt(32, fileSize);
+        dex.putInt(36, DexFile.HEADER_SIZE);
+        dex.putInt(40, DexFile.ENDIAN_CONSTANT);
+        dex.putInt(52, mapOff);
+        dex.putInt(56, strings.length).putInt(60, stringIdsOff);
+        dex.putInt(64, 1).putInt(68, typeIdsOff);
+        dex.putInt(88, 1).putInt(92, methodIdsOff);
+        dex.putInt(104, fileSize - dataOff).putInt(108, dataOff);
+        for (int i = 0; i < strings.length; i++) {
+            dex.putInt(stringIdsOff + i * 4, stringOffsets[i]);
+        }
+        dex.putInt(typeIdsOff, 0);
+        dex.putShort(methodIdsOff, (short) 0).putShort(methodIdsOff + 2, (short) 0).putInt(methodIdsOff + 4, 1);
+        dex.position(dataOff);
+        dex.put(stringData.toByteArray());
+        dex.putInt(mapOff, 6);
+        int[][] items = {{0x0000, 1, 0}, {0x0001, strings.length, stringIdsOff}, {0x0002, 1, typeIdsOff},
+            {0x0005, 1, methodIdsOff}, {0x2002, strings.length, dataOff}, {0x1000, 1, mapOff}};
+        for (int i = 0; i < items.length; i++) {
+            int item = mapOff + 4 + i * 12;
+            dex.putShort(item, (short) items[i][0]).putInt(item + 4, items[i][1]).putInt(item + 8, items[i][2]);
+        }
+
+        byte[] data = dex.array();
+        fixChecksums(data);
+        return data;
+    }
+
+    /**
+     * Reference checksum computation straight from the DEX format description
+     */
+    static void fixChecksums(byte[] data) throws IOException {
+        try {
+            byte[] signature = MessageDigest.getInstance("SHA-1").digest(Arrays.copyOfRange(data, 32, data.length));
+            System.arraycopy(signature, 0, data, 12, 20);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        Adler32 adler = new Adler32();
+        adler.update(data, 12, data.length - 12);
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).putInt(8, (int) adler.getValue());
+    }
+
+    @Test
+    void testDecodesSectionsOnDemand() throws IOException {
+        DexFile dex = new DexFile(DexBuffer.wrap(buildDex("Lcom/example/MainActivity;", "onCreate", "café")));
+
+        assertEquals("035", dex.getVersion());
+        assertEquals(3, dex.getStringCount());
+        assertEquals("Lcom/example/MainActivity;", dex.getTypeDescriptor(0));
+        assertEquals("onCreate", dex.getMethodName(0));
+        assertEquals(0, dex.getMethodClassIndex(0));
+        assertEquals("café", dex.getString(2));
+        assertEquals(5, dex.getStringByteLength(2));
+        assertEquals(6, dex.getMapItems().size());
+        assertEquals(0x1000, dex.getMapItems().get(5).type);
+        assertTrue(dex.verifyChecksums());
+        assertThrows(IndexOutOfBoundsException.class, () -> dex.getString(3));
+    }
+
+    @Test
+    void testInPlaceRewriteUpdatesChecksums() throws IOException {
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, buildDex("Lcom/example/MainActivity;", "onCreate"));
+
+        DexFile dex = DexFile.open(dexFile);
+        assertFalse(dex.replaceStringInPlace(1, "a"));
+        assertTrue(dex.replaceStringInPlace(1, "a1b2c3d4"));
+        assertTrue(dex.writeTo(dexFile));
+
+        byte[] written = Files.readAllBytes(dexFile);
+        byte[] expected = written.clone();
+        fixChecksums(expected);
+        assertArrayEquals(expected, written);
+        assertEquals("a1b2c3d4", DexFile.open(dexFile).getMethodName(0));
+    }
+
+    @Test
+    void testStringPoolDecodesOnce() throws IOException {
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, buildDex("Lcom/example/MainActivity;", "a\u0000b", "onCreate", "\u20acuro"));
+        DexFile dex = DexFile.open(dexFile);
+        DexStringPool strings = dex.getStrings();
+
+        assertEquals(0, strings.getDecodedCount());
+        assertEquals(2, strings.indexOf("onCreate"));
+        assertTrue(strings.getDecodedCount() < strings.size());
+        assertEquals(-1, strings.indexOf("onResume"));
+        assertEquals(0, strings.findContaining("MainActivity"));
+        assertEquals("a\u0000b", strings.get(1));
+        assertEquals("\u20acuro", strings.get(3));
+        assertSame(strings.get(3), dex.getString(3));
+        assertEquals(4, strings.getDecodedCount());
+
+        // Rewritten entries are decoded again
+        assertTrue(dex.replaceStringInPlace(2, "zzzzzzzz"));
+        assertEquals("zzzzzzzz", strings.get(2));
+    }
+
+    @Test
+    void testRejectsBrokenHeader() {
+        byte[] data = new byte[DexFile.HEADER_SIZE];
+        System.arraycopy("dex\n035\0".getBytes(StandardCharsets.US_ASCII), 0, data, 0, 8);
+        assertThrows(IOException.class, () -> new DexFile(DexBuffer.wrap(data)));
+        assertFalse(DexFile.isDex(DexBuffer.wrap("not a dex".getBytes(StandardCharsets.US_ASCII))));
+    }
+}
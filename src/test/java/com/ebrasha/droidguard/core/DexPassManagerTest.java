@@ -0,0 +1,76 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexPassManagerTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:41:02
+ * Description  : Unit tests for the DEX pass manager
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexPassManager
+ */
+public class DexPassManagerTest {
+
+    @Test
+    void testRunsPassesAfterDependencies() {
+        List<String> ran = new ArrayList<>();
+        DexPassManager manager = new DexPassManager()
+            .register("markers", dex -> ran.add("markers"), "junk", "strings")
+            .register("junk", dex -> {
+                ran.add("junk");
+                dex.append(new byte[100]);
+            }, "strings")
+            .register("broken", dex -> {
+                ran.add("broken");
+                throw new IOException("bad section");
+            })
+            .register("strings", dex -> ran.add("strings"))
+            .register("optional", dex -> ran.add("optional"), "strings");
+        manager.setEnabled("optional", false);
+
+        assertEquals(Arrays.asList("broken", "strings", "junk", "markers", "optional"), manager.getExecutionOrder());
+        List<DexPassManager.PassMetrics> metrics = manager.run(DexBuffer.wrap(new byte[16]));
+
+        // A failing pass does not stop the others, a disabled one is not run
+        assertEquals(Arrays.asList("broken", "strings", "junk", "markers"), ran);
+        assertEquals(5, metrics.size());
+        assertEquals(DexPassManager.Status.FAILED, metrics.get(0).getStatus());
+        assertEquals(DexPassManager.Status.RAN, metrics.get(2).getStatus());
+        assertEquals(100, metrics.get(2).getSizeDelta());
+        assertTrue(metrics.get(2).getNanos() > 0);
+        assertEquals(DexPassManager.Status.DISABLED, metrics.get(4).getStatus());
+    }
+
+    @Test
+    void testRejectsCyclesAndUnknownPasses() {
+        DexPassManager cyclic = new DexPassManager()
+            .register("a", dex -> { }, "b")
+            .register("b", dex -> { }, "a");
+        assertThrows(IllegalStateException.class, cyclic::getExecutionOrder);
+
+        DexPassManager unknown = new DexPassManager().register("a", dex -> { }, "missing");
+        assertThrows(IllegalStateException.class, () -> unknown.run(DexBuffer.wrap(new byte[16])));
+        assertThrows(IllegalArgumentException.class, () -> unknown.register("a", dex -> { }));
+        assertThrows(IllegalArgumentException.class, () -> unknown.setEnabled("missing", false));
+    }
+}
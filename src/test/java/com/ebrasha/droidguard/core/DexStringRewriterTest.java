@@ -0,0 +1,76 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DexStringRewriterTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 20:52:06
+ * Description  : Unit tests for length-changing DEX string rewriting
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DexStringRewriter
+ */
+public class DexStringRewriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRebuildRelocatesStringData() throws IOException {
+        Path dexFile = tempDir.resolve("classes.dex");
+        Files.write(dexFile, DexFileTest.buildDex("Lcom/example/MainActivity;", "onCreate", "secret"));
+        DexFile dex = DexFile.open(dexFile);
+        int originalSize = dex.getBuffer().size();
+        int oldStringData = dex.getStringDataOffset(0);
+
+        DexStringRewriter rewriter = new DexStringRewriter(dex);
+        assertFalse(rewriter.replace(1, "zzz"));
+        assertTrue(rewriter.replace(1, "a"));
+        assertTrue(rewriter.replace(2, "secret, but much longer é€"));
+        assertEquals(2, rewriter.getPendingCount());
+        assertTrue(rewriter.rebuild() > 0);
+        assertEquals(0, rewriter.getPendingCount());
+
+        assertEquals("Lcom/example/MainActivity;", dex.getTypeDescriptor(0));
+        assertEquals("a", dex.getMethodName(0));
+        assertEquals("secret, but much longer é€", dex.getString(2));
+        assertEquals(originalSize, dex.getStringDataOffset(0));
+        assertEquals(0, dex.getBuffer().get(oldStringData));
+        assertEquals(dex.getBuffer().size(), dex.getDataOffset() + dex.getDataSize());
+        assertEquals(0, dex.getDataSize() % 4);
+
+        // Map stays in offset order with string_data last
+        List<DexFile.MapItem> items = dex.getMapItems();
+        for (int i = 1; i < items.size(); i++) {
+            assertTrue(items.get(i - 1).offset < items.get(i).offset);
+        }
+        assertEquals(DexStringRewriter.TYPE_STRING_DATA_ITEM, items.get(items.size() - 1).type);
+        assertEquals(originalSize, items.get(items.size() - 1).offset);
+
+        assertTrue(dex.writeTo(dexFile));
+        DexFile written = DexFile.open(dexFile);
+        assertTrue(written.verifyChecksums());
+        assertEquals("a", written.getMethodName(0));
+        assertEquals(2, written.getStrings().indexOf("secret, but much longer é€"));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : DigestEngineTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 02:16:40
+ * Description  : Unit tests for the pluggable digest engines
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DigestEngine
+ */
+public class DigestEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testKnownVectors() {
+        assertEquals("ef46db3751d8e999", hex(DigestEngine.XXH64, ""));
+        assertEquals("44bc2cf5ad770999", hex(DigestEngine.XXH64, "abc"));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hex(DigestEngine.SHA256, "abc"));
+        assertEquals("af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc112b7cc9a93cae41f3262", hex(DigestEngine.BLAKE3, ""));
+        assertEquals("6437b3ac38465133ffb63b75273a8db548c558465d79db03fd359c6cd5bd9d85", hex(DigestEngine.BLAKE3, "abc"));
+    }
+
+    @Test
+    void testXxh64StreamingMatchesOneShot() {
+        byte[] data = new byte[10_000];
+        new Random(7).nextBytes(data);
+        byte[] expected = DigestEngine.XXH64.newDigest().digest(data);
+
+        MessageDigest digest = DigestEngine.XXH64.newDigest();
+        int offset = 0;
+        for (int step = 1; offset < data.length; step = step * 3 % 97 + 1) {
+            int length = Math.min(step, data.length - offset);
+            if (length == 1) {
+                digest.update(data[offset]);
+            } else {
+                digest.update(data, offset, length);
+            }
+            offset += length;
+        }
+        assertArrayEquals(expected, digest.digest());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        digest.update((ByteBuffer) direct.limit(5));
+        digest.update((ByteBuffer) direct.limit(data.length));
+        assertArrayEquals(expected, digest.digest());
+    }
+
+    @Test
+    void testHexEncoding() {
+        byte[] data = {0, 1, (byte) 0x7f, (byte) 0x80, (byte) 0xff};
+        assertEquals("00017f80ff", DigestEngine.toHex(data));
+        char[] out = new char[12];
+        out[0] = '[';
+        out[11] = ']';
+        DigestEngine.toHex(data, out, 1);
+        assertEquals("[00017f80ff]", new String(out));
+        assertEquals("x=00017f80ff", DigestEngine.appendHex(data, new StringBuilder("x=")).toString());
+    }
+
+    @Test
+    void testLookupByNameAndId() {
+        for (DigestEngine engine : DigestEngine.values()) {
+            assertSame(engine, DigestEngine.forName(engine.getName()));
+            assertSame(engine, DigestEngine.forId(engine.getId()));
+            assertEquals(engine.getDigestLength(), engine.newDigest().getDigestLength());
+        }
+        assertSame(DigestEngine.SHA256, DigestEngine.forName("sha256"));
+        assertSame(DigestEngine.XXH64, DigestEngine.forName("xxHash"));
+        assertFalse(DigestEngine.XXH64.isCryptographic());
+        assertThrows(IllegalArgumentException.class, () -> DigestEngine.forName("md5"));
+        assertThrows(IllegalArgumentException.class, () -> DigestEngine.forId(0));
+    }
+
+    @Test
+    void testIntegrityFormatsRoundTripWithXxh64() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.write(root.resolve("classes.dex"), new byte[3 * MerkleManifest.CHUNK_4K + 5]);
+        Files.write(root.resolve("AndroidManifest.xml"), "<manifest/>".getBytes(StandardCharsets.UTF_8));
+
+        SortedMap<String, byte[]> digests = new ParallelFileHasher(2, "xxh64").hashTree(root);
+        BinaryHashDatabase database = BinaryHashDatabase.wrap(BinaryHashDatabase.encode(digests, "xxh64"));
+        assertEquals("XXH64", database.getAlgorithm());
+        assertEquals(8, database.getDigestLength());
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            assertTrue(database.matches(entry.getKey(), entry.getValue()), entry.getKey());
+        }
+
+        MerkleManifest manifest = MerkleManifest.build(root, 2, "xxh64", MerkleManifest.CHUNK_4K);
+        MerkleManifest decoded = MerkleManifest.read(new ByteArrayInputStream(manifest.toByteArray()));
+        assertEquals("XXH64", decoded.getAlgorithm());
+        assertArrayEquals(manifest.getRoot(), decoded.getRoot());
+        assertEquals(4, decoded.getEntry("classes.dex").getChunkCount());
+    }
+
+    private static String hex(DigestEngine engine, String text) {
+        return DigestEngine.toHex(engine.newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : HardeningCacheTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 15:40:19
+ * Description  : Unit tests for the incremental hardening cache
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HardeningCache
+ */
+public class HardeningCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path createAPK(String name, String dexContent) throws IOException {
+        Path apk = tempDir.resolve(name);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apk.toFile()))) {
+            zos.putNextEntry(new ZipEntry("classes.dex"));
+            zos.write(dexContent.getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("classes2.dex"));
+            zos.write("second dex".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+        return apk;
+    }
+
+    @Test
+    void testKeyDependsOnContentAndOptions() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        HardeningCache cache = new HardeningCache(cacheDir, "obfuscate=true");
+        HardeningCache otherOptions = new HardeningCache(cacheDir, "obfuscate=false");
+
+        try (ZipCentralDirectory first = ZipCentralDirectory.open(createAPK("first.apk", "dex one"));
+             ZipCentralDirectory same = ZipCentralDirectory.open(createAPK("same.apk", "dex one"));
+             ZipCentralDirectory changed = ZipCentralDirectory.open(createAPK("changed.apk", "dex two"))) {
+            String key = cache.keyFor(first, first.getEntry("classes.dex"));
+            assertEquals(key, cache.keyFor(same, same.getEntry("classes.dex")));
+            assertNotEquals(key, cache.keyFor(changed, changed.getEntry("classes.dex")));
+            assertNotEquals(key, otherOptions.keyFor(first, first.getEntry("classes.dex")));
+            // Unchanged sibling entries keep their key when another entry changes
+            assertEquals(cache.keyFor(first, first.getEntry("classes2.dex")),
+                cache.keyFor(changed, changed.getEntry("classes2.dex")));
+        }
+    }
+
+    @Test
+    void testStoreLookupAndPrune() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        byte[] data = {1, 2, 3, 4, 5};
+
+        HardeningCache build1 = new HardeningCache(cacheDir, "obfuscate=true");
+        assertNull(build1.lookup("aaaa", "classes.dex"));
+        build1.store("aaaa", new ParallelEntryCompressor.CompressedEntry(
+            "classes.dex", ZipEntry.DEFLATED, 1234L, 99L, data, data.length));
+        build1.storeUnchanged("bbbb");
+
+        HardeningCache build2 = new HardeningCache(cacheDir, "obfuscate=true");
+        HardeningCache.CachedResult hardened = build2.lookup("aaaa", "classes.dex");
+        assertNotNull(hardened);
+        assertFalse(hardened.unchanged);
+        assertEquals(1234L, hardened.entry.crc);
+        assertEquals(99L, hardened.entry.size);
+        assertArrayEquals(data, hardened.entry.data);
+        assertEquals(1, build2.getHits());
+
+        // Records not used by the latest build are dropped
+        build2.prune();
+        assertTrue(Files.exists(cacheDir.resolve("aaaa.meta")));
+        assertFalse(Files.exists(cacheDir.resolve("bbbb.meta")));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : JarTransformPipelineTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 21:34:02
+ * Description  : Unit tests for the parallel JAR class transform pipeline
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JarTransformPipeline
+ */
+public class JarTransformPipelineTest {
+
+    private static final int CLASS_COUNT = 64;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTransformsAllClassesInEntryOrder() throws IOException {
+        Path input = tempDir.resolve("in.jar");
+        byte[] broken = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+        List<String> names = new ArrayList<>();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(input))) {
+            for (int i = 0; i < CLASS_COUNT; i++) {
+                if (i == CLASS_COUNT / 2) {
+                    writeEntry(out, names, "config/app.properties", "key=value".getBytes());
+                    writeEntry(out, names, "Broken.class", broken);
+                }
+                writeEntry(out, names, "pkg/C" + i + ".class", generateClass("pkg/C" + i));
+            }
+        }
+
+        // Every class must be scanned before the first transform runs
+        Set<String> scanned = ConcurrentHashMap.newKeySet();
+        Path output = tempDir.resolve("out.jar");
+        JarTransformPipeline.Stats stats = new JarTransformPipeline(4).run(input, output,
+            reader -> scanned.add(reader.getClassName()),
+            reader -> {
+                assertEquals(CLASS_COUNT, scanned.size());
+                ClassWriter writer = new ClassWriter(0);
+                reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                    @Override
+                    public void visitEnd() {
+                        visitField(Opcodes.ACC_PRIVATE, "marker", "I", null, null).visitEnd();
+                        super.visitEnd();
+                    }
+                }, 0);
+                return writer.toByteArray();
+            });
+
+        assertEquals(CLASS_COUNT + 1, stats.getClassCount());
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(1, stats.getOtherCount());
+        try (JarFile jar = new JarFile(output.toFile())) {
+            List<String> written = new ArrayList<>();
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                written.add(entry.getName());
+            }
+            assertEquals(names, written);
+            assertArrayEquals(broken, read(jar, "Broken.class"));
+            assertArrayEquals("key=value".getBytes(), read(jar, "config/app.properties"));
+            for (int i = 0; i < CLASS_COUNT; i++) {
+                List<String> fields = new ArrayList<>();
+                new ClassReader(read(jar, "pkg/C" + i + ".class")).accept(new ClassVisitor(Opcodes.ASM9) {
+                    @Override
+                    public org.objectweb.asm.FieldVisitor visitField(int access, String name, String descriptor,
+                                                                      String signature, Object value) {
+                        fields.add(name);
+                        return null;
+                    }
+                }, 0);
+                assertEquals(Collections.singletonList("marker"), fields);
+            }
+        }
+    }
+
+    private static byte[] generateClass(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void writeEntry(JarOutputStream out, List<String> names, String name, byte[] data) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        out.write(data);
+        out.closeEntry();
+        names.add(name);
+    }
+
+    private static byte[] read(JarFile jar, String name) throws IOException {
+        try (InputStream in = jar.getInputStream(jar.getJarEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+}
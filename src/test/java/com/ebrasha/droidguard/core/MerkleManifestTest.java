@@ -0,0 +1,194 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : MerkleManifestTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 01:04:37
+ * Description  : Unit tests for the chunked Merkle integrity manifest
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MerkleManifest
+ */
+public class MerkleManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testChunkLeavesAndRoots() throws Exception {
+        byte[] data = randomBytes(3 * MerkleManifest.CHUNK_4K + 100, 1);
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.write(root.resolve("classes.dex"), data);
+        Files.write(root.resolve("empty.txt"), new byte[0]);
+
+        SortedMap<String, byte[]> leaves = new ParallelFileHasher(2, "SHA-256", MerkleManifest.CHUNK_4K).hashTree(root);
+        MerkleManifest manifest = MerkleManifest.build(leaves, "SHA-256", MerkleManifest.CHUNK_4K);
+
+        MerkleManifest.Entry entry = manifest.getEntry("classes.dex");
+        assertEquals(4, entry.getChunkCount());
+        assertArrayEquals(leaf(Arrays.copyOfRange(data, 3 * MerkleManifest.CHUNK_4K, data.length)), entry.getLeaf(3));
+        byte[] left = node(leaf(Arrays.copyOfRange(data, 0, 4096)), leaf(Arrays.copyOfRange(data, 4096, 8192)));
+        byte[] right = node(leaf(Arrays.copyOfRange(data, 8192, 12288)), entry.getLeaf(3));
+        assertArrayEquals(node(left, right), entry.getRoot());
+        assertEquals(1, manifest.getEntry("empty.txt").getChunkCount());
+        assertArrayEquals(leaf(new byte[0]), manifest.getEntry("empty.txt").getRoot());
+        assertTrue(manifest.isConsistent());
+    }
+
+    @Test
+    void testBinaryRoundTrip() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.write(root.resolve("a.bin"), randomBytes(MerkleManifest.CHUNK_1M + 1, 2));
+        Files.write(root.resolve("b.bin"), randomBytes(10, 3));
+        MerkleManifest manifest = MerkleManifest.build(root, 2, "SHA-256", MerkleManifest.CHUNK_1M);
+
+        byte[] encoded = manifest.toByteArray();
+        MerkleManifest decoded = MerkleManifest.read(new ByteArrayInputStream(encoded));
+
+        assertArrayEquals(manifest.getRoot(), decoded.getRoot());
+        assertEquals(MerkleManifest.CHUNK_1M, decoded.getChunkSize());
+        assertEquals(2, decoded.getEntry("a.bin").getChunkCount());
+        assertArrayEquals(encoded, decoded.toByteArray());
+
+        // Flip one byte of the last leaf: the stored roots no longer match
+        encoded[encoded.length - 1] ^= 1;
+        assertThrows(IOException.class, () -> MerkleManifest.read(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    void testCorruptChunkCountIsRejected() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.write(root.resolve("a.bin"), randomBytes(10, 4));
+        byte[] encoded = MerkleManifest.build(root, 1, "SHA-256", MerkleManifest.CHUNK_4K).toByteArray();
+
+        // Chunk count follows the 16 byte header, the global root and the length-prefixed name
+        int offset = 16 + 32 + 2 + "a.bin".length();
+        for (int chunkCount : new int[]{Integer.MAX_VALUE, 0x08000000, -1}) {
+            ByteBuffer.wrap(encoded).putInt(offset, chunkCount);
+            assertThrows(IOException.class, () -> MerkleManifest.read(new ByteArrayInputStream(encoded)));
+        }
+    }
+
+    @Test
+    void testSampledVerificationDetectsTampering() throws Exception {
+        byte[] dex = randomBytes(20 * MerkleManifest.CHUNK_4K, 4);
+        Path apk = writeArchive(tempDir.resolve("app.apk"), dex);
+        MerkleManifest manifest = MerkleManifest.build(
+            new ParallelFileHasher(2, "SHA-256", MerkleManifest.CHUNK_4K).hashArchive(apk), "SHA-256", MerkleManifest.CHUNK_4K);
+
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(apk)) {
+            assertEquals(0, manifest.verifySampled(source, 50, new Random(5)));
+        }
+
+        dex[7 * MerkleManifest.CHUNK_4K + 3] ^= 1;
+        Path tampered = writeArchive(tempDir.resolve("tampered.apk"), dex);
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(tampered)) {
+            assertTrue(manifest.verifySampled(source, 200, new Random(5)) > 0);
+        }
+        assertTrue(manifest.verifyChunk("classes.dex", 6,
+            Arrays.copyOfRange(dex, 6 * MerkleManifest.CHUNK_4K, 7 * MerkleManifest.CHUNK_4K), MerkleManifest.CHUNK_4K));
+        assertFalse(manifest.verifyChunk("classes.dex", 7,
+            Arrays.copyOfRange(dex, 7 * MerkleManifest.CHUNK_4K, 8 * MerkleManifest.CHUNK_4K), MerkleManifest.CHUNK_4K));
+    }
+
+    @Test
+    void testSampledVerificationReadsStoredChunksInPlace() throws Exception {
+        byte[] resources = randomBytes(16 * MerkleManifest.CHUNK_4K + 7, 6);
+        Path apk = writeStoredArchive(tempDir.resolve("stored.apk"), resources);
+        MerkleManifest manifest = MerkleManifest.build(
+            new ParallelFileHasher(2, "SHA-256", MerkleManifest.CHUNK_4K).hashArchive(apk), "SHA-256", MerkleManifest.CHUNK_4K);
+
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(apk)) {
+            assertEquals(0, manifest.verifySampled(source, 100, new Random(8)));
+        }
+
+        // Last, partial chunk of the stored entry
+        resources[resources.length - 1] ^= 1;
+        Path tampered = writeStoredArchive(tempDir.resolve("stored-tampered.apk"), resources);
+        try (ZipCentralDirectory source = ZipCentralDirectory.open(tampered)) {
+            assertTrue(manifest.verifySampled(source, 400, new Random(8)) > 0);
+        }
+    }
+
+    @Test
+    void testInvalidChunkSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> MerkleManifest.build(new java.util.TreeMap<>(), "SHA-256", 1000));
+    }
+
+    private static Path writeArchive(Path file, byte[] dex) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("classes.dex"));
+            zip.write(dex);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("res/layout/main.xml"));
+            zip.write(new byte[] {1, 2, 3});
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    private static Path writeStoredArchive(Path file, byte[] resources) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry stored = new ZipEntry("resources.arsc");
+            CRC32 crc = new CRC32();
+            crc.update(resources);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(resources.length);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(resources);
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] leaf(byte[] chunk) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((byte) 0);
+        return digest.digest(chunk);
+    }
+
+    private static byte[] node(byte[] left, byte[] right) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((byte) 1);
+        digest.update(left);
+        return digest.digest(right);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : MultiPatternScannerTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 18:21:47
+ * Description  : Unit tests for the Aho-Corasick multi-pattern scanner
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MultiPatternScanner
+ */
+public class MultiPatternScannerTest {
+
+    @Test
+    void testFindsOverlappingAndNestedPatterns() {
+        MultiPatternScanner scanner = MultiPatternScanner.forStrings("su", "superuser", "user", "onCreate");
+        byte[] data = "xx superuser onCreate".getBytes(StandardCharsets.UTF_8);
+
+        Set<String> found = new HashSet<>();
+        for (MultiPatternScanner.Match match : scanner.scan(data, 0, data.length)) {
+            found.add(match.pattern + "@" + match.offset);
+        }
+        assertEquals(Set.of("0@3", "1@3", "2@8", "3@13"), found);
+    }
+
+    @Test
+    void testMatchesNaiveSearchAcrossChunks() {
+        // Random data over several scan chunks with patterns planted on chunk boundaries
+        byte[] data = new byte[200000];
+        Random random = new Random(11);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        System.arraycopy("abcab".getBytes(StandardCharsets.UTF_8), 0, data, 65534, 5);
+        List<byte[]> patterns = new ArrayList<>();
+        patterns.add("abcab".getBytes(StandardCharsets.UTF_8));
+        patterns.add("dda".getBytes(StandardCharsets.UTF_8));
+        patterns.add("b".getBytes(StandardCharsets.UTF_8));
+        patterns.add("cccc".getBytes(StandardCharsets.UTF_8));
+        MultiPatternScanner scanner = new MultiPatternScanner(patterns);
+
+        Set<String> expected = new HashSet<>();
+        for (int p = 0; p < patterns.size(); p++) {
+            byte[] pattern = patterns.get(p);
+            for (int i = 0; i <= data.length - pattern.length; i++) {
+                int j = 0;
+                while (j < pattern.length && data[i + j] == pattern[j]) {
+                    j++;
+                }
+                if (j == pattern.length) {
+                    expected.add(p + "@" + i);
+                }
+            }
+        }
+
+        Set<String> actual = new HashSet<>();
+        for (MultiPatternScanner.Match match : scanner.scan(DexBuffer.wrap(data))) {
+            actual.add(match.pattern + "@" + match.offset);
+        }
+        assertTrue(actual.contains("0@65534"));
+        assertEquals(expected, actual);
+    }
+}
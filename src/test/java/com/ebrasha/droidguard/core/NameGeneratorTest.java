@@ -0,0 +1,61 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : NameGeneratorTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 22:58:19
+ * Description  : Unit tests for the seeded name generator
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NameGenerator
+ */
+public class NameGeneratorTest {
+
+    @Test
+    void testNamesAreUniqueAndShortestFirst() {
+        NameGenerator generator = new NameGenerator(1234L);
+        Set<String> names = new HashSet<>();
+        int count = 26 + 26 * 26 + 26 * 26 * 26;
+        for (int i = 0; i < count; i++) {
+            String name = generator.next();
+            int expectedLength = i < 26 ? 1 : i < 26 + 676 ? 2 : 3;
+            assertEquals(expectedLength, name.length());
+            assertTrue(name.chars().allMatch(c -> c >= 'a' && c <= 'z'));
+            assertTrue(names.add(name), "duplicate name " + name);
+        }
+        assertEquals(count, names.size());
+        assertEquals(7, generator.name(3_000_000_000L).length());
+    }
+
+    @Test
+    void testSeedDeterminesSequence() {
+        NameGenerator first = new NameGenerator(42L);
+        NameGenerator second = new NameGenerator(42L);
+        NameGenerator other = new NameGenerator(43L);
+        boolean differs = false;
+        for (int i = 0; i < 1000; i++) {
+            String name = first.next();
+            assertEquals(name, second.next());
+            differs |= !name.equals(other.name(i));
+        }
+        assertTrue(differs);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ParallelFileHasherTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 00:31:18
+ * Description  : Unit tests for parallel directory tree and archive hashing
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ParallelFileHasher
+ */
+public class ParallelFileHasherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTreeHashesMatchSerialDigest() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 60; i++) {
+            Path file = tempDir.resolve("dir" + (i % 4)).resolve("file" + i + ".bin");
+            Files.createDirectories(file.getParent());
+            byte[] data = new byte[random.nextInt(20000)];
+            random.nextBytes(data);
+            Files.write(file, data);
+        }
+        Files.write(tempDir.resolve("empty.txt"), new byte[0]);
+        byte[] large = new byte[3 * 1024 * 1024 + 17];
+        random.nextBytes(large);
+        Files.write(tempDir.resolve("large.bin"), large);
+
+        SortedMap<String, byte[]> hashes = new ParallelFileHasher(4).hashTree(tempDir);
+
+        assertEquals(62, hashes.size());
+        assertTrue(hashes.containsKey("dir1/file1.bin"));
+        for (String name : hashes.keySet()) {
+            assertArrayEquals(sha256(Files.readAllBytes(tempDir.resolve(name))), hashes.get(name), name);
+        }
+        ArrayList<String> sorted = new ArrayList<>(hashes.keySet());
+        sorted.sort(null);
+        assertEquals(sorted, new ArrayList<>(hashes.keySet()));
+    }
+
+    @Test
+    void testHashAndHexEncoding() throws Exception {
+        Path file = tempDir.resolve("abc.txt");
+        Files.write(file, "abc".getBytes("UTF-8"));
+
+        ParallelFileHasher hasher = new ParallelFileHasher(1);
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            ParallelFileHasher.toHex(hasher.hash(file)));
+        assertEquals("00ff10", ParallelFileHasher.toHex(new byte[] {0, -1, 16}));
+    }
+
+    @Test
+    void testTamperDetectionUsesParallelHashes() throws Exception {
+        Path file = tempDir.resolve("classes.dex");
+        Files.write(file, new byte[] {1, 2, 3, 4});
+
+        RealTamperDetection tamperDetection = new RealTamperDetection();
+        tamperDetection.setThreads(2);
+
+        assertEquals(ParallelFileHasher.toHex(sha256(new byte[] {1, 2, 3, 4})), tamperDetection.calculateFileHash(file));
+    }
+
+    @Test
+    void testArchiveHashesMatchEntryContent() throws Exception {
+        Random random = new Random(11);
+        byte[] stored = new byte[2 * 1024 * 1024 + 5];
+        random.nextBytes(stored);
+        byte[] deflated = new byte[300000];
+        Arrays.fill(deflated, (byte) 'a');
+        Path apk = writeArchive(tempDir.resolve("app.apk"), stored, deflated);
+
+        SortedMap<String, byte[]> hashes = new ParallelFileHasher(3).hashArchive(apk);
+
+        assertEquals(3, hashes.size());
+        assertArrayEquals(sha256(stored), hashes.get("resources.arsc"));
+        assertArrayEquals(sha256(deflated), hashes.get("classes.dex"));
+        assertArrayEquals(sha256(new byte[0]), hashes.get("assets/empty.txt"));
+        assertFalse(hashes.containsKey("assets/"));
+    }
+
+    @Test
+    void testOverlayHashesUseReplacedEntries() throws Exception {
+        Path apk = writeArchive(tempDir.resolve("app.apk"), new byte[] {1, 2}, new byte[] {3, 4});
+
+        SortedMap<String, byte[]> hashes;
+        try (APKOverlay overlay = new APKOverlay(apk.toFile(), tempDir.resolve("overlay"))) {
+            overlay.writeEntry("classes.dex", new byte[] {9, 9, 9});
+            overlay.writeEntry("assets/new.bin", new byte[] {7});
+            hashes = new ParallelFileHasher(2).hashOverlay(overlay);
+        }
+
+        assertEquals(4, hashes.size());
+        assertArrayEquals(sha256(new byte[] {1, 2}), hashes.get("resources.arsc"));
+        assertArrayEquals(sha256(new byte[] {9, 9, 9}), hashes.get("classes.dex"));
+        assertArrayEquals(sha256(new byte[] {7}), hashes.get("assets/new.bin"));
+    }
+
+    @Test
+    void testFileDigestsAndLeavesComeFromOnePass() throws Exception {
+        Random random = new Random(13);
+        byte[] stored = new byte[3 * MerkleManifest.CHUNK_4K + 9];
+        random.nextBytes(stored);
+        byte[] deflated = new byte[MerkleManifest.CHUNK_4K];
+        Path apk = writeArchive(tempDir.resolve("app.apk"), stored, deflated);
+
+        ParallelFileHasher combined = new ParallelFileHasher(2, "SHA-256", MerkleManifest.CHUNK_4K, true);
+        SortedMap<String, byte[]> fileDigests = new TreeMap<>();
+        SortedMap<String, byte[]> leaves = combined.splitLeaves(combined.hashArchive(apk), fileDigests);
+
+        assertEquals(new ParallelFileHasher(2).hashArchive(apk).keySet(), fileDigests.keySet());
+        assertArrayEquals(sha256(stored), fileDigests.get("resources.arsc"));
+        assertArrayEquals(sha256(deflated), fileDigests.get("classes.dex"));
+        SortedMap<String, byte[]> separate = new ParallelFileHasher(2, "SHA-256", MerkleManifest.CHUNK_4K).hashArchive(apk);
+        for (String name : separate.keySet()) {
+            assertArrayEquals(separate.get(name), leaves.get(name), name);
+        }
+        assertThrows(IllegalStateException.class, () -> new ParallelFileHasher(2).splitLeaves(separate, fileDigests));
+    }
+
+    @Test
+    void testUnknownAlgorithmIsRejected() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelFileHasher(2, "NO-SUCH-DIGEST"));
+    }
+
+    private static Path writeArchive(Path file, byte[] stored, byte[] deflated) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry storedEntry = new ZipEntry("resources.arsc");
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(stored.length);
+            storedEntry.setCompressedSize(stored.length);
+            storedEntry.setCrc(crc.getValue());
+            zip.putNextEntry(storedEntry);
+            zip.write(stored);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("classes.dex"));
+            zip.write(deflated);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("assets/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("assets/empty.txt"));
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    private static byte[] sha256(byte[] data) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : RealTamperDetectionTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-19 04:12:37
+ * Description  : Unit tests for the recorded integrity data
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RealTamperDetection
+ */
+public class RealTamperDetectionTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReusedInstanceRecordsOnlyCurrentApk() throws IOException {
+        Path first = createTree("first", "res/first.xml");
+        Path second = createTree("second", "res/second.xml");
+
+        RealTamperDetection detection = new RealTamperDetection();
+        assertTrue(detection.addTamperDetection(first));
+        assertTrue(detection.addTamperDetection(second));
+
+        BinaryHashDatabase database = BinaryHashDatabase.open(second.resolve(BinaryHashDatabase.DATABASE_ENTRY));
+        assertTrue(database.indexOf("res/second.xml") >= 0);
+        assertTrue(database.indexOf("classes.dex") >= 0);
+        assertEquals(-1, database.indexOf("res/first.xml"));
+        assertEquals(2, database.size());
+    }
+
+    private Path createTree(String name, String resource) throws IOException {
+        Path root = tempDir.resolve(name);
+        Files.createDirectories(root.resolve("res"));
+        Files.write(root.resolve("classes.dex"), new byte[64]);
+        Files.write(root.resolve(resource), resource.getBytes(StandardCharsets.UTF_8));
+        return root;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : RenameTableTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 22:21:15
+ * Description  : Unit tests for the whole-program rename table
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RenameTable
+ */
+public class RenameTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRemappedProgramStillRuns() throws Exception {
+        Path input = tempDir.resolve("in.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(input))) {
+            write(out, "p/Base", base());
+            write(out, "p/Impl", impl());
+            write(out, "p/Task", task());
+            write(out, "p/Main", main());
+        }
+
+        int[] counter = {0};
+        RenameTable table = new RenameTable(() -> "n" + counter[0]++);
+        table.keepClass("p/Main");
+        table.keepMethod("result");
+        Path output = tempDir.resolve("out.jar");
+        new JarTransformPipeline(2).run(input, output, table::collect, table::build, reader -> {
+            ClassWriter writer = new ClassWriter(0);
+            reader.accept(new ClassRemapper(writer, table.getRemapper()), 0);
+            return writer.toByteArray();
+        });
+
+        assertEquals(4, table.getClassCount());
+        // Base, Impl and Task classes, compute and count are renamed, run is bound to Runnable
+        assertEquals(5, table.getRenamedCount());
+        List<String> entries = new ArrayList<>();
+        try (JarFile jar = new JarFile(output.toFile())) {
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                entries.add(entry.getName());
+            }
+        }
+        assertEquals(4, entries.size());
+        assertTrue(entries.contains("p/Main.class"));
+        assertFalse(entries.contains("p/Impl.class"));
+
+        // Override, inherited field access and the library interface call still resolve
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, null)) {
+            Object result = loader.loadClass("p.Main").getMethod("result").invoke(null);
+            assertEquals(42, result);
+        }
+    }
+
+    @Test
+    void testPackagePrivateAccessAndNestmatesSurvive() throws Exception {
+        Path input = tempDir.resolve("nest.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(input))) {
+            write(out, "com/app/Main", nestHost());
+            write(out, "com/app/Main$Inner", nestMember());
+            write(out, "com/app/Helper", helper());
+        }
+
+        int[] counter = {0};
+        RenameTable table = new RenameTable(() -> "n" + counter[0]++);
+        table.keepClass("com/app/Main");
+        table.keepMethod("result");
+        Path output = tempDir.resolve("nest-out.jar");
+        new JarTransformPipeline(2).run(input, output, table::collect, table::build, reader -> {
+            ClassWriter writer = new ClassWriter(0);
+            reader.accept(new ClassRemapper(writer, table.getRemapper()), 0);
+            return writer.toByteArray();
+        });
+
+        // Renamed classes stay in the package of the kept entry point
+        assertNotEquals("com/app/Helper", table.mapClass("com/app/Helper"));
+        assertTrue(table.mapClass("com/app/Helper").startsWith("com/app/"));
+        assertTrue(table.mapClass("com/app/Main$Inner").startsWith("com/app/"));
+
+        // Package-private class, field and method, and a private nestmate call still link
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, null)) {
+            Object result = loader.loadClass("com.app.Main").getMethod("result").invoke(null);
+            assertEquals(42, result);
+        }
+    }
+
+    private static void write(JarOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new JarEntry(name + ".class"));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static ClassWriter begin(String name, String superName, String... interfaces) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        return writer;
+    }
+
+    private static ClassWriter beginNested(int access, String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V11, access | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        MethodVisitor init = writer.visitMethod(0, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        return writer;
+    }
+
+    private static byte[] nestHost() {
+        ClassWriter writer = beginNested(Opcodes.ACC_PUBLIC, "com/app/Main");
+        writer.visitNestMember("com/app/Main$Inner");
+        writer.visitInnerClass("com/app/Main$Inner", "com/app/Main", "Inner", Opcodes.ACC_STATIC);
+        MethodVisitor result = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "result", "()I", null, null);
+        result.visitCode();
+        result.visitTypeInsn(Opcodes.NEW, "com/app/Main$Inner");
+        result.visitInsn(Opcodes.DUP);
+        result.visitMethodInsn(Opcodes.INVOKESPECIAL, "com/app/Main$Inner", "<init>", "()V", false);
+        // Private method of the inner class, allowed only between nestmates
+        result.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "com/app/Main$Inner", "secret", "()I", false);
+        result.visitInsn(Opcodes.IRETURN);
+        result.visitMaxs(0, 0);
+        result.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] nestMember() {
+        ClassWriter writer = beginNested(0, "com/app/Main$Inner");
+        writer.visitNestHost("com/app/Main");
+        writer.visitInnerClass("com/app/Main$Inner", "com/app/Main", "Inner", Opcodes.ACC_STATIC);
+        MethodVisitor secret = writer.visitMethod(Opcodes.ACC_PRIVATE, "secret", "()I", null, null);
+        secret.visitCode();
+        secret.visitMethodInsn(Opcodes.INVOKESTATIC, "com/app/Helper", "value", "()I", false);
+        secret.visitFieldInsn(Opcodes.GETSTATIC, "com/app/Helper", "offset", "I");
+        secret.visitInsn(Opcodes.IADD);
+        secret.visitInsn(Opcodes.IRETURN);
+        secret.visitMaxs(0, 0);
+        secret.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] helper() {
+        ClassWriter writer = beginNested(0, "com/app/Helper");
+        writer.visitField(Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "offset", "I", null, 2).visitEnd();
+        MethodVisitor value = writer.visitMethod(Opcodes.ACC_STATIC, "value", "()I", null, null);
+        value.visitCode();
+        value.visitIntInsn(Opcodes.BIPUSH, 40);
+        value.visitInsn(Opcodes.IRETURN);
+        value.visitMaxs(0, 0);
+        value.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] base() {
+        ClassWriter writer = begin("p/Base", "java/lang/Object");
+        writer.visitField(Opcodes.ACC_PUBLIC, "count", "I", null, null).visitEnd();
+        MethodVisitor compute = writer.visitMethod(Opcodes.ACC_PUBLIC, "compute", "()I", null, null);
+        compute.visitCode();
+        compute.visitInsn(Opcodes.ICONST_1);
+        compute.visitInsn(Opcodes.IRETURN);
+        compute.visitMaxs(0, 0);
+        compute.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] impl() {
+        ClassWriter writer = begin("p/Impl", "p/Base");
+        MethodVisitor compute = writer.visitMethod(Opcodes.ACC_PUBLIC, "compute", "()I", null, null);
+        compute.visitCode();
+        compute.visitVarInsn(Opcodes.ALOAD, 0);
+        compute.visitFieldInsn(Opcodes.GETFIELD, "p/Base", "count", "I");
+        compute.visitInsn(Opcodes.ICONST_2);
+        compute.visitInsn(Opcodes.IADD);
+        compute.visitInsn(Opcodes.IRETURN);
+        compute.visitMaxs(0, 0);
+        compute.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] task() {
+        ClassWriter writer = begin("p/Task", "java/lang/Object", "java/lang/Runnable");
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+        run.visitCode();
+        run.visitInsn(Opcodes.RETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] main() {
+        ClassWriter writer = begin("p/Main", "java/lang/Object");
+        MethodVisitor result = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "result", "()I", null, null);
+        result.visitCode();
+        result.visitTypeInsn(Opcodes.NEW, "p/Task");
+        result.visitInsn(Opcodes.DUP);
+        result.visitMethodInsn(Opcodes.INVOKESPECIAL, "p/Task", "<init>", "()V", false);
+        result.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/Runnable", "run", "()V", true);
+        result.visitTypeInsn(Opcodes.NEW, "p/Impl");
+        result.visitInsn(Opcodes.DUP);
+        result.visitMethodInsn(Opcodes.INVOKESPECIAL, "p/Impl", "<init>", "()V", false);
+        result.visitVarInsn(Opcodes.ASTORE, 0);
+        // Field declared in Base, referenced through Impl
+        result.visitVarInsn(Opcodes.ALOAD, 0);
+        result.visitIntInsn(Opcodes.BIPUSH, 40);
+        result.visitFieldInsn(Opcodes.PUTFIELD, "p/Impl", "count", "I");
+        result.visitVarInsn(Opcodes.ALOAD, 0);
+        result.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "p/Base", "compute", "()I", false);
+        result.visitInsn(Opcodes.IRETURN);
+        result.visitMaxs(0, 0);
+        result.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
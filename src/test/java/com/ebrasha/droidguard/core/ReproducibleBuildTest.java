@@ -0,0 +1,155 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ReproducibleBuildTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 23:14:09
+ * Description  : Unit tests for the reproducible build mode
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReproducibleBuild
+ */
+public class ReproducibleBuildTest {
+
+    private static final long EPOCH = 1700000000000L;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        ReproducibleBuild.disable();
+    }
+
+    @Test
+    void testSameSeedGivesSameSequences() {
+        ReproducibleBuild.enable(EPOCH, 42);
+        assertEquals(EPOCH, ReproducibleBuild.currentTimeMillis());
+
+        Random first = ReproducibleBuild.newRandom("dex-processor");
+        Random second = ReproducibleBuild.newRandom("dex-processor");
+        Random other = ReproducibleBuild.newRandom("integrity-key");
+        long value = first.nextLong();
+        assertEquals(value, second.nextLong());
+        assertNotEquals(value, other.nextLong());
+
+        NameGenerator names = ReproducibleBuild.newNameGenerator("jar-names");
+        assertEquals(names.getSeed(), ReproducibleBuild.newNameGenerator("jar-names").getSeed());
+
+        ReproducibleBuild.enable(EPOCH, 43);
+        assertNotEquals(value, ReproducibleBuild.newRandom("dex-processor").nextLong());
+    }
+
+    @Test
+    void testArchivesAreByteIdentical() throws IOException {
+        ReproducibleBuild.enable(EPOCH, 1);
+        byte[] first = writeArchive(tempDir.resolve("first.apk"));
+        byte[] second = writeArchive(tempDir.resolve("second.apk"));
+        assertArrayEquals(first, second);
+
+        // 2023-11-14 22:13:20 UTC, independent of the host time zone
+        long expected = ((2023L - 1980) << 25) | (11L << 21) | (14L << 16) | (22L << 11) | (13L << 5) | 10L;
+        assertEquals(expected, ZipArchiveWriter.javaToDosTime(ReproducibleBuild.currentTimeMillis()));
+    }
+
+    @Test
+    void testObfuscatedJarsAreByteIdentical() throws IOException {
+        ReproducibleBuild.enable(EPOCH, 1);
+        Path first = tempDir.resolve("first.jar");
+        Path second = tempDir.resolve("second.jar");
+        writeJar(first);
+        Files.copy(first, second);
+
+        assertTrue(new ObfuscationEngine().processFile(first.toFile(), false));
+        assertTrue(new ObfuscationEngine().processFile(second.toFile(), false));
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        // Copied and transformed entries alike carry the fixed epoch
+        try (JarFile jar = new JarFile(first.toFile())) {
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                assertEquals(EPOCH, entry.getTime(), entry.getName());
+            }
+        }
+    }
+
+    @Test
+    void testCacheFingerprintFollowsSeedAndEpoch() {
+        String normal = new DexProcessor().getOptionsFingerprint();
+        ReproducibleBuild.enable(EPOCH, 1);
+        String seeded = new DexProcessor().getOptionsFingerprint();
+        assertNotEquals(normal, seeded);
+        assertEquals(seeded, new DexProcessor().getOptionsFingerprint());
+        ReproducibleBuild.enable(EPOCH, 2);
+        assertNotEquals(seeded, new DexProcessor().getOptionsFingerprint());
+        ReproducibleBuild.enable(EPOCH + 1000, 1);
+        assertNotEquals(seeded, new DexProcessor().getOptionsFingerprint());
+
+        ReproducibleBuild.enable(EPOCH, 1);
+        DexProcessor named = new DexProcessor();
+        named.setNameSeed(7);
+        assertNotEquals(seeded, named.getOptionsFingerprint());
+    }
+
+    @Test
+    void testDisabledUsesWallClock() {
+        long before = System.currentTimeMillis();
+        assertFalse(ReproducibleBuild.isEnabled());
+        assertTrue(ReproducibleBuild.currentTimeMillis() >= before);
+    }
+
+    private static void writeJar(Path path) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+            for (String name : new String[]{"com/app/Main", "com/app/Helper"}) {
+                ClassWriter writer = new ClassWriter(0);
+                writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+                writer.visitField(Opcodes.ACC_STATIC, "count", "I", null, null).visitEnd();
+                writer.visitEnd();
+                out.putNextEntry(new JarEntry(name + ".class"));
+                out.write(writer.toByteArray());
+                out.closeEntry();
+            }
+            out.putNextEntry(new JarEntry("config.properties"));
+            out.write("mode=release\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private static byte[] writeArchive(Path path) throws IOException {
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(path)) {
+            writer.writeEntry("assets/marker.txt", ("MARKER_" + ReproducibleBuild.currentTimeMillis())
+                .getBytes(StandardCharsets.UTF_8), ZipEntry.STORED, ReproducibleBuild.currentTimeMillis());
+            writer.writeEntry("classes.dex", new byte[4096], ZipEntry.DEFLATED, ReproducibleBuild.currentTimeMillis());
+        }
+        return Files.readAllBytes(path);
+    }
+}
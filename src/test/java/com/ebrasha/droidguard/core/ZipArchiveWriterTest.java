@@ -0,0 +1,216 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ZipArchiveWriterTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 12:52:33
+ * Description  : Unit tests for the FileChannel based APK writer
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ZipArchiveWriter
+ */
+public class ZipArchiveWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRawCopyKeepsCompressedBytes() throws IOException {
+        Path source = tempDir.resolve("source.apk");
+        byte[] resources = new byte[100000];
+        Arrays.fill(resources, (byte) 'r');
+        // ZipOutputStream writes deflated entries with data descriptors
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(source.toFile()))) {
+            zos.putNextEntry(new ZipEntry("resources.arsc"));
+            zos.write(resources);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("res/"));
+            zos.closeEntry();
+        }
+
+        Path output = tempDir.resolve("output.apk");
+        try (ZipCentralDirectory cd = ZipCentralDirectory.open(source);
+             ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+            for (APKParser.APKEntry entry : cd.getEntries()) {
+                writer.copyRawEntry(cd, entry);
+            }
+            writer.writeEntry("assets/new.txt", "new".getBytes(StandardCharsets.UTF_8),
+                ZipEntry.STORED, System.currentTimeMillis());
+            assertThrows(ZipException.class, () -> writer.writeEntry("assets/new.txt", new byte[0],
+                ZipEntry.STORED, System.currentTimeMillis()));
+        }
+
+        try (ZipCentralDirectory in = ZipCentralDirectory.open(source);
+             ZipCentralDirectory out = ZipCentralDirectory.open(output)) {
+            APKParser.APKEntry original = in.getEntry("resources.arsc");
+            APKParser.APKEntry copied = out.getEntry("resources.arsc");
+            assertEquals(original.compressedSize, copied.compressedSize);
+            assertEquals(original.crc, copied.crc);
+            assertArrayEquals(readRaw(in, original), readRaw(out, copied));
+        }
+
+        // Streaming readers rely on the local header, so it must carry the final sizes
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(output.toFile()))) {
+            ZipEntry entry = zis.getNextEntry();
+            assertEquals("resources.arsc", entry.getName());
+            assertArrayEquals(resources, zis.readAllBytes());
+        }
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            assertEquals(3, zipFile.size());
+            assertTrue(zipFile.getEntry("res/").isDirectory());
+        }
+    }
+
+    @Test
+    void testDeflatedEntryStream() throws IOException {
+        Path output = tempDir.resolve("deflated.apk");
+        byte[] data = "AndroidManifest".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+            writer.writeEntry("AndroidManifest.xml", data, ZipEntry.DEFLATED, System.currentTimeMillis());
+        }
+
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            ZipEntry entry = zipFile.getEntry("AndroidManifest.xml");
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertTrue(entry.getCompressedSize() < data.length);
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testParallelCompressionKeepsOrder() throws IOException {
+        Path root = tempDir.resolve("overlay");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String name = String.format("assets/file%02d.txt", i);
+            Files.createDirectories(root.resolve(name).getParent());
+            Files.write(root.resolve(name), ("content " + i).repeat(500).getBytes(StandardCharsets.UTF_8));
+            names.add(name);
+        }
+        names.add("lib/arm64-v8a/libguard.so");
+        Files.createDirectories(root.resolve("lib/arm64-v8a"));
+        Files.write(root.resolve("lib/arm64-v8a/libguard.so"), new byte[4096]);
+
+        Path output = tempDir.resolve("parallel.apk");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+            new ParallelEntryCompressor(4).writeEntries(writer, root, names);
+        }
+
+        try (ZipCentralDirectory cd = ZipCentralDirectory.open(output);
+             ZipFile zipFile = new ZipFile(output.toFile())) {
+            for (int i = 0; i < names.size(); i++) {
+                assertEquals(names.get(i), cd.getEntries().get(i).name);
+            }
+            assertEquals(ZipEntry.STORED, cd.getEntry("lib/arm64-v8a/libguard.so").method);
+            assertEquals(ZipEntry.DEFLATED, cd.getEntry("assets/file07.txt").method);
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("assets/file07.txt"))) {
+                assertArrayEquals(Files.readAllBytes(root.resolve("assets/file07.txt")), in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testStoredFileIsStreamed() throws IOException {
+        Path lib = tempDir.resolve("libnative.so");
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        Files.write(lib, data);
+
+        CRC32 expected = new CRC32();
+        expected.update(data);
+        assertEquals(expected.getValue(), ZipArchiveWriter.crc32(lib));
+
+        Path output = tempDir.resolve("stored.apk");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+            writer.writeStoredFile("lib/arm64-v8a/libnative.so", lib, System.currentTimeMillis());
+        }
+
+        try (ZipFile zipFile = new ZipFile(output.toFile())) {
+            ZipEntry entry = zipFile.getEntry("lib/arm64-v8a/libnative.so");
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals(expected.getValue(), entry.getCrc());
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                assertArrayEquals(data, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testStoredEntriesAreAligned() throws IOException {
+        Path source = tempDir.resolve("unaligned.apk");
+        byte[] lib = new byte[5000];
+        CRC32 crc = new CRC32();
+        crc.update(lib);
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(source.toFile()))) {
+            zos.putNextEntry(new ZipEntry("classes.dex"));
+            zos.write("dex".repeat(100).getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+            for (String name : new String[]{"a.bin", "assets/odd_name.dat", "lib/x86/libone.so"}) {
+                ZipEntry stored = new ZipEntry(name);
+                stored.setMethod(ZipEntry.STORED);
+                stored.setSize(lib.length);
+                stored.setCrc(crc.getValue());
+                zos.putNextEntry(stored);
+                zos.write(lib);
+                zos.closeEntry();
+            }
+        }
+
+        Path aligned = tempDir.resolve("aligned.apk");
+        assertTrue(new APKBuilder().alignAPK(source, aligned));
+
+        try (ZipCentralDirectory cd = ZipCentralDirectory.open(aligned);
+             ZipFile zipFile = new ZipFile(aligned.toFile())) {
+            assertEquals(ZipEntry.DEFLATED, cd.getEntry("classes.dex").method);
+            assertEquals(0, cd.getDataOffset(cd.getEntry("a.bin")) % ZipArchiveWriter.STORED_ALIGNMENT);
+            assertEquals(0, cd.getDataOffset(cd.getEntry("assets/odd_name.dat")) % ZipArchiveWriter.STORED_ALIGNMENT);
+            assertEquals(0, cd.getDataOffset(cd.getEntry("lib/x86/libone.so")) % ZipArchiveWriter.NATIVE_LIBRARY_ALIGNMENT);
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("lib/x86/libone.so"))) {
+                assertArrayEquals(lib, in.readAllBytes());
+            }
+        }
+    }
+
+    private byte[] readRaw(ZipCentralDirectory cd, APKParser.APKEntry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) entry.compressedSize);
+        cd.getChannel().read(buffer, cd.getDataOffset(entry));
+        return buffer.array();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ **********************************************************************
+ * -------------------------------------------------------------------
+ * Project Name : Abdal DroidGuard
+ * File Name    : ZipCentralDirectoryTest.java
+ * Author       : Ebrahim Shafiei (EbraSha)
+ * Email        : Prof.Shafiei@Gmail.com
+ * Created On   : 2026-10-18 10:05:37
+ * Description  : Unit tests for the APK central directory reader
+ * -------------------------------------------------------------------
+ *
+ * "Coding is an engaging and beloved hobby for me. I passionately and insatiably pursue knowledge in cybersecurity and programming."
+ * – Ebrahim Shafiei
+ *
+ **********************************************************************
+ */
+
+package com.ebrasha.droidguard.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ZipCentralDirectory
+ */
+public class ZipCentralDirectoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadsEntriesFromCentralDirectory() throws IOException {
+        Path apk = tempDir.resolve("sample.apk");
+        byte[] dex = "dex\n035\0classes".getBytes(StandardCharsets.UTF_8);
+        byte[] lib = new byte[4096];
+
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apk.toFile()))) {
+            zos.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            zos.write("<manifest/>".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry("classes.dex"));
+            zos.write(dex);
+            zos.closeEntry();
+
+            CRC32 crc = new CRC32();
+            crc.update(lib);
+            ZipEntry stored = new ZipEntry("lib/arm64-v8a/libnative.so");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(lib.length);
+            stored.setCrc(crc.getValue());
+            zos.putNextEntry(stored);
+            zos.write(lib);
+            zos.closeEntry();
+        }
+
+        try (ZipCentralDirectory centralDirectory = ZipCentralDirectory.open(apk);
+             ZipFile zipFile = new ZipFile(apk.toFile())) {
+            assertEquals(3, centralDirectory.getEntries().size());
+
+            APKParser.APKEntry dexEntry = centralDirectory.getEntry("classes.dex");
+            assertNotNull(dexEntry);
+            assertEquals(dex.length, dexEntry.size);
+            assertEquals(zipFile.getEntry("classes.dex").getCrc(), dexEntry.crc);
+            assertEquals(ZipEntry.DEFLATED, dexEntry.method);
+
+            // Local header offset must point straight at the stored entry data
+            APKParser.APKEntry libEntry = centralDirectory.getEntry("lib/arm64-v8a/libnative.so");
+            assertEquals(ZipEntry.STORED, libEntry.method);
+            long dataOffset = centralDirectory.getDataOffset(libEntry);
+            ByteBuffer data = ByteBuffer.allocate(lib.length);
+            centralDirectory.getChannel().read(data, dataOffset);
+            assertArrayEquals(lib, data.array());
+        }
+    }
+
+    @Test
+    void testParseAPKUsesCentralDirectory() throws IOException {
+        Path apk = tempDir.resolve("parsed.apk");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(apk.toFile()))) {
+            zos.setComment("trailing archive comment");
+            zos.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            zos.write(new byte[]{0x03, 0x00, 0x08, 0x00});
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("classes.dex"));
+            zos.write(new byte[]{0x64, 0x65, 0x78, 0x0A});
+            zos.closeEntry();
+        }
+
+        APKParser parser = new APKParser();
+        assertTrue(parser.parseAPK(apk.toFile()));
+        assertTrue(parser.validateAPK());
+        assertEquals(4, parser.getEntrySize("classes.dex"));
+        assertTrue(parser.getEntry("classes.dex").localHeaderOffset > 0);
+    }
+
+    @Test
+    void testRejectsNonZipFile() throws IOException {
+        Path notZip = tempDir.resolve("broken.apk");
+        Files.write(notZip, new byte[64]);
+        assertThrows(IOException.class, () -> ZipCentralDirectory.open(notZip).close());
+        assertFalse(new APKParser().parseAPK(notZip.toFile()));
+    }
+}